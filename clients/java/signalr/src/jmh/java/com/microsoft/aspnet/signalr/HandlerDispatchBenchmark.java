@@ -0,0 +1,83 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures head-of-line blocking: how long an invocation of a cheap handler waits when it arrives
+ * right behind an invocation of a slow handler for a different target.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerDispatchBenchmark {
+    @Param({"inline", "pool"})
+    public String dispatch;
+
+    @Param({"100"})
+    public int slowHandlerMicros;
+
+    private ExecutorService executor;
+    private InvocationDispatcher dispatcher;
+    private List<InvocationHandler> slowHandlers;
+    private List<InvocationHandler> fastHandlers;
+    private volatile CountDownLatch fastDone;
+    private final Object[] noArguments = new Object[0];
+
+    @Setup
+    public void setup() {
+        if (dispatch.equals("pool")) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        dispatcher = new InvocationDispatcher(executor, new NullLogger());
+
+        long slowNanos = TimeUnit.MICROSECONDS.toNanos(slowHandlerMicros);
+        slowHandlers = Collections.singletonList(new InvocationHandler(args -> {
+            long end = System.nanoTime() + slowNanos;
+            while (System.nanoTime() < end) {
+                // Busy wait to simulate a handler doing real work.
+            }
+        }, new ArrayList<>()));
+        fastHandlers = Collections.singletonList(new InvocationHandler(args -> fastDone.countDown(), new ArrayList<>()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void fastHandlerBehindSlowHandler() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        fastDone = latch;
+        dispatcher.dispatch("Slow", slowHandlers, noArguments);
+        dispatcher.dispatch("Fast", fastHandlers, noArguments);
+        latch.await();
+    }
+}
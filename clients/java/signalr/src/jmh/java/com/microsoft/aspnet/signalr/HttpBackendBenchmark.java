@@ -0,0 +1,141 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Compares the HTTP backends against servers on the loopback interface: messages echoed over a
+ * WebSocket, sent in batches like a busy connection does, and POST requests like the ones the HTTP
+ * transports send with. The JAVA_NET_HTTP runs need Java 11. Allocations per operation are reported
+ * with the GC profiler, e.g. ./gradlew jmh -PjmhInclude=HttpBackendBenchmark -PjmhProfilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpBackendBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"OKHTTP", "JAVA_NET_HTTP"})
+    public HttpBackend backend;
+
+    @Param({"128"})
+    public int messageSize;
+
+    private LoopbackWebSocketServer webSocketServer;
+    private HttpServer httpServer;
+    private ExecutorService httpServerExecutor;
+    private HttpClient client;
+    private WebSocketWrapper webSocket;
+    private final Semaphore echoes = new Semaphore(0);
+    private String message;
+    private byte[] body;
+    private String postUrl;
+
+    @Setup
+    public void setup() throws Exception {
+        char[] characters = new char[messageSize];
+        Arrays.fill(characters, 'a');
+        message = new String(characters);
+        body = message.getBytes(StandardCharsets.UTF_8);
+
+        webSocketServer = new LoopbackWebSocketServer();
+        // Without it the JDK's server waits on delayed ACKs, which would hide the difference between the clients.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        httpServerExecutor = Executors.newFixedThreadPool(4);
+        httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.setExecutor(httpServerExecutor);
+        httpServer.createContext("/", (exchange) -> {
+            byte[] request = readAll(exchange.getRequestBody());
+            exchange.sendResponseHeaders(200, request.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(request);
+            }
+        });
+        httpServer.start();
+        postUrl = "http://" + httpServer.getAddress().getHostString() + ":" + httpServer.getAddress().getPort() + "/";
+
+        client = HttpClient.create(backend, new NullLogger(), SendQueue.DEFAULT_HIGH_WATERMARK, SendBackpressurePolicy.AWAIT, null);
+        webSocket = client.createWebSocket(webSocketServer.getUrl(), new HashMap<>());
+        webSocket.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) {
+                echoes.release();
+            }
+
+            @Override
+            public void invoke(ByteBuffer message) {
+                echoes.release();
+            }
+        });
+        webSocket.setOnClose((code, reason) -> { });
+        webSocket.start().get(5, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        webSocket.stop().get(5, TimeUnit.SECONDS);
+        webSocketServer.close();
+        httpServer.stop(0);
+        httpServerExecutor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void webSocketEcho() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            webSocket.send(message);
+        }
+        echoes.acquire(BATCH);
+    }
+
+    @Benchmark
+    public HttpResponse post() throws Exception {
+        HttpRequest request = new HttpRequest();
+        request.setBody(body);
+        return client.post(postUrl, request).get(5, TimeUnit.SECONDS);
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hands frames to the receive callback of a started {@link HubConnection}, the path every message from the
+ * server takes: parsing, looking up the handlers and running them. Handlers run inline, the default, so the
+ * dispatch is measured on the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HubConnectionReceiveBenchmark {
+    @Param({"json", "messagepack"})
+    public String protocol;
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    @Param({"1", "4"})
+    public int handlerCount;
+
+    private final ReceivingTransport transport = new ReceivingTransport();
+    private HubConnection hubConnection;
+    private String textFrame;
+    private ByteBuffer binaryFrame;
+    private long received;
+
+    @Setup
+    public void setup() throws Exception {
+        HubProtocol hubProtocol = protocol.equals("json") ? new JsonHubProtocol() : new MessagePackHubProtocol();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(transport);
+        options.setSkipNegotiate(true);
+        hubConnection = new HubConnectionBuilder()
+                .withUrl("http://example.com", options)
+                .withHubProtocol(hubProtocol)
+                .build();
+        for (int i = 0; i < handlerCount; i++) {
+            hubConnection.on("PriceUpdate", (symbol, price) -> received++, String.class, Double.class);
+        }
+
+        CompletableFuture<Void> start = hubConnection.start();
+        transport.onReceive("{}\u001e");
+        start.get(5, TimeUnit.SECONDS);
+
+        StringBuilder text = new StringBuilder();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        for (int i = 0; i < batchSize; i++) {
+            InvocationMessage message = new InvocationMessage(null, "PriceUpdate", new Object[] { "MSFT", 100.25 + i });
+            if (hubProtocol.getTransferFormat() == TransferFormat.TEXT) {
+                text.append(hubProtocol.writeMessage(message));
+            } else {
+                ByteBuffer bytes = hubProtocol.writeMessageBytes(message);
+                binary.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            }
+        }
+        textFrame = text.toString();
+        binaryFrame = ByteBuffer.wrap(binary.toByteArray());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        hubConnection.stop().get(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public long receive() throws Exception {
+        if (binaryFrame.capacity() == 0) {
+            transport.onReceive(textFrame);
+        } else {
+            binaryFrame.rewind();
+            transport.onReceive(binaryFrame);
+        }
+        return received;
+    }
+
+    /**
+     * A transport that sends nowhere, frames only come in through onReceive.
+     */
+    private static final class ReceivingTransport implements Transport {
+        private OnReceiveCallBack onReceiveCallBack;
+        private Consumer<String> onClose;
+
+        @Override
+        public CompletableFuture<Void> start(String url) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> send(String message) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> send(ByteBuffer message) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void setOnReceive(OnReceiveCallBack callback) {
+            this.onReceiveCallBack = callback;
+        }
+
+        @Override
+        public void onReceive(String message) throws Exception {
+            onReceiveCallBack.invoke(message);
+        }
+
+        @Override
+        public void onReceive(ByteBuffer message) throws Exception {
+            onReceiveCallBack.invoke(message);
+        }
+
+        @Override
+        public void setOnClose(Consumer<String> onCloseCallback) {
+            this.onClose = onCloseCallback;
+        }
+
+        @Override
+        public CompletableFuture<Void> stop() {
+            onClose.accept(null);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
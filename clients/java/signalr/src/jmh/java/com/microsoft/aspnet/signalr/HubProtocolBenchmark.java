@@ -0,0 +1,133 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.TypeAdapter;
+
+/**
+ * Parses and writes frames of invocations with both hub protocols. A frame holds batchSize invocations,
+ * each with argumentCount string arguments of messageSize characters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HubProtocolBenchmark {
+    @Param({"json", "messagepack"})
+    public String protocol;
+
+    @Param({"16", "1024"})
+    public int messageSize;
+
+    @Param({"1", "4"})
+    public int argumentCount;
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    private HubProtocol hubProtocol;
+    private InvocationBinder binder;
+    private InvocationMessage[] messages;
+    private String textFrame;
+    private ByteBuffer binaryFrame;
+
+    @Setup
+    public void setup() {
+        hubProtocol = protocol.equals("json") ? new JsonHubProtocol() : new MessagePackHubProtocol();
+        binder = new StringArgumentsBinder(argumentCount);
+
+        StringBuilder argument = new StringBuilder();
+        for (int i = 0; i < messageSize; i++) {
+            argument.append((char) ('a' + i % 26));
+        }
+        Object[] arguments = new Object[argumentCount];
+        for (int i = 0; i < argumentCount; i++) {
+            arguments[i] = argument.toString();
+        }
+
+        messages = new InvocationMessage[batchSize];
+        StringBuilder text = new StringBuilder();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        for (int i = 0; i < batchSize; i++) {
+            messages[i] = new InvocationMessage(null, "Target", arguments);
+            if (hubProtocol.getTransferFormat() == TransferFormat.TEXT) {
+                text.append(hubProtocol.writeMessage(messages[i]));
+            } else {
+                ByteBuffer message = hubProtocol.writeMessageBytes(messages[i]);
+                binary.write(message.array(), message.arrayOffset() + message.position(), message.remaining());
+            }
+        }
+        textFrame = text.toString();
+        binaryFrame = ByteBuffer.wrap(binary.toByteArray());
+    }
+
+    @Benchmark
+    public HubMessage[] parse() throws Exception {
+        if (hubProtocol.getTransferFormat() == TransferFormat.TEXT) {
+            return hubProtocol.parseMessages(textFrame, binder);
+        }
+        binaryFrame.rewind();
+        return hubProtocol.parseMessages(binaryFrame, binder);
+    }
+
+    @Benchmark
+    public void write(Blackhole blackhole) {
+        for (InvocationMessage message : messages) {
+            if (hubProtocol.getTransferFormat() == TransferFormat.TEXT) {
+                blackhole.consume(hubProtocol.writeMessage(message));
+            } else {
+                blackhole.consume(hubProtocol.writeMessageBytes(message));
+            }
+        }
+    }
+
+    /**
+     * Binds every target to string parameters, with the adapters resolved once like HubConnection does.
+     */
+    static final class StringArgumentsBinder implements InvocationBinder {
+        private final List<Class<?>> parameterTypes;
+        private final TypeAdapter<?>[] parameterAdapters;
+
+        StringArgumentsBinder(int argumentCount) {
+            this.parameterTypes = Collections.nCopies(argumentCount, String.class);
+            this.parameterAdapters = TypeAdapterResolver.resolve(parameterTypes);
+        }
+
+        @Override
+        public Class<?> getReturnType(String invocationId) {
+            return String.class;
+        }
+
+        @Override
+        public List<Class<?>> getParameterTypes(String methodName) {
+            return parameterTypes;
+        }
+
+        @Override
+        public TypeAdapter<?>[] getParameterAdapters(String methodName) {
+            return parameterAdapters;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Compares the in place record scanning of {@link JsonHubProtocol#parseMessages(String, InvocationBinder)}
+ * against the previous implementation, which split the payload with a regex and created a new reader per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonHubProtocolBenchmark {
+    private static final String RECORD_SEPARATOR = "\u001e";
+
+    @Param({"1", "16"})
+    public int messagesPerFrame;
+
+    private final JsonHubProtocol protocol = new JsonHubProtocol();
+    private final Gson gson = new Gson();
+    private final InvocationBinder binder = new InvocationBinder() {
+        // Resolved once, the same way HubConnection caches them per registered handler.
+        private final TypeAdapter<?>[] adapters = TypeAdapterResolver.resolve(Collections.singletonList(Double.class));
+
+        @Override
+        public Class<?> getReturnType(String invocationId) {
+            return Double.class;
+        }
+
+        @Override
+        public List<Class<?>> getParameterTypes(String methodName) {
+            return Collections.singletonList(Double.class);
+        }
+
+        @Override
+        public TypeAdapter<?>[] getParameterAdapters(String methodName) {
+            return adapters;
+        }
+    };
+    private String frame;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < messagesPerFrame; i++) {
+            builder.append("{\"type\":1,\"target\":\"PriceUpdate\",\"arguments\":[")
+                .append(100.25 + i)
+                .append("]}")
+                .append(RECORD_SEPARATOR);
+        }
+        frame = builder.toString();
+    }
+
+    @Benchmark
+    public HubMessage[] parseInPlace() throws Exception {
+        return protocol.parseMessages(frame, binder);
+    }
+
+    @Benchmark
+    public HubMessage[] parseWithSplit() throws Exception {
+        if (!frame.substring(frame.length() - 1).equals(RECORD_SEPARATOR)) {
+            throw new RuntimeException("Message is incomplete.");
+        }
+
+        String[] records = frame.split(RECORD_SEPARATOR);
+        List<HubMessage> hubMessages = new ArrayList<>();
+        for (String record : records) {
+            String target = null;
+            ArrayList<Object> arguments = new ArrayList<>();
+            JsonReader reader = new JsonReader(new StringReader(record));
+            reader.beginObject();
+            do {
+                String name = reader.nextName();
+                switch (name) {
+                    case "target":
+                        target = reader.nextString();
+                        break;
+                    case "arguments":
+                        List<Class<?>> types = binder.getParameterTypes(target);
+                        reader.beginArray();
+                        int argCount = 0;
+                        while (reader.hasNext()) {
+                            arguments.add(gson.fromJson(reader, types.get(argCount++)));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            } while (reader.hasNext());
+            reader.endObject();
+            reader.close();
+
+            hubMessages.add(new InvocationMessage(null, target, arguments.toArray()));
+        }
+
+        return hubMessages.toArray(new HubMessage[hubMessages.size()]);
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A WebSocket server on the loopback interface that echoes every frame back, just enough of
+ * RFC 6455 to benchmark clients without a network or a server process: no extensions and a
+ * thread per connection.
+ */
+class LoopbackWebSocketServer implements AutoCloseable {
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket serverSocket;
+
+    LoopbackWebSocketServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "loopback-websocket-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String getUrl() {
+        return "ws://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort() + "/";
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread connection = new Thread(() -> serve(socket), "loopback-websocket");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            OutputStream output = new BufferedOutputStream(s.getOutputStream());
+            handshake(input, output);
+
+            while (true) {
+                int first = input.readUnsignedByte();
+                int opcode = first & 0x0F;
+                int second = input.readUnsignedByte();
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = input.readUnsignedShort();
+                } else if (length == 127) {
+                    length = input.readLong();
+                }
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    input.readFully(mask);
+                }
+                byte[] payload = new byte[(int) length];
+                input.readFully(payload);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+
+                // Pings are answered with pongs, everything else is sent back as it came, fragments included.
+                writeFrame(output, (first & 0x80) | (opcode == 0x9 ? 0xA : opcode), payload);
+                if (opcode == 0x8) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away.
+        }
+    }
+
+    private static void handshake(InputStream input, OutputStream output) throws IOException {
+        String key = null;
+        String line;
+        while (!(line = readLine(input)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+
+        String accept;
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            accept = Base64.getEncoder().encodeToString(sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        output.write(("HTTP/1.1 101 Switching Protocols\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("The connection closed during the handshake.");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void writeFrame(OutputStream output, int finAndOpcode, byte[] payload) throws IOException {
+        output.write(finAndOpcode);
+        if (payload.length < 126) {
+            output.write(payload.length);
+        } else if (payload.length <= 0xFFFF) {
+            output.write(126);
+            output.write(payload.length >>> 8);
+            output.write(payload.length);
+        } else {
+            output.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                output.write((int) ((long) payload.length >>> shift));
+            }
+        }
+        output.write(payload);
+        output.flush();
+    }
+}
@@ -0,0 +1,325 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opens many {@link HubConnection}s from one JVM and sends on them at a fixed rate, like Crankier does with
+ * .NET clients, to find out how many connections the Java client holds and how fast they send.
+ *
+ * <p>Without --target-url the connections go to a {@link LoopbackHub} in the same JVM, which measures the
+ * client alone. A server such as benchmarkapps/BenchmarkServer measures the whole path, e.g. with
+ * {@code --target-url http://localhost:5000/echo --mode send --method SendPayload}. Run it with {@code ./gradlew loadgen --args="--connections 1000"}.</p>
+ */
+final class LoadGenerator {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private String targetUrl;
+    private int connections = 100;
+    private double rampRate = 100;
+    private double sendRate = 1000;
+    private int sendSize = 64;
+    private int duration = 30;
+    private boolean invoke = true;
+    private String method = LoopbackHub.ECHO;
+    private String protocol = "json";
+    private HttpBackend httpBackend = HttpBackend.OKHTTP;
+
+    private final List<HubConnection> connected = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram messageLatency = new LatencyHistogram();
+    private final AtomicInteger failedConnections = new AtomicInteger();
+    private final AtomicInteger closedConnections = new AtomicInteger();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder messagesFailed = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        generator.run();
+        System.exit(0);
+    }
+
+    private static void printUsage() {
+        System.err.println("Options:");
+        System.err.println("  --target-url <url>       The hub to connect to, defaults to a stand-in hub in this JVM.");
+        System.err.println("  --connections <n>        The number of connections to open, defaults to 100.");
+        System.err.println("  --ramp-rate <n>          Connections opened per second, defaults to 100.");
+        System.err.println("  --send-rate <n>          Messages per second over all connections, 0 to only connect. Defaults to 1000.");
+        System.err.println("  --send-size <n>          Characters in the payload of each message, defaults to 64.");
+        System.err.println("  --duration <seconds>     How long to send once every connection is open, defaults to 30.");
+        System.err.println("  --mode <invoke|send>     Wait for a completion or only for the send, defaults to invoke.");
+        System.err.println("  --method <name>          The hub method, it takes the payload string and must return a value");
+        System.err.println("                           with --mode invoke. Defaults to Echo.");
+        System.err.println("  --protocol <json|messagepack>  Defaults to json.");
+        System.err.println("  --http-backend <okhttp|java_net_http>  Defaults to okhttp.");
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--help") || option.equals("-h")) {
+                throw new IllegalArgumentException("Usage: loadgen [options]");
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException(String.format("Missing a value for %s.", option));
+            }
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--target-url":
+                        targetUrl = value;
+                        break;
+                    case "--connections":
+                        connections = positive(option, Integer.parseInt(value));
+                        break;
+                    case "--ramp-rate":
+                        rampRate = positive(option, Double.parseDouble(value));
+                        break;
+                    case "--send-rate":
+                        sendRate = Double.parseDouble(value);
+                        if (sendRate < 0) {
+                            throw new IllegalArgumentException("--send-rate can't be negative.");
+                        }
+                        break;
+                    case "--send-size":
+                        sendSize = Integer.parseInt(value);
+                        break;
+                    case "--duration":
+                        duration = positive(option, Integer.parseInt(value));
+                        break;
+                    case "--mode":
+                        if (!value.equals("invoke") && !value.equals("send")) {
+                            throw new IllegalArgumentException("--mode must be invoke or send.");
+                        }
+                        invoke = value.equals("invoke");
+                        break;
+                    case "--method":
+                        method = value;
+                        break;
+                    case "--protocol":
+                        if (!value.equals("json") && !value.equals("messagepack")) {
+                            throw new IllegalArgumentException("--protocol must be json or messagepack.");
+                        }
+                        protocol = value;
+                        break;
+                    case "--http-backend":
+                        httpBackend = HttpBackend.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unknown option %s.", option));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("%s needs a number, got '%s'.", option, value));
+            }
+        }
+    }
+
+    private static <T extends Number> T positive(String option, T value) {
+        if (value.doubleValue() <= 0) {
+            throw new IllegalArgumentException(String.format("%s must be positive.", option));
+        }
+        return value;
+    }
+
+    private void run() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "signalr-loadgen");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LoopbackHub hub = null;
+        TransportRuntime runtime = null;
+        if (targetUrl == null) {
+            hub = new LoopbackHub();
+            // Any method echoes, as Echo does.
+            hub.on(method, (arguments) -> arguments[0], String.class);
+            System.out.printf("Target: stand-in hub in this JVM%n");
+        } else {
+            runtime = new TransportRuntime();
+            System.out.printf("Target: %s%n", targetUrl);
+        }
+
+        try {
+            long heapBefore = usedHeap();
+            int threadsBefore = threads.getThreadCount();
+
+            System.out.printf("Opening %d connections at %.0f per second%n", connections, rampRate);
+            long rampStart = System.nanoTime();
+            List<CompletableFuture<Void>> starts = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                // Opens on schedule, however long the earlier connections take.
+                long due = rampStart + (long) (i * TimeUnit.SECONDS.toNanos(1) / rampRate);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                starts.add(connect(hub, runtime));
+                if ((i + 1) % Math.max(1, (int) rampRate) == 0) {
+                    printStatus();
+                }
+            }
+            CompletableFuture.allOf(starts.toArray(new CompletableFuture<?>[0]))
+                    .handle((result, error) -> null).get();
+            printStatus();
+
+            long heapPerConnection = connected.isEmpty() ? 0 : (usedHeap() - heapBefore) / connected.size();
+            int threadsAfterRamp = threads.getThreadCount();
+
+            if (sendRate > 0 && !connected.isEmpty()) {
+                send(timer);
+            }
+
+            System.out.printf("%nConnections: %d open, %d failed to open, %d closed early%n",
+                    connected.size() - closedConnections.get(), failedConnections.get(), closedConnections.get());
+            printLatency("Connect latency", connectLatency);
+            if (sendRate > 0) {
+                System.out.printf("Messages: %d sent, %d failed, %.0f per second%n",
+                        messagesSent.sum(), messagesFailed.sum(), messageLatency.getCount() / (double) duration);
+                printLatency(invoke ? "Invoke latency" : "Send latency", messageLatency);
+            }
+            System.out.printf("Heap per connection: %d bytes%n", heapPerConnection);
+            System.out.printf("Threads: %d before, %d with the connections open, %d at most%n",
+                    threadsBefore, threadsAfterRamp, threads.getPeakThreadCount());
+
+            List<CompletableFuture<Void>> stops = new ArrayList<>();
+            for (HubConnection hubConnection : connected) {
+                stops.add(hubConnection.stop());
+            }
+            CompletableFuture.allOf(stops.toArray(new CompletableFuture<?>[0])).handle((result, error) -> null).get(30, TimeUnit.SECONDS);
+        } finally {
+            timer.shutdownNow();
+            if (hub != null) {
+                hub.close();
+            }
+            if (runtime != null) {
+                runtime.close();
+            }
+        }
+    }
+
+    private CompletableFuture<Void> connect(LoopbackHub hub, TransportRuntime runtime) {
+        HttpConnectionOptions options = hub != null ? hub.newConnectionOptions() : new HttpConnectionOptions();
+        options.setLogger(new NullLogger());
+        options.setHubProtocol(protocol.equals("json") ? new JsonHubProtocol() : new MessagePackHubProtocol());
+        if (runtime != null) {
+            options.setTransportRuntime(runtime);
+            options.setHttpBackend(httpBackend);
+        }
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl(hub != null ? LoopbackHub.URL : targetUrl, options).build();
+        hubConnection.onClosed((error) -> closedConnections.incrementAndGet());
+
+        long start = System.nanoTime();
+        try {
+            return hubConnection.start().whenComplete((result, error) -> {
+                if (error != null) {
+                    failedConnections.incrementAndGet();
+                } else {
+                    connectLatency.record(System.nanoTime() - start);
+                    connected.add(hubConnection);
+                }
+            });
+        } catch (Exception e) {
+            failedConnections.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void send(ScheduledExecutorService timer) throws InterruptedException {
+        char[] chars = new char[sendSize];
+        Arrays.fill(chars, 'a');
+        String payload = new String(chars);
+        HubConnection[] targets = connected.toArray(new HubConnection[0]);
+        double perTick = sendRate * TICK_NANOS / TimeUnit.SECONDS.toNanos(1);
+
+        System.out.printf("%nSending %.0f messages per second for %d seconds%n", sendRate, duration);
+        int[] next = new int[1];
+        double[] due = new double[1];
+        timer.scheduleAtFixedRate(() -> {
+            // Rates below one message per tick carry the fraction over to the next ones.
+            due[0] += perTick;
+            while (due[0] >= 1) {
+                due[0]--;
+                HubConnection hubConnection = targets[next[0]++ % targets.length];
+                sendOne(hubConnection, payload);
+            }
+        }, 0, TICK_NANOS, TimeUnit.NANOSECONDS);
+        timer.scheduleAtFixedRate(this::printStatus, 1, 1, TimeUnit.SECONDS);
+
+        TimeUnit.SECONDS.sleep(duration);
+        timer.shutdownNow();
+        timer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void sendOne(HubConnection hubConnection, String payload) {
+        if (hubConnection.getConnectionState() != HubConnectionState.CONNECTED) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            CompletableFuture<?> result = invoke ? hubConnection.invoke(Object.class, method, payload)
+                    : hubConnection.send(method, payload);
+            messagesSent.increment();
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    messagesFailed.increment();
+                } else {
+                    messageLatency.record(System.nanoTime() - start);
+                }
+            });
+        } catch (Exception e) {
+            messagesFailed.increment();
+        }
+    }
+
+    private void printStatus() {
+        System.out.printf("  %d connected, %d failed, %d messages sent, p99 latency %s%n",
+                connected.size(), failedConnections.get(), messagesSent.sum(),
+                formatNanos(messageLatency.getValueAtPercentile(99)));
+    }
+
+    private static void printLatency(String name, LatencyHistogram histogram) {
+        System.out.printf("%s: p50 %s, p90 %s, p99 %s, p99.9 %s, max %s%n", name,
+                formatNanos(histogram.getValueAtPercentile(50)), formatNanos(histogram.getValueAtPercentile(90)),
+                formatNanos(histogram.getValueAtPercentile(99)), formatNanos(histogram.getValueAtPercentile(99.9)),
+                formatNanos(histogram.getMaxNanos()));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        // A few collections settle the heap enough to tell what the connections hold on to.
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
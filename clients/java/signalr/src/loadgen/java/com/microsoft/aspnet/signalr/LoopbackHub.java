@@ -0,0 +1,455 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.google.gson.TypeAdapter;
+
+/**
+ * A stand-in for an ASP.NET Core SignalR hub that runs in the same process, so that a {@link HubConnection}
+ * can be benchmarked and load tested without a network or a server.
+ *
+ * <p>Connections reach it through a {@link LoopbackTransport}, see {@link #newConnectionOptions()}. The hub
+ * completes the handshake for the JSON and MessagePack protocols, answers invocations of the methods
+ * registered with {@link #on}, pings every connection like a server does and broadcasts to every connection,
+ * once or at a fixed rate. {@value #ECHO} is registered from the start and returns its string argument.
+ * Streams aren't supported, a message the hub can't handle closes its connection with an error.</p>
+ *
+ * <p>Each direction of a connection delivers its messages in order on the hub's threads. Nothing limits how
+ * many messages wait, a connection that can't keep up with a broadcast falls further and further behind.</p>
+ *
+ * <p>It lives with the load generator and isn't part of the jar, the tests and benchmarks use it from there.</p>
+ */
+final class LoopbackHub implements AutoCloseable {
+    static final String URL = "http://loopback/hub";
+    static final String ECHO = "Echo";
+
+    private static final char RECORD_SEPARATOR = '\u001e';
+    private static final HubProtocol JSON = new JsonHubProtocol();
+    private static final HubProtocol MESSAGE_PACK = new MessagePackHubProtocol();
+    private static final long PING_INTERVAL_MILLIS = 15_000;
+    // Rates are spread over ticks of this length, high rates send several messages per tick.
+    private static final long BROADCAST_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // How many messages a connection delivers before it lets the other connections have the thread.
+    private static final int MAX_TASKS_PER_RUN = 64;
+
+    private final Outgoing ping = new Outgoing(PingMessage.getInstance());
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Map<String, Method> methods = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+
+    LoopbackHub() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    LoopbackHub(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The hub needs at least one thread.");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreads("signalr-loopback-hub"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("signalr-loopback-timer"));
+        on(ECHO, (arguments) -> arguments[0], String.class);
+        timer.scheduleAtFixedRate(() -> broadcast(ping), PING_INTERVAL_MILLIS, PING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a hub method. The handler runs on the hub's threads and its result completes the invocation,
+     * an exception from it fails the invocation with the exception's message.
+     */
+    void on(String method, Function<Object[], Object> handler, Class<?>... parameterTypes) {
+        methods.put(method, new Method(handler, parameterTypes));
+    }
+
+    /**
+     * @return Options that connect a {@link HubConnection} to this hub, for the URL {@link #URL}.
+     */
+    HttpConnectionOptions newConnectionOptions() {
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(new LoopbackTransport(this));
+        options.setSkipNegotiate(true);
+        return options;
+    }
+
+    /**
+     * Sends an invocation of target to every connection that completed its handshake.
+     */
+    void broadcast(String target, Object... arguments) {
+        broadcast(new Outgoing(new InvocationMessage(null, target, arguments)));
+    }
+
+    /**
+     * Broadcasts an invocation of target at the given rate until the returned broadcast is stopped. The
+     * message is serialized once per protocol, every send delivers the same payload.
+     */
+    Broadcast startBroadcast(double messagesPerSecond, String target, Object... arguments) {
+        if (!(messagesPerSecond > 0)) {
+            throw new IllegalArgumentException("The broadcast rate must be positive.");
+        }
+        Broadcast broadcast = new Broadcast(new Outgoing(new InvocationMessage(null, target, arguments)),
+                messagesPerSecond * BROADCAST_TICK_NANOS / TimeUnit.SECONDS.toNanos(1));
+        broadcast.tick = timer.scheduleAtFixedRate(broadcast, BROADCAST_TICK_NANOS, BROADCAST_TICK_NANOS, TimeUnit.NANOSECONDS);
+        return broadcast;
+    }
+
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return The number of hub messages the hub received from all connections, pings included.
+     */
+    long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    /**
+     * @return The number of hub messages the hub sent to all connections, pings included.
+     */
+    long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    Connection connect(LoopbackTransport transport) {
+        Connection connection = new Connection(transport);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Stops the broadcasts and closes every connection, messages that were already queued are still delivered.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        for (Connection connection : connections) {
+            connection.close(null);
+        }
+        executor.shutdown();
+    }
+
+    private void broadcast(Outgoing message) {
+        for (Connection connection : connections) {
+            if (connection.protocol != null) {
+                connection.send(message);
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return (runnable) -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    final class Broadcast implements Runnable {
+        private final Outgoing message;
+        private final double messagesPerTick;
+        private volatile ScheduledFuture<?> tick;
+        // Only touched by the timer thread.
+        private double due;
+
+        private Broadcast(Outgoing message, double messagesPerTick) {
+            this.message = message;
+            this.messagesPerTick = messagesPerTick;
+        }
+
+        @Override
+        public void run() {
+            // Rates below one message per tick carry the fraction over to the next ones.
+            due += messagesPerTick;
+            while (due >= 1) {
+                due--;
+                broadcast(message);
+            }
+        }
+
+        void stop() {
+            tick.cancel(false);
+        }
+    }
+
+    /**
+     * The hub's end of a {@link LoopbackTransport}.
+     */
+    final class Connection {
+        private final LoopbackTransport transport;
+        private final Lane inbound = new Lane();
+        private final Lane outbound = new Lane();
+        private final AtomicBoolean closing = new AtomicBoolean();
+        private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+        private final InvocationBinder binder = new InvocationBinder() {
+            @Override
+            public Class<?> getReturnType(String invocationId) {
+                throw new UnsupportedOperationException("The hub doesn't invoke client results.");
+            }
+
+            @Override
+            public List<Class<?>> getParameterTypes(String methodName) throws Exception {
+                return method(methodName).parameterTypes;
+            }
+
+            @Override
+            public TypeAdapter<?>[] getParameterAdapters(String methodName) throws Exception {
+                return method(methodName).parameterAdapters;
+            }
+        };
+        // Set on the inbound lane once the handshake is done.
+        private volatile HubProtocol protocol;
+
+        private Connection(LoopbackTransport transport) {
+            this.transport = transport;
+        }
+
+        void receive(String message) {
+            inbound.execute(() -> {
+                try {
+                    String messages = message;
+                    if (protocol == null) {
+                        int end = message.indexOf(RECORD_SEPARATOR);
+                        if (end < 0) {
+                            throw new HubException("Handshake request is incomplete.");
+                        }
+                        handshake(message.substring(0, end));
+                        messages = message.substring(end + 1);
+                        if (messages.isEmpty()) {
+                            return;
+                        }
+                    }
+                    process(protocol.parseMessages(messages, binder));
+                } catch (Exception e) {
+                    close(e.getMessage());
+                }
+            });
+        }
+
+        void receive(byte[] message) {
+            inbound.execute(() -> {
+                try {
+                    if (protocol == null) {
+                        throw new HubException("The handshake request must be sent as text.");
+                    }
+                    process(protocol.parseMessages(ByteBuffer.wrap(message), binder));
+                } catch (Exception e) {
+                    close(e.getMessage());
+                }
+            });
+        }
+
+        CompletableFuture<Void> close(String error) {
+            if (closing.compareAndSet(false, true)) {
+                // Whatever was sent before the close still reaches the client.
+                outbound.execute(() -> {
+                    connections.remove(this);
+                    transport.closed(error);
+                    closeFuture.complete(null);
+                });
+            }
+            return closeFuture;
+        }
+
+        private void handshake(String request) throws HubException {
+            HandshakeRequestMessage handshake = HandshakeProtocol.parseHandshakeRequest(request);
+            HubProtocol selected = null;
+            if (JSON.getName().equals(handshake.protocol) && JSON.getVersion() == handshake.version) {
+                selected = JSON;
+            } else if (MESSAGE_PACK.getName().equals(handshake.protocol) && MESSAGE_PACK.getVersion() == handshake.version) {
+                selected = MESSAGE_PACK;
+            }
+
+            if (selected == null) {
+                String error = String.format("The protocol '%s' version %d is not supported.", handshake.protocol, handshake.version);
+                String response = HandshakeProtocol.createHandshakeResponseMessage(new HandshakeResponseMessage(error));
+                outbound.execute(() -> deliver(response));
+                throw new HubException(error);
+            }
+
+            String response = HandshakeProtocol.createHandshakeResponseMessage(new HandshakeResponseMessage());
+            outbound.execute(() -> deliver(response));
+            protocol = selected;
+        }
+
+        private void process(HubMessage[] messages) {
+            for (HubMessage message : messages) {
+                messagesReceived.increment();
+                switch (message.getMessageType()) {
+                    case INVOCATION:
+                        invoke((InvocationMessage) message);
+                        break;
+                    case PING:
+                        break;
+                    case CLOSE:
+                        close(null);
+                        return;
+                    default:
+                        throw new UnsupportedOperationException(
+                                String.format("The loopback hub doesn't support %s messages.", message.getMessageType()));
+                }
+            }
+        }
+
+        private void invoke(InvocationMessage invocation) {
+            Object result = null;
+            String error = null;
+            try {
+                result = methods.get(invocation.getTarget()).handler.apply(invocation.getArguments());
+            } catch (RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            }
+            if (invocation.getInvocationId() != null) {
+                send(new Outgoing(new CompletionMessage(invocation.getInvocationId(), result, error)));
+            }
+        }
+
+        private Method method(String name) throws HubException {
+            Method method = methods.get(name);
+            if (method == null) {
+                throw new HubException(String.format("Unknown hub method '%s'.", name));
+            }
+            return method;
+        }
+
+        private void send(Outgoing message) {
+            if (closing.get()) {
+                return;
+            }
+            messagesSent.increment();
+            outbound.execute(() -> {
+                if (protocol.getTransferFormat() == TransferFormat.TEXT) {
+                    deliver(message.text());
+                } else {
+                    try {
+                        transport.onReceive(ByteBuffer.wrap(message.binary()));
+                    } catch (Exception e) {
+                        // The connection reports its own errors, a server wouldn't hear about them either.
+                    }
+                }
+            });
+        }
+
+        private void deliver(String message) {
+            try {
+                transport.onReceive(message);
+            } catch (Exception e) {
+                // The connection reports its own errors, a server wouldn't hear about them either.
+            }
+        }
+    }
+
+    /**
+     * Runs tasks one after the other on the hub's executor.
+     */
+    private final class Lane implements Runnable {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+
+        synchronized void execute(Runnable task) {
+            tasks.add(task);
+            if (!scheduled) {
+                scheduled = true;
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // The hub is closed.
+                    scheduled = false;
+                    tasks.clear();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                for (int i = 0; i < MAX_TASKS_PER_RUN; i++) {
+                    Runnable task;
+                    synchronized (this) {
+                        task = tasks.poll();
+                        if (task == null) {
+                            scheduled = false;
+                            return;
+                        }
+                    }
+                    task.run();
+                }
+
+                try {
+                    executor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // The hub is closing, the rest runs on this thread.
+                }
+            }
+        }
+    }
+
+    private static final class Method {
+        final Function<Object[], Object> handler;
+        final List<Class<?>> parameterTypes;
+        final TypeAdapter<?>[] parameterAdapters;
+
+        Method(Function<Object[], Object> handler, Class<?>... parameterTypes) {
+            this.handler = handler;
+            this.parameterTypes = Collections.unmodifiableList(Arrays.asList(parameterTypes));
+            this.parameterAdapters = TypeAdapterResolver.resolve(this.parameterTypes);
+        }
+    }
+
+    /**
+     * A message to the clients, serialized at most once per transfer format however many connections get it.
+     */
+    private static final class Outgoing {
+        private final HubMessage message;
+        private volatile String text;
+        private volatile byte[] binary;
+
+        Outgoing(HubMessage message) {
+            this.message = message;
+        }
+
+        String text() {
+            String t = text;
+            if (t == null) {
+                t = JSON.writeMessage(message);
+                text = t;
+            }
+            return t;
+        }
+
+        byte[] binary() {
+            byte[] b = binary;
+            if (b == null) {
+                ByteBuffer buffer = MESSAGE_PACK.writeMessageBytes(message);
+                b = new byte[buffer.remaining()];
+                buffer.get(b);
+                binary = b;
+            }
+            return b;
+        }
+    }
+}
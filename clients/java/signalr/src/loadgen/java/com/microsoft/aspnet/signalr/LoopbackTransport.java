@@ -0,0 +1,99 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Connects a {@link HubConnection} to a {@link LoopbackHub} in the same process, without sockets.
+ *
+ * <p>Messages are handed over in memory and delivered in order on the hub's threads, so sending
+ * never calls back into the connection on the sending thread, as with a real transport.</p>
+ */
+class LoopbackTransport implements Transport {
+    private final LoopbackHub hub;
+    private OnReceiveCallBack onReceiveCallBack;
+    private Consumer<String> onClose;
+    private volatile LoopbackHub.Connection connection;
+
+    LoopbackTransport(LoopbackHub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public CompletableFuture<Void> start(String url) {
+        connection = hub.connect(this);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        LoopbackHub.Connection c = connection;
+        if (c == null) {
+            return notRunning();
+        }
+        c.receive(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        LoopbackHub.Connection c = connection;
+        if (c == null) {
+            return notRunning();
+        }
+        // The caller may reuse the buffer once the send completed.
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        c.receive(bytes);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void setOnReceive(OnReceiveCallBack callback) {
+        this.onReceiveCallBack = callback;
+    }
+
+    @Override
+    public void onReceive(String message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void onReceive(ByteBuffer message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void setOnClose(Consumer<String> onCloseCallback) {
+        this.onClose = onCloseCallback;
+    }
+
+    @Override
+    public CompletableFuture<Void> stop() {
+        LoopbackHub.Connection c = connection;
+        if (c == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return c.close(null);
+    }
+
+    /**
+     * Called by the hub once the connection is closed and every message before the close was delivered.
+     */
+    void closed(String errorMessage) {
+        connection = null;
+        if (onClose != null) {
+            onClose.accept(errorMessage);
+        }
+    }
+
+    private static CompletableFuture<Void> notRunning() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("The loopback transport is not running."));
+        return future;
+    }
+}
@@ -0,0 +1,208 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Writes log lines to the console from a daemon thread, so that logging doesn't wait for the console.
+ *
+ * <p>Lines are queued in a fixed size ring buffer that any thread can add to without locks. The
+ * writer thread formats them, timestamps included, and prints them. When the buffer is full lines
+ * are dropped instead of blocking the caller, the writer reports how many once it catches up.</p>
+ */
+final class AsyncLogWriter {
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mmZ")
+            .withZone(ZoneId.systemDefault());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHUTDOWN_FLUSH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int mask;
+    // A slot can be written when its sequence equals the position being claimed, and read when it is one more.
+    private final AtomicLongArray sequences;
+    private final long[] timestamps;
+    private final LogLevel[] levels;
+    private final String[] messages;
+    private final Object[][] arguments;
+    private final AtomicLong tail = new AtomicLong();
+    // Only the writer thread advances it, it is volatile so that flush can watch it.
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private final Supplier<PrintStream> out;
+    private final Supplier<PrintStream> err;
+    private final Thread thread;
+    private volatile boolean waiting;
+
+    AsyncLogWriter(int capacity, Supplier<PrintStream> out, Supplier<PrintStream> err) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        }
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.timestamps = new long[capacity];
+        this.levels = new LogLevel[capacity];
+        this.messages = new String[capacity];
+        this.arguments = new Object[capacity][];
+        this.out = out;
+        this.err = err;
+        this.thread = new Thread(this::run, "signalr-logger");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public static AsyncLogWriter shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Queues a line without blocking.
+     *
+     * @param arguments The arguments of a format string, or null if the message is written as is. They are
+     *                  formatted on the writer thread, so they shouldn't change after they're logged.
+     * @return False if the buffer was full and the line was dropped.
+     */
+    public boolean write(LogLevel logLevel, String message, Object[] arguments) {
+        long timestamp = System.currentTimeMillis();
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    timestamps[index] = timestamp;
+                    levels[index] = logLevel;
+                    messages[index] = message;
+                    this.arguments[index] = arguments;
+                    sequences.set(index, position + 1);
+                    break;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                // The writer hasn't read the line a full lap ago yet.
+                dropped.increment();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the lines queued before the call are written, or the timeout elapses.
+     *
+     * @return True if they were written.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (head < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    private void run() {
+        while (true) {
+            if (writeNext()) {
+                continue;
+            }
+            reportDropped();
+
+            waiting = true;
+            // A line queued before the flag was set didn't unpark this thread, look again before parking.
+            if (!isReadable()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    private boolean isReadable() {
+        return sequences.get((int) head & mask) == head + 1;
+    }
+
+    private boolean writeNext() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return false;
+        }
+
+        long timestamp = timestamps[index];
+        LogLevel logLevel = levels[index];
+        String message = messages[index];
+        Object[] args = arguments[index];
+        messages[index] = null;
+        arguments[index] = null;
+        sequences.set(index, position + mask + 1);
+
+        print(timestamp, logLevel, message, args);
+        head = position + 1;
+        return true;
+    }
+
+    private void reportDropped() {
+        long count = dropped.sumThenReset();
+        if (count > 0) {
+            print(System.currentTimeMillis(), LogLevel.Warning, "%d log message(s) were dropped because the log buffer was full.",
+                    new Object[] { count });
+        }
+    }
+
+    private void print(long timestamp, LogLevel logLevel, String message, Object[] args) {
+        String text;
+        try {
+            text = args == null ? message : String.format(message, args);
+        } catch (RuntimeException e) {
+            // A bad format string mustn't stop the writer, the raw message is more useful than nothing.
+            text = message;
+        }
+        String line = String.format("[%s] [%s] %s", TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(timestamp)), logLevel, text);
+        switch (logLevel) {
+            case Warning:
+            case Error:
+            case Critical:
+                err.get().println(line);
+                break;
+            default:
+                out.get().println(line);
+                break;
+        }
+    }
+
+    private static final class Holder {
+        static final AsyncLogWriter INSTANCE = create();
+
+        private static AsyncLogWriter create() {
+            AsyncLogWriter writer = new AsyncLogWriter(DEFAULT_CAPACITY, () -> System.out, () -> System.err);
+            // The writer is a daemon thread, give it a moment to write what was logged before the JVM exits.
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> writer.flush(SHUTDOWN_FLUSH_NANOS, TimeUnit.NANOSECONDS), "signalr-logger-flush"));
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the delay before each attempt is picked at random between zero
+ * and a ceiling that doubles with every failed attempt, up to a maximum. Spreading the attempts over the
+ * whole range keeps many clients that lost their connection at the same time from reconnecting in lockstep.
+ */
+public final class BackoffReconnectPolicy implements ReconnectPolicy {
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final int maxRetries;
+
+    /**
+     * Uses a base delay of one second, a maximum delay of 30 seconds and gives up after 10 attempts.
+     */
+    public BackoffReconnectPolicy() {
+        this(Duration.ofSeconds(1), Duration.ofSeconds(30), 10);
+    }
+
+    /**
+     * @param baseDelay  The ceiling of the delay before the first attempt.
+     * @param maxDelay   The largest ceiling.
+     * @param maxRetries The number of attempts after which the connection is closed.
+     */
+    public BackoffReconnectPolicy(Duration baseDelay, Duration maxDelay, int maxRetries) {
+        if (baseDelay == null || baseDelay.isNegative() || maxDelay == null || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("The maximum delay must not be shorter than the base delay.");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("The number of retries must not be negative.");
+        }
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public Duration nextRetryDelay(int previousRetryCount, Duration elapsedTime) {
+        if (previousRetryCount >= maxRetries) {
+            return null;
+        }
+
+        long ceiling = maxDelayNanos;
+        // Doubling more than 62 times overflows, the maximum is reached long before that.
+        if (previousRetryCount < 62 && baseDelayNanos <= maxDelayNanos >> previousRetryCount) {
+            ceiling = baseDelayNanos << previousRetryCount;
+        }
+        return Duration.ofNanos(ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+}
@@ -0,0 +1,22 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+class CancelInvocationMessage extends HubMessage {
+    private int type = HubMessageType.CANCEL_INVOCATION.value;
+    private String invocationId;
+
+    public CancelInvocationMessage(String invocationId) {
+        this.invocationId = invocationId;
+    }
+
+    public String getInvocationId() {
+        return invocationId;
+    }
+
+    @Override
+    public HubMessageType getMessageType() {
+        return HubMessageType.CANCEL_INVOCATION;
+    }
+}
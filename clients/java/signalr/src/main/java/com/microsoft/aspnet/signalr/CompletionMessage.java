@@ -8,12 +8,22 @@ class CompletionMessage extends HubMessage {
     private String invocationId;
     private Object result;
     private String error;
+    private transient int id;
 
     public CompletionMessage(String invocationId, Object result, String error) {
+        this(PendingInvocationTable.parseId(invocationId), invocationId, result, error);
+    }
+
+    CompletionMessage(int id, Object result, String error) {
+        this(id, null, result, error);
+    }
+
+    private CompletionMessage(int id, String invocationId, Object result, String error) {
         if (error != null && result != null)
         {
             throw new IllegalArgumentException("Expected either 'error' or 'result' to be provided, but not both");
         }
+        this.id = id;
         this.invocationId = invocationId;
         this.result = result;
         this.error = error;
@@ -28,9 +38,20 @@ class CompletionMessage extends HubMessage {
     }
 
     public String getInvocationId() {
+        if (invocationId == null && id != PendingInvocationTable.NO_ID) {
+            // Completions for our own invocations are parsed straight to an int, only format it when asked.
+            invocationId = Integer.toString(id);
+        }
         return invocationId;
     }
 
+    /**
+     * @return The invocation id as an int, or {@link PendingInvocationTable#NO_ID} if it isn't one of ours.
+     */
+    public int getId() {
+        return id;
+    }
+
     @Override
     public HubMessageType getMessageType() {
         return HubMessageType.values()[type - 1];
@@ -3,53 +3,39 @@
 
 package com.microsoft.aspnet.signalr;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
+/**
+ * Logs to the console. Lines are written by a background thread shared by all console loggers, so
+ * logging never waits for the console. Arguments are formatted on that thread too.
+ */
 public class ConsoleLogger implements Logger {
-    private LogLevel logLevel;
-    private DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mmZ");
+    private final LogLevel logLevel;
+    private final AsyncLogWriter writer;
 
     public ConsoleLogger(LogLevel logLevel) {
-            this.logLevel = logLevel;
+        this(logLevel, AsyncLogWriter.shared());
+    }
+
+    ConsoleLogger(LogLevel logLevel, AsyncLogWriter writer) {
+        this.logLevel = logLevel;
+        this.writer = writer;
     }
 
     @Override
     public void log(LogLevel logLevel, String message) {
-        if (logLevel.value >= this.logLevel.value) {
-            String timeStamp = dateFormat.format(new Date());
-            message = String.format("[%s] [%s] %s", timeStamp, logLevel, message);
-            switch (logLevel) {
-                case Debug:
-                case Information:
-                    System.out.println(message);
-                    break;
-                case Warning:
-                case Error:
-                case Critical:
-                    System.err.println(message);
-                    break;
-            }
+        if (isEnabled(logLevel)) {
+            writer.write(logLevel, message, null);
         }
     }
 
     @Override
     public void log(LogLevel logLevel, String formattedMessage, Object... args) {
-        if (logLevel.value >= this.logLevel.value) {
-            String timeStamp = dateFormat.format(new Date());
-            formattedMessage = String.format("[%s] [%s] %s%n", timeStamp, logLevel, formattedMessage);
-            switch (logLevel) {
-                case Debug:
-                case Information:
-                    System.out.printf(formattedMessage, args);
-                    break;
-                case Warning:
-                case Error:
-                case Critical:
-                    System.err.printf(formattedMessage, args);
-                    break;
-            }
+        if (isEnabled(logLevel)) {
+            writer.write(logLevel, formattedMessage, args);
         }
     }
+
+    @Override
+    public boolean isEnabled(LogLevel logLevel) {
+        return logLevel != LogLevel.None && logLevel.value >= this.logLevel.value;
+    }
 }
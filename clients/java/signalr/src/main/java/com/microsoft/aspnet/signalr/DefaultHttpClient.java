@@ -4,12 +4,15 @@
 package com.microsoft.aspnet.signalr;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -21,14 +24,34 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
 
 class DefaultHttpClient extends HttpClient {
     private OkHttpClient client;
+    // Shares the pool and threads of client, only the read timeout differs.
+    private volatile OkHttpClient longRunningClient;
     private Logger logger;
+    private long sendHighWatermark;
+    private SendBackpressurePolicy sendBackpressurePolicy;
 
     public DefaultHttpClient(Logger logger) {
+        this(logger, SendQueue.DEFAULT_HIGH_WATERMARK, SendBackpressurePolicy.AWAIT);
+    }
+
+    public DefaultHttpClient(Logger logger, long sendHighWatermark, SendBackpressurePolicy sendBackpressurePolicy) {
+        this(logger, sendHighWatermark, sendBackpressurePolicy, null);
+    }
+
+    /**
+     * @param runtime The runtime to share with other connections, or null to use a private one.
+     */
+    public DefaultHttpClient(Logger logger, long sendHighWatermark, SendBackpressurePolicy sendBackpressurePolicy,
+                             TransportRuntime runtime) {
         this.logger = logger;
-        this.client = new OkHttpClient.Builder().cookieJar(new CookieJar() {
+        this.sendHighWatermark = sendHighWatermark;
+        this.sendBackpressurePolicy = sendBackpressurePolicy;
+        // The cookies belong to this connection even when the runtime is shared.
+        CookieJar cookieJar = new CookieJar() {
             private List<Cookie> cookieList = new ArrayList<>();
             private Lock cookieLock = new ReentrantLock();
 
@@ -76,7 +99,8 @@ class DefaultHttpClient extends HttpClient {
                     cookieLock.unlock();
                 }
             }
-        }).build();
+        };
+        this.client = runtime != null ? runtime.newClient(cookieJar) : new OkHttpClient.Builder().cookieJar(cookieJar).build();
     }
 
     @Override
@@ -85,7 +109,8 @@ class DefaultHttpClient extends HttpClient {
         if (httpRequest.getMethod() == "GET") {
             requestBuilder.get();
         } else if (httpRequest.getMethod() == "POST") {
-            RequestBody body = RequestBody.create(null, new byte[] {});
+            byte[] content = httpRequest.getBody() != null ? httpRequest.getBody() : new byte[] {};
+            RequestBody body = RequestBody.create(null, content);
             requestBuilder.post(body);
         } else if (httpRequest.getMethod() == "DELETE") {
             requestBuilder.delete();
@@ -101,26 +126,92 @@ class DefaultHttpClient extends HttpClient {
 
         CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
 
-        client.newCall(request).enqueue(new Callback() {
+        Call call = clientFor(httpRequest.getReadTimeout()).newCall(request);
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                responseFuture.completeExceptionally(e.getCause());
+                responseFuture.completeExceptionally(e.getCause() != null ? e.getCause() : e);
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 try (ResponseBody body = response.body()) {
-                    HttpResponse httpResponse = new HttpResponse(response.code(), response.message(), body.string());
+                    HttpResponse httpResponse = new HttpResponse(response.code(), response.message(), body.bytes());
                     responseFuture.complete(httpResponse);
                 }
             }
         });
+        // Lets a transport abandon a request that the server holds open.
+        responseFuture.whenComplete((response, error) -> {
+            if (responseFuture.isCancelled()) {
+                call.cancel();
+            }
+        });
 
         return responseFuture;
     }
 
+    @Override
+    public CompletableFuture<Void> stream(String url, HttpRequest options, Consumer<HttpResponse> onResponse,
+                                          Consumer<ByteBuffer> onData) {
+        Request.Builder requestBuilder = new Request.Builder().url(url).get();
+        options.getHeaders().forEach((key, value) -> {
+            requestBuilder.addHeader(key, value);
+        });
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        Call call = clientFor(options.getReadTimeout()).newCall(requestBuilder.build());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                completion.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    onResponse.accept(new HttpResponse(response.code(), response.message()));
+                    if (!response.isSuccessful()) {
+                        completion.complete(null);
+                        return;
+                    }
+
+                    // Reads whatever has arrived, so events are handled as soon as the server flushes them.
+                    BufferedSource source = body.source();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while (!completion.isDone() && (read = source.read(buffer)) != -1) {
+                        onData.accept(ByteBuffer.wrap(buffer, 0, read));
+                    }
+                    completion.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    completion.completeExceptionally(e);
+                }
+            }
+        });
+        completion.whenComplete((result, error) -> {
+            if (completion.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        return completion;
+    }
+
+    private OkHttpClient clientFor(long readTimeoutMillis) {
+        if (readTimeoutMillis <= 0) {
+            return client;
+        }
+        OkHttpClient longRunning = longRunningClient;
+        if (longRunning == null || longRunning.readTimeoutMillis() != readTimeoutMillis) {
+            longRunning = client.newBuilder().readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS).build();
+            longRunningClient = longRunning;
+        }
+        return longRunning;
+    }
+
     @Override
     public WebSocketWrapper createWebSocket(String url, Map<String, String> headers) {
-        return new OkHttpWebSocketWrapper(url, headers, client, logger);
+        return new OkHttpWebSocketWrapper(url, headers, client, logger, sendHighWatermark, sendBackpressurePolicy);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Factory methods for executors that can be passed to {@link HubConnectionBuilder#withHandlerExecutor}.
+ */
+public final class HandlerExecutors {
+    private HandlerExecutors() {
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * Virtual threads are only available on Java 21 and later, the client itself still targets Java 8
+     * so the executor is looked up at runtime.
+     *
+     * @return A new executor, the caller is responsible for shutting it down.
+     * @throws UnsupportedOperationException If the running JVM does not support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this Java runtime.", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+/**
+ * What to do with an incoming invocation when the handler queue it belongs to is full.
+ */
+public enum HandlerOverflowPolicy {
+    /**
+     * Wait for room in the queue. This stops reading from the connection until handlers catch up.
+     */
+    BLOCK,
+    /**
+     * Discard the oldest queued invocation to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Reject the invocation and stop the connection with an error.
+     */
+    FAIL
+}
@@ -17,4 +17,13 @@ class HandshakeProtocol {
     public static HandshakeResponseMessage parseHandshakeResponse(String message) {
         return gson.fromJson(message, HandshakeResponseMessage.class);
     }
+
+    // The server's side of the handshake, for the stand-in hub of the load generator.
+    public static HandshakeRequestMessage parseHandshakeRequest(String message) {
+        return gson.fromJson(message, HandshakeRequestMessage.class);
+    }
+
+    public static String createHandshakeResponseMessage(HandshakeResponseMessage message) {
+        return gson.toJson(message) + RECORD_SEPARATOR;
+    }
 }
@@ -0,0 +1,231 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel for large numbers of timeouts that are usually cancelled before they expire.
+ *
+ * <p>Adding or cancelling a timeout only appends to a concurrent queue. The wheel itself is only
+ * touched by the ticking thread, which moves new timeouts into the bucket of their deadline, unlinks
+ * cancelled ones and expires the timeouts of the buckets it passes. Timeouts expire up to one tick
+ * late. The wheel only ticks while it has timeouts, on the client's shared scheduler thread.</p>
+ */
+class HashedWheelTimer {
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final ScheduledExecutorService scheduler;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+
+    // Only used by the ticking thread.
+    private long tick;
+    private ScheduledFuture<?> ticker;
+
+    HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, ScheduledExecutorService scheduler) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("The wheel size must be a power of two.");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.scheduler = scheduler;
+    }
+
+    public static HashedWheelTimer shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Schedules a task to run once the delay has passed. The task runs on the timer's thread and must be short.
+     *
+     * @return A handle that can cancel the timeout.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+        added.add(timeout);
+        if (active.incrementAndGet() == 1) {
+            startTicking();
+        }
+        return timeout;
+    }
+
+    /**
+     * @return The number of timeouts that have neither expired nor been cancelled.
+     */
+    public int pendingTimeouts() {
+        return active.get();
+    }
+
+    private synchronized void startTicking() {
+        if (ticker == null) {
+            ticker = scheduler.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void stopTickingIfIdle() {
+        if (active.get() == 0 && ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    private void tick() {
+        try {
+            unlinkCancelled();
+            transferAdded();
+
+            long now = System.nanoTime();
+            long currentTick = (now - startTime) / tickNanos;
+            // After a stall every bucket has to be looked at once, but not more than that.
+            long lastTick = Math.min(currentTick, tick + mask);
+            for (; tick <= lastTick; tick++) {
+                wheel[(int) (tick & mask)].expire(now);
+            }
+            tick = Math.max(tick, currentTick + 1);
+        } finally {
+            stopTickingIfIdle();
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() != INIT) {
+                continue;
+            }
+            // Round up so the deadline has passed by the time its bucket is visited.
+            long deadlineTick = (timeout.deadline - startTime + tickNanos - 1) / tickNanos;
+            timeout.bucket = wheel[(int) (Math.max(deadlineTick, tick) & mask)];
+            timeout.bucket.add(timeout);
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A handle for a scheduled task.
+     */
+    static final class Timeout {
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(INIT);
+
+        // Only used by the ticking thread.
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the task will not run, false if it has already run or was cancelled before.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            timer.active.decrementAndGet();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(INIT, EXPIRED)) {
+                return;
+            }
+            timer.active.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // A failing task must not stop the other timeouts from expiring.
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of timeouts so that cancelled timeouts can be unlinked in constant time.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else if (head == timeout) {
+                head = timeout.next;
+            } else {
+                // Already unlinked.
+                return;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expire(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadline - now <= 0 || timeout.state.get() != INIT) {
+                    remove(timeout);
+                    timeout.expire();
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private static final class Holder {
+        static final HashedWheelTimer INSTANCE = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512, SharedScheduler.get());
+    }
+}
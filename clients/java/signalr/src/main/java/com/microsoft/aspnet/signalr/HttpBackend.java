@@ -0,0 +1,20 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+/**
+ * The library that makes the HTTP requests and WebSocket connections of a {@link HubConnection}.
+ */
+public enum HttpBackend {
+    /**
+     * OkHttp, available on every supported Java version.
+     */
+    OKHTTP,
+    /**
+     * The {@code java.net.http} client of Java 11 and later. It negotiates HTTP/2 when the server
+     * supports it and reads from WebSockets only as fast as the connection processes the messages.
+     * Connections that use it fail to build on older Java versions.
+     */
+    JAVA_NET_HTTP
+}
@@ -3,14 +3,19 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 class HttpRequest {
     private String method;
     private String url;
     private Map<String, String> headers = new HashMap<>();
+    private byte[] body;
+    private long readTimeoutMillis;
 
     public void setMethod(String method) {
         this.method = method;
@@ -41,12 +46,32 @@ class HttpRequest {
     public Map<String, String> getHeaders() {
         return headers;
     }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Sets how long the response may take, for requests that the server holds open. Zero uses the client's default.
+     */
+    public void setReadTimeout(long readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public long getReadTimeout() {
+        return readTimeoutMillis;
+    }
 }
 
 class HttpResponse {
     private int statusCode;
     private String statusText;
     private String content = null;
+    private byte[] rawContent = null;
 
     public HttpResponse(int statusCode) {
         this.statusCode = statusCode;
@@ -63,10 +88,29 @@ class HttpResponse {
         this.content = content;
     }
 
+    public HttpResponse(int statusCode, String statusText, byte[] rawContent) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.rawContent = rawContent;
+    }
+
     public String getContent() {
+        if (content == null && rawContent != null) {
+            content = new String(rawContent, StandardCharsets.UTF_8);
+        }
         return content;
     }
 
+    /**
+     * @return The content as it was received, for binary payloads.
+     */
+    public byte[] getRawContent() {
+        if (rawContent == null && content != null) {
+            rawContent = content.getBytes(StandardCharsets.UTF_8);
+        }
+        return rawContent;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
@@ -77,6 +121,35 @@ class HttpResponse {
 }
 
 abstract class HttpClient {
+    // Compiled for Java 11 only, the multi-release jar has it in META-INF/versions/11.
+    private static final String JAVA_NET_HTTP_CLIENT = "com.microsoft.aspnet.signalr.JavaNetHttpClient";
+
+    /**
+     * Creates a client on the backend.
+     *
+     * @param runtime The runtime to share with other connections, or null to use a private one.
+     */
+    static HttpClient create(HttpBackend backend, Logger logger, long sendHighWatermark,
+                             SendBackpressurePolicy sendBackpressurePolicy, TransportRuntime runtime) {
+        if (backend == HttpBackend.OKHTTP) {
+            return new DefaultHttpClient(logger, sendHighWatermark, sendBackpressurePolicy, runtime);
+        }
+
+        Class<?> clientClass;
+        try {
+            clientClass = Class.forName(JAVA_NET_HTTP_CLIENT);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The java.net.http backend requires Java 11 or later.", e);
+        }
+        try {
+            return (HttpClient) clientClass
+                    .getDeclaredConstructor(Logger.class, long.class, SendBackpressurePolicy.class, TransportRuntime.class)
+                    .newInstance(logger, sendHighWatermark, sendBackpressurePolicy, runtime);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create the java.net.http backend.", e);
+        }
+    }
+
     public CompletableFuture<HttpResponse> get(String url) {
         HttpRequest request = new HttpRequest();
         request.setUrl(url);
@@ -118,5 +191,26 @@ abstract class HttpClient {
 
     public abstract CompletableFuture<HttpResponse> send(HttpRequest request);
 
+    /**
+     * Sends a GET request whose response body is read as it arrives, for responses that stay open.
+     * onResponse gets the status, without content, once the headers arrived. onData then gets the body
+     * in chunks on the thread that reads them, a chunk is only valid during the call. This default
+     * reads the whole response first.
+     *
+     * @return A future that completes when the body ended, cancelling it closes the response.
+     */
+    public CompletableFuture<Void> stream(String url, HttpRequest options, Consumer<HttpResponse> onResponse,
+                                          Consumer<ByteBuffer> onData) {
+        options.setUrl(url);
+        options.setMethod("GET");
+        return this.send(options).thenAccept((response) -> {
+            onResponse.accept(new HttpResponse(response.getStatusCode(), response.getStatusText()));
+            byte[] content = response.getRawContent();
+            if (content != null && content.length > 0) {
+                onData.accept(ByteBuffer.wrap(content));
+            }
+        });
+    }
+
     public abstract WebSocketWrapper createWebSocket(String url, Map<String, String> headers);
 }
\ No newline at end of file
@@ -3,7 +3,9 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 public class HttpConnectionOptions {
@@ -13,6 +15,22 @@ public class HttpConnectionOptions {
     private boolean skipNegotiate;
     private Supplier<CompletableFuture<String>> accessTokenProvider;
     private HttpClient client;
+    private HubProtocol hubProtocol;
+    private Executor handlerExecutor;
+    private int handlerQueueCapacity = InvocationDispatcher.DEFAULT_QUEUE_CAPACITY;
+    private HandlerOverflowPolicy handlerOverflowPolicy = HandlerOverflowPolicy.BLOCK;
+    private int batchMaxBytes;
+    private Duration batchMaxDelay = Duration.ZERO;
+    private long sendHighWatermark = SendQueue.DEFAULT_HIGH_WATERMARK;
+    private SendBackpressurePolicy sendBackpressurePolicy = SendBackpressurePolicy.AWAIT;
+    private Duration invocationTimeout = Duration.ZERO;
+    private int streamBufferCapacity = StreamInvocationRequest.DEFAULT_BUFFER_CAPACITY;
+    private ReconnectPolicy reconnectPolicy;
+    private Duration keepAliveInterval = Duration.ofSeconds(15);
+    private Duration serverTimeout = Duration.ofSeconds(30);
+    private TransportRuntime transportRuntime;
+    private HttpBackend httpBackend = HttpBackend.OKHTTP;
+    private HubConnectionMetrics metrics = NullHubConnectionMetrics.INSTANCE;
 
     public HttpConnectionOptions() {}
 
@@ -68,6 +86,265 @@ public class HttpConnectionOptions {
         return accessTokenProvider;
     }
 
+    public void setHubProtocol(HubProtocol hubProtocol) {
+        this.hubProtocol = hubProtocol;
+    }
+
+    public HubProtocol getHubProtocol() {
+        return hubProtocol;
+    }
+
+    /**
+     * Sets the executor used to run the handlers registered with {@link HubConnection#on}.
+     * Handlers for the same hub method still run one at a time in the order they were received,
+     * handlers for different hub methods can run in parallel.
+     * When no executor is set handlers run on the thread that received the message.
+     *
+     * @param handlerExecutor The executor, or null to run handlers inline.
+     */
+    public void setHandlerExecutor(Executor handlerExecutor) {
+        this.handlerExecutor = handlerExecutor;
+    }
+
+    public Executor getHandlerExecutor() {
+        return handlerExecutor;
+    }
+
+    /**
+     * Sets how many invocations can wait for a handler before the overflow policy applies.
+     * Hub methods are spread over a fixed number of queues, the capacity applies to each queue.
+     * Only used when a handler executor is set.
+     *
+     * @param handlerQueueCapacity The capacity of each handler queue.
+     */
+    public void setHandlerQueueCapacity(int handlerQueueCapacity) {
+        if (handlerQueueCapacity < 1) {
+            throw new IllegalArgumentException("The handler queue capacity must be at least 1.");
+        }
+        this.handlerQueueCapacity = handlerQueueCapacity;
+    }
+
+    public int getHandlerQueueCapacity() {
+        return handlerQueueCapacity;
+    }
+
+    /**
+     * Sets what happens to an incoming invocation when its handler queue is full. Defaults to
+     * {@link HandlerOverflowPolicy#BLOCK}.
+     *
+     * @param handlerOverflowPolicy The overflow policy.
+     */
+    public void setHandlerOverflowPolicy(HandlerOverflowPolicy handlerOverflowPolicy) {
+        if (handlerOverflowPolicy == null) {
+            throw new IllegalArgumentException("A valid overflow policy is required.");
+        }
+        this.handlerOverflowPolicy = handlerOverflowPolicy;
+    }
+
+    public HandlerOverflowPolicy getHandlerOverflowPolicy() {
+        return handlerOverflowPolicy;
+    }
+
+    /**
+     * Enables outbound batching: hub messages are gathered and sent together in one frame once the
+     * batch reaches this size or its delay expires. Sizes of text protocol messages are counted in characters.
+     *
+     * @param batchMaxBytes The largest batch to send, or 0 to send every message on its own.
+     */
+    public void setBatchMaxBytes(int batchMaxBytes) {
+        if (batchMaxBytes < 0) {
+            throw new IllegalArgumentException("The batch size must not be negative.");
+        }
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public int getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    /**
+     * Sets how long a message can wait for more messages to join its batch. With a delay of zero the
+     * batch is sent as soon as the client's timer thread is idle.
+     *
+     * @param batchMaxDelay The longest time a message is held back.
+     */
+    public void setBatchMaxDelay(Duration batchMaxDelay) {
+        if (batchMaxDelay == null || batchMaxDelay.isNegative()) {
+            throw new IllegalArgumentException("A valid batch delay is required.");
+        }
+        this.batchMaxDelay = batchMaxDelay;
+    }
+
+    public Duration getBatchMaxDelay() {
+        return batchMaxDelay;
+    }
+
+    /**
+     * Sets how many bytes may wait in the WebSocket's send queue before the backpressure policy applies.
+     * OkHttp closes the connection when its queue exceeds 16 MiB, the default is 8 MiB.
+     *
+     * @param sendHighWatermark The high watermark in bytes.
+     */
+    public void setSendHighWatermark(long sendHighWatermark) {
+        if (sendHighWatermark < 1) {
+            throw new IllegalArgumentException("The send high watermark must be at least 1 byte.");
+        }
+        this.sendHighWatermark = sendHighWatermark;
+    }
+
+    public long getSendHighWatermark() {
+        return sendHighWatermark;
+    }
+
+    /**
+     * Sets what happens to an outgoing message while the send queue is above its high watermark.
+     * Defaults to {@link SendBackpressurePolicy#AWAIT}.
+     *
+     * @param sendBackpressurePolicy The backpressure policy.
+     */
+    public void setSendBackpressurePolicy(SendBackpressurePolicy sendBackpressurePolicy) {
+        if (sendBackpressurePolicy == null) {
+            throw new IllegalArgumentException("A valid backpressure policy is required.");
+        }
+        this.sendBackpressurePolicy = sendBackpressurePolicy;
+    }
+
+    public SendBackpressurePolicy getSendBackpressurePolicy() {
+        return sendBackpressurePolicy;
+    }
+
+    /**
+     * Sets how long {@link HubConnection#invoke(Class, String, Object...)} waits for a result before the
+     * invocation fails with a {@link java.util.concurrent.TimeoutException}. Defaults to zero, which waits
+     * until the connection stops.
+     *
+     * @param invocationTimeout The default invocation timeout.
+     */
+    public void setInvocationTimeout(Duration invocationTimeout) {
+        if (invocationTimeout == null || invocationTimeout.isNegative()) {
+            throw new IllegalArgumentException("A valid invocation timeout is required.");
+        }
+        this.invocationTimeout = invocationTimeout;
+    }
+
+    public Duration getInvocationTimeout() {
+        return invocationTimeout;
+    }
+
+    /**
+     * Sets how many items of a stream from {@link HubConnection#stream} are buffered until the subscriber
+     * requests them. When a stream's buffer is full the connection stops reading until there is room.
+     *
+     * @param streamBufferCapacity The capacity of each stream's buffer.
+     */
+    public void setStreamBufferCapacity(int streamBufferCapacity) {
+        if (streamBufferCapacity < 1) {
+            throw new IllegalArgumentException("The stream buffer capacity must be at least 1.");
+        }
+        this.streamBufferCapacity = streamBufferCapacity;
+    }
+
+    public int getStreamBufferCapacity() {
+        return streamBufferCapacity;
+    }
+
+    /**
+     * Sets the policy that decides whether and when a lost connection reconnects. Defaults to null,
+     * which never reconnects.
+     *
+     * @param reconnectPolicy The reconnect policy.
+     */
+    public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    public ReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    /**
+     * Sets how long the client may send nothing before it sends a ping, so that the server and any
+     * proxies in between don't close an idle connection. Defaults to 15 seconds, zero never sends pings.
+     *
+     * @param keepAliveInterval The keep-alive interval.
+     */
+    public void setKeepAliveInterval(Duration keepAliveInterval) {
+        if (keepAliveInterval == null || keepAliveInterval.isNegative()) {
+            throw new IllegalArgumentException("A valid keep-alive interval is required.");
+        }
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    public Duration getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+
+    /**
+     * Sets how long the client waits for any message from the server before it closes the connection.
+     * Should be at least twice the server's keep-alive interval. Defaults to 30 seconds, zero never
+     * times out.
+     *
+     * @param serverTimeout The server timeout.
+     */
+    public void setServerTimeout(Duration serverTimeout) {
+        if (serverTimeout == null || serverTimeout.isNegative()) {
+            throw new IllegalArgumentException("A valid server timeout is required.");
+        }
+        this.serverTimeout = serverTimeout;
+    }
+
+    public Duration getServerTimeout() {
+        return serverTimeout;
+    }
+
+    /**
+     * Runs the connection on a runtime that other connections share, see {@link TransportRuntime}.
+     * Defaults to null, which gives the connection a runtime of its own.
+     *
+     * @param transportRuntime The shared runtime.
+     */
+    public void setTransportRuntime(TransportRuntime transportRuntime) {
+        this.transportRuntime = transportRuntime;
+    }
+
+    public TransportRuntime getTransportRuntime() {
+        return transportRuntime;
+    }
+
+    /**
+     * Sets the library that makes the connection's HTTP requests and WebSockets. Defaults to
+     * {@link HttpBackend#OKHTTP}.
+     *
+     * @param httpBackend The HTTP backend.
+     */
+    public void setHttpBackend(HttpBackend httpBackend) {
+        if (httpBackend == null) {
+            throw new IllegalArgumentException("A valid HTTP backend is required.");
+        }
+        this.httpBackend = httpBackend;
+    }
+
+    public HttpBackend getHttpBackend() {
+        return httpBackend;
+    }
+
+    /**
+     * Reports the connection's messages, invocations and handler times to the listener, see
+     * {@link InMemoryHubConnectionMetrics}. Defaults to a listener that records nothing.
+     *
+     * @param metrics The listener.
+     */
+    public void setMetrics(HubConnectionMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("A valid metrics listener is required.");
+        }
+        this.metrics = metrics;
+    }
+
+    public HubConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
     // For testing purposes only
     void setHttpClient(HttpClient client) {
         this.client = client;
@@ -4,30 +4,74 @@
 package com.microsoft.aspnet.signalr;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import com.google.gson.TypeAdapter;
+
 public class HubConnection {
     private String baseUrl;
     private Transport transport;
+    private boolean customTransport;
+    private final TransportSelector transportSelector = TransportSelector.shared();
+    // The transports the last negotiate left to try, in order, null when negotiate was skipped.
+    private volatile List<String> negotiatedTransports;
     private OnReceiveCallBack callback;
     private CallbackMap handlers = new CallbackMap();
+    private InvocationDispatcher dispatcher;
+    private int batchMaxBytes;
+    private long batchMaxDelayNanos;
+    private volatile OutboundBatcher outboundBatcher;
+    private volatile KeepAlive keepAlive;
+    private final long keepAliveIntervalNanos;
+    private final long serverTimeoutNanos;
+    private long invocationTimeoutNanos;
+    private int streamBufferCapacity;
+    private final LongAdder timedOutInvocations = new LongAdder();
+    private final HubConnectionMetrics metrics;
+    // False for the default listener, which skips the clock reads and callbacks.
+    private final boolean recordMetrics;
+    private volatile long handshakeStartNanos;
     private HubProtocol protocol;
     private Boolean handshakeReceived = false;
     private static final String RECORD_SEPARATOR = "\u001e";
-    private HubConnectionState hubConnectionState = HubConnectionState.DISCONNECTED;
+    private static final byte RECORD_SEPARATOR_BYTE = 0x1e;
+    private volatile HubConnectionState hubConnectionState = HubConnectionState.DISCONNECTED;
     private Lock hubConnectionStateLock = new ReentrantLock();
     private Logger logger;
     private List<Consumer<Exception>> onClosedCallbackList;
+    private List<Consumer<Exception>> onReconnectingCallbackList;
+    private List<Runnable> onReconnectedCallbackList;
+    private ReconnectPolicy reconnectPolicy;
+    // Both guarded by hubConnectionStateLock.
+    private boolean stopRequested;
+    private ScheduledFuture<?> reconnectTimer;
     private boolean skipNegotiate = false;
     private Supplier<CompletableFuture<String>> accessTokenProvider;
     private Map<String, String> headers = new HashMap<>();
@@ -36,6 +80,7 @@ public class HubConnection {
     private String stopError;
 
     private static ArrayList<Class<?>> emptyArray = new ArrayList<>();
+    private static TypeAdapter<?>[] emptyAdapters = new TypeAdapter<?>[0];
     private static int MAX_NEGOTIATE_ATTEMPTS = 100;
 
     public HubConnection(String url, HttpConnectionOptions options) {
@@ -44,7 +89,11 @@ public class HubConnection {
         }
 
         this.baseUrl = url;
-        this.protocol = new JsonHubProtocol();
+        if (options.getHubProtocol() != null) {
+            this.protocol = options.getHubProtocol();
+        } else {
+            this.protocol = new JsonHubProtocol();
+        }
 
         if (options.getAccessTokenProvider() != null) {
             this.accessTokenProvider = options.getAccessTokenProvider();
@@ -61,76 +110,197 @@ public class HubConnection {
         if (options.getHttpClient() != null) {
             this.httpClient = options.getHttpClient();
         } else {
-            this.httpClient = new DefaultHttpClient(this.logger);
+            this.httpClient = HttpClient.create(options.getHttpBackend(), this.logger, options.getSendHighWatermark(),
+                    options.getSendBackpressurePolicy(), options.getTransportRuntime());
         }
 
         if (options.getTransport() != null) {
             this.transport = options.getTransport();
+            this.customTransport = true;
         }
 
         this.skipNegotiate = options.getSkipNegotiate();
-
-        this.callback = (payload) -> {
-            if (!handshakeReceived) {
-                int handshakeLength = payload.indexOf(RECORD_SEPARATOR) + 1;
-                String handshakeResponseString = payload.substring(0, handshakeLength - 1);
-                HandshakeResponseMessage handshakeResponse = HandshakeProtocol.parseHandshakeResponse(handshakeResponseString);
-                if (handshakeResponse.error != null) {
-                    String errorMessage = "Error in handshake " + handshakeResponse.error;
-                    logger.log(LogLevel.Error, errorMessage);
-                    throw new HubException(errorMessage);
+        this.batchMaxBytes = options.getBatchMaxBytes();
+        this.batchMaxDelayNanos = options.getBatchMaxDelay().toNanos();
+        this.invocationTimeoutNanos = options.getInvocationTimeout().toNanos();
+        this.streamBufferCapacity = options.getStreamBufferCapacity();
+        this.reconnectPolicy = options.getReconnectPolicy();
+        this.keepAliveIntervalNanos = options.getKeepAliveInterval().toNanos();
+        this.serverTimeoutNanos = options.getServerTimeout().toNanos();
+        this.metrics = options.getMetrics();
+        this.recordMetrics = this.metrics != NullHubConnectionMetrics.INSTANCE;
+        this.dispatcher = new InvocationDispatcher(options.getHandlerExecutor(), this.logger, options.getHandlerQueueCapacity(),
+                options.getHandlerOverflowPolicy(), Runtime.getRuntime().availableProcessors(), this.metrics);
+
+        this.callback = new OnReceiveCallBack() {
+            @Override
+            public void invoke(String payload) throws Exception {
+                messageReceived();
+                if (recordMetrics) {
+                    metrics.frameReceived(MessagePackWriter.utf8Length(payload));
+                }
+                if (!handshakeReceived) {
+                    int handshakeLength = payload.indexOf(RECORD_SEPARATOR) + 1;
+                    String handshakeResponseString = payload.substring(0, handshakeLength - 1);
+                    processHandshakeResponse(handshakeResponseString);
+
+                    payload = payload.substring(handshakeLength);
+                    // The payload only contained the handshake response so we can return.
+                    if (payload.length() == 0) {
+                        return;
+                    }
                 }
-                handshakeReceived = true;
 
-                payload = payload.substring(handshakeLength);
-                // The payload only contained the handshake response so we can return.
-                if (payload.length() == 0) {
-                    return;
+                processMessages(protocol.parseMessages(payload, connectionState));
+            }
+
+            @Override
+            public void invoke(ByteBuffer payload) throws Exception {
+                messageReceived();
+                if (recordMetrics) {
+                    metrics.frameReceived(payload.remaining());
                 }
+                if (!handshakeReceived) {
+                    // The handshake response is always JSON, even when the protocol is binary.
+                    int handshakeEnd = indexOf(payload, RECORD_SEPARATOR_BYTE);
+                    if (handshakeEnd < 0) {
+                        throw new HubException("Handshake response is incomplete.");
+                    }
+                    byte[] handshakeBytes = new byte[handshakeEnd - payload.position()];
+                    payload.get(handshakeBytes);
+                    payload.get();
+                    processHandshakeResponse(new String(handshakeBytes, StandardCharsets.UTF_8));
+
+                    // The payload only contained the handshake response so we can return.
+                    if (!payload.hasRemaining()) {
+                        return;
+                    }
+                }
+
+                processMessages(protocol.parseMessages(payload, connectionState));
             }
+        };
+    }
 
-            HubMessage[] messages = protocol.parseMessages(payload, connectionState);
+    private void messageReceived() {
+        KeepAlive k = keepAlive;
+        if (k != null) {
+            k.messageReceived();
+        }
+    }
 
-            for (HubMessage message : messages) {
+    private void messageSent() {
+        KeepAlive k = keepAlive;
+        if (k != null) {
+            k.messageSent();
+        }
+    }
+
+    private void sendPing() {
+        try {
+            sendHubMessage(PingMessage.getInstance());
+        } catch (Exception e) {
+            logger.log(LogLevel.Debug, "Failed to send a ping: %s", e.getMessage());
+        }
+    }
+
+    private void serverTimedOut() {
+        String errorMessage = String.format("Server timeout elapsed without receiving a message from the server within %d ms.",
+                TimeUnit.NANOSECONDS.toMillis(serverTimeoutNanos));
+        hubConnectionStateLock.lock();
+        try {
+            if (hubConnectionState != HubConnectionState.CONNECTED) {
+                return;
+            }
+            // Not a stop requested by the client, so the connection may reconnect.
+            stopError = errorMessage;
+        } finally {
+            hubConnectionStateLock.unlock();
+        }
+
+        logger.log(LogLevel.Error, errorMessage);
+        // The socket may be half-open and never report its close, don't wait for the transport.
+        transport.stop();
+        stopConnection(null);
+    }
+
+    private void processHandshakeResponse(String handshakeResponseString) throws HubException {
+        HandshakeResponseMessage handshakeResponse = HandshakeProtocol.parseHandshakeResponse(handshakeResponseString);
+        if (handshakeResponse.error != null) {
+            String errorMessage = "Error in handshake " + handshakeResponse.error;
+            logger.log(LogLevel.Error, errorMessage);
+            throw new HubException(errorMessage);
+        }
+        handshakeReceived = true;
+        if (recordMetrics) {
+            metrics.handshakeCompleted(System.nanoTime() - handshakeStartNanos);
+        }
+    }
+
+    private void processMessages(HubMessage[] messages) throws Exception {
+        for (HubMessage message : messages) {
+            if (logger.isEnabled(LogLevel.Debug)) {
                 logger.log(LogLevel.Debug, "Received message of type %s.", message.getMessageType());
-                switch (message.getMessageType()) {
-                    case INVOCATION:
-                        InvocationMessage invocationMessage = (InvocationMessage) message;
-                        List<InvocationHandler> handlers = this.handlers.get(invocationMessage.getTarget());
-                        if (handlers != null) {
-                            for (InvocationHandler handler : handlers) {
-                                handler.getAction().invoke(invocationMessage.getArguments());
-                            }
-                        } else {
-                            logger.log(LogLevel.Warning, "Failed to find handler for '%s' method.", invocationMessage.getTarget());
-                        }
-                        break;
-                    case CLOSE:
-                        logger.log(LogLevel.Information, "Close message received from server.");
-                        CloseMessage closeMessage = (CloseMessage) message;
-                        stop(closeMessage.getError());
-                        break;
-                    case PING:
-                        // We don't need to do anything in the case of a ping message.
-                        break;
-                    case COMPLETION:
-                        CompletionMessage completionMessage = (CompletionMessage)message;
-                        InvocationRequest irq = connectionState.tryRemoveInvocation(completionMessage.getInvocationId());
-                        if (irq == null) {
-                            logger.log(LogLevel.Warning, "Dropped unsolicited Completion message for invocation '%s'.", completionMessage.getInvocationId());
-                            continue;
+            }
+            if (recordMetrics) {
+                metrics.messageReceived(message.getMessageType());
+            }
+            switch (message.getMessageType()) {
+                case INVOCATION:
+                    InvocationMessage invocationMessage = (InvocationMessage) message;
+                    List<InvocationHandler> handlers = this.handlers.get(invocationMessage.getTarget());
+                    if (handlers != null) {
+                        try {
+                            dispatcher.dispatch(invocationMessage.getTarget(), handlers, invocationMessage.getArguments());
+                        } catch (RejectedExecutionException e) {
+                            logger.log(LogLevel.Error, e.getMessage());
+                            stop(e.getMessage());
+                            return;
                         }
-                        irq.complete(completionMessage);
-                        break;
-                    case STREAM_INVOCATION:
-                    case STREAM_ITEM:
-                    case CANCEL_INVOCATION:
-                        logger.log(LogLevel.Error, "This client does not support %s messages.", message.getMessageType());
-
-                        throw new UnsupportedOperationException(String.format("The message type %s is not supported yet.", message.getMessageType()));
-                }
+                    } else {
+                        logger.log(LogLevel.Warning, "Failed to find handler for '%s' method.", invocationMessage.getTarget());
+                    }
+                    break;
+                case CLOSE:
+                    logger.log(LogLevel.Information, "Close message received from server.");
+                    CloseMessage closeMessage = (CloseMessage) message;
+                    stop(closeMessage.getError());
+                    break;
+                case PING:
+                    // We don't need to do anything in the case of a ping message.
+                    break;
+                case COMPLETION:
+                    CompletionMessage completionMessage = (CompletionMessage)message;
+                    InvocationRequest irq = connectionState.tryRemoveInvocation(completionMessage.getId());
+                    if (irq == null) {
+                        logger.log(LogLevel.Warning, "Dropped unsolicited Completion message for invocation '%s'.", completionMessage.getInvocationId());
+                        continue;
+                    }
+                    irq.complete(completionMessage);
+                    break;
+                case STREAM_ITEM:
+                    StreamItemMessage streamItemMessage = (StreamItemMessage) message;
+                    InvocationRequest streamRequest = connectionState.getInvocation(streamItemMessage.getId());
+                    if (streamRequest == null || !streamRequest.addItem(streamItemMessage.getItem())) {
+                        logger.log(LogLevel.Warning, "Dropped unsolicited StreamItem message for invocation '%s'.", streamItemMessage.getInvocationId());
+                    }
+                    break;
+                case STREAM_INVOCATION:
+                case CANCEL_INVOCATION:
+                    logger.log(LogLevel.Error, "This client does not support %s messages.", message.getMessageType());
+
+                    throw new UnsupportedOperationException(String.format("The message type %s is not supported yet.", message.getMessageType()));
             }
-        };
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private CompletableFuture<NegotiateResponse> handleNegotiate(String url) {
@@ -183,10 +353,20 @@ public class HubConnection {
      * @throws Exception An error occurred while connecting.
      */
     public CompletableFuture<Void> start() throws Exception {
-        if (hubConnectionState != HubConnectionState.DISCONNECTED) {
-            return CompletableFuture.completedFuture(null);
+        hubConnectionStateLock.lock();
+        try {
+            if (hubConnectionState != HubConnectionState.DISCONNECTED) {
+                return CompletableFuture.completedFuture(null);
+            }
+            stopRequested = false;
+        } finally {
+            hubConnectionStateLock.unlock();
         }
 
+        return startCore(false);
+    }
+
+    private CompletableFuture<Void> startCore(boolean reconnecting) throws Exception {
         handshakeReceived = false;
         CompletableFuture<Void> tokenFuture = accessTokenProvider.get()
                 .thenAccept((token) -> {
@@ -196,47 +376,113 @@ public class HubConnection {
                 });
 
         stopError = null;
+        negotiatedTransports = null;
         CompletableFuture<String> negotiate = null;
         if (!skipNegotiate) {
-            negotiate = tokenFuture.thenCompose((v) -> startNegotiate(baseUrl, 0));
+            negotiate = tokenFuture.thenCompose((v) -> {
+                if (!recordMetrics) {
+                    return startNegotiate(baseUrl, 0);
+                }
+                long negotiateStart = System.nanoTime();
+                return startNegotiate(baseUrl, 0).thenApply((url) -> {
+                    metrics.negotiated(System.nanoTime() - negotiateStart);
+                    return url;
+                });
+            });
         } else {
             negotiate = tokenFuture.thenCompose((v) -> CompletableFuture.completedFuture(baseUrl));
         }
 
         return negotiate.thenCompose((url) -> {
             logger.log(LogLevel.Debug, "Starting HubConnection.");
-            if (transport == null) {
+            List<String> transports = negotiatedTransports;
+            return startTransport(url, transports != null ? transports : Collections.singletonList(TransportSelector.WEB_SOCKETS), 0);
+        }).thenCompose((v) -> {
+            String handshake = HandshakeProtocol.createHandshakeRequestMessage(
+                    new HandshakeRequestMessage(protocol.getName(), protocol.getVersion()));
+            handshakeStartNanos = System.nanoTime();
+            return transport.send(handshake).thenRun(() -> {
+                hubConnectionStateLock.lock();
+                try {
+                    if (reconnecting && hubConnectionState != HubConnectionState.RECONNECTING) {
+                        // stop() was called while this attempt was connecting.
+                        transport.stop();
+                        throw new CancellationException("The connection was stopped while reconnecting.");
+                    }
+                    hubConnectionState = HubConnectionState.CONNECTED;
+                    connectionState = new ConnectionState(this);
+                    if (batchMaxBytes > 0) {
+                        outboundBatcher = new OutboundBatcher(transport, batchMaxBytes, batchMaxDelayNanos, SharedScheduler.get());
+                    }
+                    if (keepAliveIntervalNanos > 0 || serverTimeoutNanos > 0) {
+                        keepAlive = new KeepAlive(keepAliveIntervalNanos, serverTimeoutNanos, this::sendPing,
+                                this::serverTimedOut, SharedScheduler.get());
+                        keepAlive.start();
+                    }
+                    logger.log(LogLevel.Information, "HubConnection started.");
+                } finally {
+                    hubConnectionStateLock.unlock();
+                }
+            });
+        });
+    }
+
+    /**
+     * Starts the transport at the index, falling back to the next one when it fails to start.
+     */
+    private CompletableFuture<Void> startTransport(String url, List<String> transports, int index) {
+        String transportName = transports.get(index);
+        if (!customTransport) {
+            if (TransportSelector.LONG_POLLING.equals(transportName)) {
+                transport = new LongPollingTransport(headers, httpClient, logger, protocol.getTransferFormat());
+            } else if (TransportSelector.SERVER_SENT_EVENTS.equals(transportName)) {
+                transport = new ServerSentEventsTransport(headers, httpClient, logger);
+            } else if (!(transport instanceof WebSocketTransport)) {
                 transport = new WebSocketTransport(headers, httpClient, logger);
             }
+        }
 
-            transport.setOnReceive(this.callback);
-            transport.setOnClose((message) -> stopConnection(message));
+        Transport startedTransport = transport;
+        transport.setOnReceive(this.callback);
+        transport.setOnClose((message) -> {
+            // A transport that was replaced on restart or fallback can still report its close.
+            if (startedTransport == transport) {
+                stopConnection(message);
+            }
+        });
 
-            try {
-                return transport.start(url).thenCompose((future) -> {
-                    String handshake = HandshakeProtocol.createHandshakeRequestMessage(
-                            new HandshakeRequestMessage(protocol.getName(), protocol.getVersion()));
-                    return transport.send(handshake).thenRun(() -> {
-                        hubConnectionStateLock.lock();
-                        try {
-                            hubConnectionState = HubConnectionState.CONNECTED;
-                            connectionState = new ConnectionState(this);
-                            logger.log(LogLevel.Information, "HubConnection started.");
-                        } finally {
-                            hubConnectionStateLock.unlock();
-                        }
-                    });
-                });
-            } catch (RuntimeException e) {
-                throw e;
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        CompletableFuture<Void> started;
+        try {
+            started = transport.start(url);
+        } catch (Exception e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+        if (customTransport) {
+            return started;
+        }
+
+        return started.handle((result, error) -> error).thenCompose((error) -> {
+            if (error == null) {
+                if (negotiatedTransports != null) {
+                    transportSelector.connected(baseUrl, transportName);
+                }
+                return CompletableFuture.completedFuture(null);
             }
+            if (index + 1 >= transports.size()) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(error);
+                return failed;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.log(LogLevel.Warning, "Failed to start the %s transport, falling back to %s: %s",
+                    transportName, transports.get(index + 1), cause.getMessage());
+            return startTransport(url, transports, index + 1);
         });
     }
 
     private CompletableFuture<String> startNegotiate(String url, int negotiateAttempts) {
-        if (hubConnectionState != HubConnectionState.DISCONNECTED) {
+        if (hubConnectionState == HubConnectionState.CONNECTED) {
             return CompletableFuture.completedFuture(null);
         }
 
@@ -246,13 +492,15 @@ public class HubConnection {
             }
 
             if (response.getRedirectUrl() == null) {
-                if (!response.getAvailableTransports().contains("WebSockets")) {
+                List<String> transports = transportSelector.select(baseUrl, response, protocol.getTransferFormat());
+                if (transports.isEmpty()) {
                     try {
                         throw new HubException("There were no compatible transports on the server.");
                     } catch (HubException e) {
                         throw new RuntimeException(e);
                     }
                 }
+                negotiatedTransports = transports;
 
                 String finalUrl = url;
                 if (response.getConnectionId() != null) {
@@ -274,22 +522,45 @@ public class HubConnection {
      * Stops a connection to the server.
      */
     private CompletableFuture<Void> stop(String errorMessage) {
+        boolean stoppedWhileReconnecting = false;
         hubConnectionStateLock.lock();
         try {
             if (hubConnectionState == HubConnectionState.DISCONNECTED) {
                 return CompletableFuture.completedFuture(null);
             }
 
-            if (errorMessage != null) {
-                stopError = errorMessage;
-                logger.log(LogLevel.Error, "HubConnection disconnected with an error: %s.", errorMessage);
+            stopRequested = true;
+            if (hubConnectionState != HubConnectionState.RECONNECTING) {
+                if (errorMessage != null) {
+                    stopError = errorMessage;
+                    logger.log(LogLevel.Error, "HubConnection disconnected with an error: %s.", errorMessage);
+                } else {
+                    logger.log(LogLevel.Debug, "Stopping HubConnection.");
+                }
             } else {
-                logger.log(LogLevel.Debug, "Stopping HubConnection.");
+                // There is no transport to stop, an attempt that is still connecting stops its own.
+                if (reconnectTimer != null) {
+                    reconnectTimer.cancel(false);
+                    reconnectTimer = null;
+                }
+                hubConnectionState = HubConnectionState.DISCONNECTED;
+                stoppedWhileReconnecting = true;
+                logger.log(LogLevel.Information, "HubConnection stopped while reconnecting.");
             }
         } finally {
             hubConnectionStateLock.unlock();
         }
 
+        if (stoppedWhileReconnecting) {
+            runOnClosedCallbacks(null);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        OutboundBatcher batcher = outboundBatcher;
+        if (batcher != null) {
+            // Don't lose messages that are still waiting for their batch to be sent.
+            return batcher.flush().handle((result, error) -> null).thenCompose((v) -> transport.stop());
+        }
         return transport.stop();
     }
 
@@ -302,8 +573,14 @@ public class HubConnection {
 
     private void stopConnection(String errorMessage) {
         RuntimeException exception = null;
+        Duration reconnectDelay = null;
         hubConnectionStateLock.lock();
         try {
+            if (hubConnectionState != HubConnectionState.CONNECTED) {
+                // A start or reconnect attempt failed, its future reports the error.
+                return;
+            }
+
             // errorMessage gets passed in from the transport. An already existing stopError value
             // should take precedence.
             if (stopError != null) {
@@ -314,14 +591,45 @@ public class HubConnection {
                 logger.log(LogLevel.Error, "HubConnection disconnected with an error %s.", errorMessage);
             }
             connectionState.cancelOutstandingInvocations(exception);
+            connectionState.closeUploads();
             connectionState = null;
-            logger.log(LogLevel.Information, "HubConnection stopped.");
-            hubConnectionState = HubConnectionState.DISCONNECTED;
+            if (keepAlive != null) {
+                keepAlive.stop();
+                keepAlive = null;
+            }
+            if (outboundBatcher != null) {
+                outboundBatcher.close(exception);
+                outboundBatcher = null;
+            }
+            // Only a connection that was lost reconnects, not one that was stopped by either side.
+            if (reconnectPolicy != null && exception != null && !stopRequested) {
+                reconnectDelay = reconnectPolicy.nextRetryDelay(0, Duration.ZERO);
+            }
+            if (reconnectDelay != null) {
+                logger.log(LogLevel.Information, "HubConnection lost, reconnecting.");
+                hubConnectionState = HubConnectionState.RECONNECTING;
+            } else {
+                logger.log(LogLevel.Information, "HubConnection stopped.");
+                hubConnectionState = HubConnectionState.DISCONNECTED;
+            }
         } finally {
             hubConnectionStateLock.unlock();
         }
 
         // Do not run these callbacks inside the hubConnectionStateLock
+        if (reconnectDelay != null) {
+            if (onReconnectingCallbackList != null) {
+                for (Consumer<Exception> callback : onReconnectingCallbackList) {
+                    callback.accept(exception);
+                }
+            }
+            scheduleReconnect(reconnectDelay, 1, System.nanoTime());
+            return;
+        }
+        runOnClosedCallbacks(exception);
+    }
+
+    private void runOnClosedCallbacks(Exception exception) {
         if (onClosedCallbackList != null) {
             for (Consumer<Exception> callback : onClosedCallbackList) {
                 callback.accept(exception);
@@ -329,35 +637,175 @@ public class HubConnection {
         }
     }
 
+    private void scheduleReconnect(Duration delay, int attempt, long reconnectStartTime) {
+        hubConnectionStateLock.lock();
+        try {
+            if (hubConnectionState != HubConnectionState.RECONNECTING) {
+                return;
+            }
+            // The timer only starts the attempt, connecting runs on the transport's threads.
+            reconnectTimer = SharedScheduler.get().schedule(() -> reconnect(attempt, reconnectStartTime),
+                    delay.toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            hubConnectionStateLock.unlock();
+        }
+    }
+
+    private void reconnect(int attempt, long reconnectStartTime) {
+        hubConnectionStateLock.lock();
+        try {
+            if (hubConnectionState != HubConnectionState.RECONNECTING) {
+                return;
+            }
+            reconnectTimer = null;
+        } finally {
+            hubConnectionStateLock.unlock();
+        }
+
+        logger.log(LogLevel.Information, "Reconnect attempt %d.", attempt);
+        CompletableFuture<Void> connected;
+        try {
+            connected = startCore(true);
+        } catch (Exception e) {
+            connected = new CompletableFuture<>();
+            connected.completeExceptionally(e);
+        }
+
+        connected.whenComplete((result, error) -> {
+            if (error == null) {
+                logger.log(LogLevel.Information, "HubConnection reconnected after %d attempt(s).", attempt);
+                if (onReconnectedCallbackList != null) {
+                    for (Runnable callback : onReconnectedCallbackList) {
+                        callback.run();
+                    }
+                }
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            logger.log(LogLevel.Warning, "Reconnect attempt %d failed: %s", attempt, cause.getMessage());
+            Duration delay = reconnectPolicy.nextRetryDelay(attempt, Duration.ofNanos(System.nanoTime() - reconnectStartTime));
+            if (delay != null) {
+                scheduleReconnect(delay, attempt + 1, reconnectStartTime);
+                return;
+            }
+
+            hubConnectionStateLock.lock();
+            try {
+                if (hubConnectionState != HubConnectionState.RECONNECTING) {
+                    return;
+                }
+                logger.log(LogLevel.Information, "Giving up reconnecting after %d attempt(s).", attempt);
+                hubConnectionState = HubConnectionState.DISCONNECTED;
+            } finally {
+                hubConnectionStateLock.unlock();
+            }
+            runOnClosedCallbacks(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+        });
+    }
+
     /**
      * Invokes a hub method on the server using the specified method name.
      * Does not wait for a response from the receiver.
      *
+     * <p>Arguments that are a {@link Publisher} or an {@link java.util.Iterator} are streamed to the server
+     * item by item after the invocation was sent, see {@link UploadStream}.</p>
+     *
      * @param method The name of the server method to invoke.
      * @param args   The arguments to be passed to the method.
+     * @return A future that completes when the message has been written to the connection. It fails if the
+     *         message was rejected because too much data is waiting to be sent, or if the connection closed first.
      * @throws Exception If there was an error while sending.
      */
-    public void send(String method, Object... args) throws Exception {
+    public CompletableFuture<Void> send(String method, Object... args) throws Exception {
         if (hubConnectionState != HubConnectionState.CONNECTED) {
             throw new HubException("The 'send' method cannot be called if the connection is not active");
         }
 
         InvocationMessage invocationMessage = new InvocationMessage(null, method, args);
-        sendHubMessage(invocationMessage);
+        Map<UploadStream, Object> uploads = createUploads(connectionState, invocationMessage);
+        CompletableFuture<Void> sent = sendHubMessage(invocationMessage);
+        if (uploads != null) {
+            sent.whenComplete((result, error) -> {
+                if (error != null) {
+                    uploads.keySet().forEach(UploadStream::close);
+                }
+            });
+            startUploads(uploads);
+        }
+        return sent;
     }
 
+    /**
+     * Invokes a hub method on the server using the specified method name and waits for its result.
+     * The invocation fails with a {@link TimeoutException} if no result arrives within the connection's
+     * invocation timeout, see {@link HttpConnectionOptions#setInvocationTimeout}. Arguments that are a
+     * {@link Publisher} or an {@link java.util.Iterator} are streamed to the server, as with {@link #send}.
+     *
+     * @param returnType The expected return type.
+     * @param method     The name of the server method to invoke.
+     * @param args       The arguments used to invoke the server method.
+     * @param <T>        The expected return type.
+     * @return A future that completes with the result of the server method.
+     * @throws Exception If there was an error while sending.
+     */
     public <T> CompletableFuture<T> invoke(Class<T> returnType, String method, Object... args) throws Exception {
-        String id = connectionState.getNextInvocationId();
-        InvocationMessage invocationMessage = new InvocationMessage(id, method, args);
+        return invoke(invocationTimeoutNanos, returnType, method, args);
+    }
+
+    /**
+     * Invokes a hub method on the server using the specified method name and waits for its result.
+     *
+     * @param timeout    How long to wait for the result before failing with a {@link TimeoutException},
+     *                   zero waits until the connection stops.
+     * @param returnType The expected return type.
+     * @param method     The name of the server method to invoke.
+     * @param args       The arguments used to invoke the server method.
+     * @param <T>        The expected return type.
+     * @return A future that completes with the result of the server method.
+     * @throws Exception If there was an error while sending.
+     */
+    public <T> CompletableFuture<T> invoke(Duration timeout, Class<T> returnType, String method, Object... args) throws Exception {
+        if (timeout == null || timeout.isNegative()) {
+            throw new IllegalArgumentException("A valid timeout is required.");
+        }
+        return invoke(timeout.toNanos(), returnType, method, args);
+    }
+
+    /**
+     * @return The number of invocations on this connection that failed because no result arrived in time.
+     */
+    public long getTimedOutInvocationCount() {
+        return timedOutInvocations.sum();
+    }
+
+    private <T> CompletableFuture<T> invoke(long timeoutNanos, Class<T> returnType, String method, Object... args) throws Exception {
+        ConnectionState state = connectionState;
+        int id = state.getNextInvocationId();
+        InvocationMessage invocationMessage = new InvocationMessage(Integer.toString(id), method, args);
+        Map<UploadStream, Object> uploads = createUploads(state, invocationMessage);
 
         CompletableFuture<T> future = new CompletableFuture<>();
         InvocationRequest irq = new InvocationRequest(returnType, id);
-        connectionState.addInvocation(irq);
+        state.addInvocation(irq);
+        if (timeoutNanos > 0) {
+            // Scheduled after the invocation is added, a timeout that fires first would find nothing to remove.
+            irq.setTimeout(HashedWheelTimer.shared().newTimeout(() -> timeOut(state, id, method, timeoutNanos),
+                    timeoutNanos, TimeUnit.NANOSECONDS));
+        }
 
         // forward the invocation result or error to the user
         // run continuations on a separate thread
         CompletableFuture<Object> pendingCall = irq.getPendingCall();
+        long invocationStart = recordMetrics ? System.nanoTime() : 0;
+        if (recordMetrics) {
+            metrics.invocationStarted(method);
+        }
         pendingCall.whenCompleteAsync((result, error) -> {
+            // Recorded before the caller's future completes, so the caller sees the invocation as done in the metrics.
+            if (recordMetrics) {
+                metrics.invocationCompleted(method, System.nanoTime() - invocationStart, error == null);
+            }
             if (error == null) {
                 // Primitive types can't be cast with the Class cast function
                 if (returnType.isPrimitive()) {
@@ -372,19 +820,226 @@ public class HubConnection {
 
         // Make sure the actual send is after setting up the future otherwise there is a race
         // where the map doesn't have the future yet when the response is returned
-        sendHubMessage(invocationMessage);
+        sendHubMessage(invocationMessage).whenComplete((result, error) -> {
+            // The invocation can't complete if it was never sent.
+            if (error != null) {
+                InvocationRequest request = state.tryRemoveInvocation(id);
+                if (request != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    request.fail(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+            }
+        });
+
+        if (uploads != null) {
+            // Once the server answered, or the invocation failed, it doesn't want any more items.
+            pendingCall.whenComplete((result, error) -> uploads.keySet().forEach(UploadStream::close));
+            startUploads(uploads);
+        }
 
         return future;
     }
 
-    private void sendHubMessage(HubMessage message) throws Exception {
-        String serializedMessage = protocol.writeMessage(message);
-        if (message.getMessageType() == HubMessageType.INVOCATION) {
-            logger.log(LogLevel.Debug, "Sending %d message '%s'.", message.getMessageType().value, ((InvocationMessage)message).getInvocationId());
-        } else {
-            logger.log(LogLevel.Debug, "Sending %d message.", message.getMessageType().value);
+    /**
+     * Moves the stream sources out of the invocation's arguments and gives each of them a stream id.
+     *
+     * @return The uploads with their sources, or null if the invocation has no stream arguments.
+     */
+    private Map<UploadStream, Object> createUploads(ConnectionState state, InvocationMessage invocationMessage) {
+        Object[] args = invocationMessage.getArguments();
+        int sourceCount = 0;
+        for (Object arg : args) {
+            if (UploadStream.isSource(arg)) {
+                sourceCount++;
+            }
+        }
+        if (sourceCount == 0) {
+            return null;
+        }
+
+        Object[] arguments = new Object[args.length - sourceCount];
+        String[] streamIds = new String[sourceCount];
+        Map<UploadStream, Object> uploads = new LinkedHashMap<>();
+        int argumentIndex = 0;
+        for (Object arg : args) {
+            if (UploadStream.isSource(arg)) {
+                // Stream ids share the invocation id counter so they can't be mistaken for one.
+                UploadStream upload = new UploadStream(Integer.toString(state.getNextInvocationId()), this::sendHubMessages, state::removeUpload);
+                streamIds[uploads.size()] = upload.getStreamId();
+                uploads.put(upload, arg);
+                state.addUpload(upload);
+            } else {
+                arguments[argumentIndex++] = arg;
+            }
+        }
+        invocationMessage.setArguments(arguments);
+        invocationMessage.setStreamIds(streamIds);
+        return uploads;
+    }
+
+    private static void startUploads(Map<UploadStream, Object> uploads) {
+        for (Map.Entry<UploadStream, Object> upload : uploads.entrySet()) {
+            upload.getKey().start(upload.getValue());
         }
-        transport.send(serializedMessage);
+    }
+
+    /**
+     * Invokes a streaming hub method on the server. Every subscriber starts its own invocation of the
+     * method when it subscribes, and cancelling the subscription cancels the invocation on the server.
+     *
+     * <p>Items the subscriber hasn't requested yet are buffered, see {@link HttpConnectionOptions#setStreamBufferCapacity}.
+     * When the buffer is full the connection stops reading until the subscriber requests more, so subscribers
+     * must not wait for other messages from the same connection before requesting.</p>
+     *
+     * @param returnType The type of the items in the stream.
+     * @param method     The name of the server method to invoke.
+     * @param args       The arguments used to invoke the server method.
+     * @param <T>        The type of the items in the stream.
+     * @return A publisher of the stream's items.
+     */
+    public <T> Publisher<T> stream(Class<T> returnType, String method, Object... args) {
+        return subscriber -> subscribeToStream(subscriber, returnType, method, args);
+    }
+
+    private <T> void subscribeToStream(Subscriber<? super T> subscriber, Class<T> returnType, String method, Object[] args) {
+        if (subscriber == null) {
+            throw new NullPointerException("A valid subscriber is required.");
+        }
+
+        ConnectionState state = connectionState;
+        if (hubConnectionState != HubConnectionState.CONNECTED || state == null) {
+            StreamInvocationRequest<T> request = new StreamInvocationRequest<>(returnType, PendingInvocationTable.NO_ID, 1, subscriber, () -> {});
+            request.fail(new HubException("The 'stream' method cannot be called if the connection is not active"));
+            request.start();
+            return;
+        }
+
+        int id = state.getNextInvocationId();
+        StreamInvocationRequest<T> request = new StreamInvocationRequest<>(returnType, id, streamBufferCapacity, subscriber, () -> {
+            if (state.tryRemoveInvocation(id) != null) {
+                logger.log(LogLevel.Debug, "Cancelling stream invocation '%d'.", id);
+                try {
+                    sendHubMessage(new CancelInvocationMessage(Integer.toString(id)));
+                } catch (Exception e) {
+                    logger.log(LogLevel.Warning, "Failed to cancel stream invocation '%d': %s", id, e.getMessage());
+                }
+            }
+        });
+        state.addInvocation(request);
+
+        try {
+            sendHubMessage(new StreamInvocationMessage(Integer.toString(id), method, args)).whenComplete((result, error) -> {
+                if (error != null && state.tryRemoveInvocation(id) != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    request.fail(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+            });
+        } catch (Exception e) {
+            state.tryRemoveInvocation(id);
+            request.fail(e);
+        }
+
+        // The subscription is handed out after the invocation is sent, so a cancel can't overtake it.
+        // Items that arrive before the subscriber requests them wait in the buffer.
+        request.start();
+    }
+
+    private void timeOut(ConnectionState state, int id, String method, long timeoutNanos) {
+        // Runs on the timer thread, a completion that won the race has already removed the invocation.
+        InvocationRequest request = state.tryRemoveInvocation(id);
+        if (request != null) {
+            timedOutInvocations.increment();
+            metrics.invocationTimedOut(method);
+            logger.log(LogLevel.Warning, "Invocation '%d' of '%s' timed out.", id, method);
+            request.fail(new TimeoutException(String.format("The invocation of '%s' did not complete within %d ms.",
+                    method, TimeUnit.NANOSECONDS.toMillis(timeoutNanos))));
+        }
+    }
+
+    private CompletableFuture<Void> sendHubMessages(List<HubMessage> messages) {
+        if (logger.isEnabled(LogLevel.Debug)) {
+            logger.log(LogLevel.Debug, "Sending %d stream messages in one frame.", messages.size());
+        }
+        messageSent();
+        try {
+            OutboundBatcher batcher = outboundBatcher;
+            if (protocol.getTransferFormat() == TransferFormat.BINARY) {
+                ByteBuffer[] encoded = new ByteBuffer[messages.size()];
+                int size = 0;
+                for (int i = 0; i < encoded.length; i++) {
+                    encoded[i] = protocol.writeMessageBytes(messages.get(i));
+                    size += encoded[i].remaining();
+                    if (recordMetrics) {
+                        metrics.messageSent(messages.get(i).getMessageType(), encoded[i].remaining());
+                    }
+                }
+                ByteBuffer frame = ByteBuffer.allocate(size);
+                for (ByteBuffer message : encoded) {
+                    frame.put(message);
+                }
+                frame.flip();
+                return sendCompleted(messages, batcher != null ? batcher.send(frame) : transport.send(frame));
+            }
+
+            StringBuilder frame = new StringBuilder();
+            for (HubMessage message : messages) {
+                String text = protocol.writeMessage(message);
+                frame.append(text);
+                if (recordMetrics) {
+                    metrics.messageSent(message.getMessageType(), MessagePackWriter.utf8Length(text));
+                }
+            }
+            return sendCompleted(messages, batcher != null ? batcher.send(frame.toString()) : transport.send(frame.toString()));
+        } catch (Exception e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private CompletableFuture<Void> sendHubMessage(HubMessage message) throws Exception {
+        // Runs for every message, don't box the arguments of lines that won't be logged.
+        if (logger.isEnabled(LogLevel.Debug)) {
+            if (message.getMessageType() == HubMessageType.INVOCATION || message.getMessageType() == HubMessageType.STREAM_INVOCATION) {
+                logger.log(LogLevel.Debug, "Sending %d message '%s'.", message.getMessageType().value, ((InvocationMessage)message).getInvocationId());
+            } else {
+                logger.log(LogLevel.Debug, "Sending %d message.", message.getMessageType().value);
+            }
+        }
+        messageSent();
+
+        OutboundBatcher batcher = outboundBatcher;
+        if (protocol.getTransferFormat() == TransferFormat.BINARY) {
+            ByteBuffer bytes = protocol.writeMessageBytes(message);
+            if (!recordMetrics) {
+                return batcher != null ? batcher.send(bytes) : transport.send(bytes);
+            }
+            metrics.messageSent(message.getMessageType(), bytes.remaining());
+            return sendCompleted(message, batcher != null ? batcher.send(bytes) : transport.send(bytes));
+        }
+
+        String text = protocol.writeMessage(message);
+        if (!recordMetrics) {
+            return batcher != null ? batcher.send(text) : transport.send(text);
+        }
+        metrics.messageSent(message.getMessageType(), MessagePackWriter.utf8Length(text));
+        return sendCompleted(message, batcher != null ? batcher.send(text) : transport.send(text));
+    }
+
+    private CompletableFuture<Void> sendCompleted(HubMessage message, CompletableFuture<Void> sent) {
+        sent.whenComplete((result, error) -> metrics.sendCompleted(message.getMessageType(), error == null));
+        return sent;
+    }
+
+    private CompletableFuture<Void> sendCompleted(List<HubMessage> messages, CompletableFuture<Void> sent) {
+        if (recordMetrics) {
+            sent.whenComplete((result, error) -> {
+                for (HubMessage message : messages) {
+                    metrics.sendCompleted(message.getMessageType(), error == null);
+                }
+            });
+        }
+        return sent;
     }
 
     /**
@@ -405,6 +1060,34 @@ public class HubConnection {
         onClosedCallbackList.add(callback);
     }
 
+    /**
+     * Registers a callback that runs when the connection was lost and starts reconnecting.
+     * Invocations that were pending when the connection was lost have failed by then.
+     *
+     * @param callback Receives the error the connection was lost with.
+     */
+    public void onReconnecting(Consumer<Exception> callback) {
+        if (onReconnectingCallbackList == null) {
+            onReconnectingCallbackList = new ArrayList<>();
+        }
+
+        onReconnectingCallbackList.add(callback);
+    }
+
+    /**
+     * Registers a callback that runs when a reconnect attempt succeeded. Handlers registered with
+     * {@link #on} are kept across reconnects.
+     *
+     * @param callback The callback.
+     */
+    public void onReconnected(Runnable callback) {
+        if (onReconnectedCallbackList == null) {
+            onReconnectedCallbackList = new ArrayList<>();
+        }
+
+        onReconnectedCallbackList.add(callback);
+    }
+
     /**
      * Registers a handler that will be invoked when the hub method with the specified method name is invoked.
      *
@@ -428,8 +1111,9 @@ public class HubConnection {
      * @param <T1>     The first argument type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1> Subscription on(String target, Action1<T1> callback, Class<T1> param1) {
-        ActionBase action = params -> callback.invoke(param1.cast(params[0]));
+        ActionBase action = params -> callback.invoke((T1) params[0]);
         ArrayList<Class<?>> classes = new ArrayList<>(1);
         classes.add(param1);
         InvocationHandler handler = handlers.put(target, action, classes);
@@ -448,9 +1132,10 @@ public class HubConnection {
      * @param <T2>     The second parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2> Subscription on(String target, Action2<T1, T2> callback, Class<T1> param1, Class<T2> param2) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]));
+            callback.invoke((T1) params[0], (T2) params[1]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(2);
         classes.add(param1);
@@ -473,10 +1158,11 @@ public class HubConnection {
      * @param <T3>     The third parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3> Subscription on(String target, Action3<T1, T2, T3> callback,
                                         Class<T1> param1, Class<T2> param2, Class<T3> param3) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(3);
         classes.add(param1);
@@ -502,10 +1188,11 @@ public class HubConnection {
      * @param <T4>     The fourth parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3, T4> Subscription on(String target, Action4<T1, T2, T3, T4> callback,
                                             Class<T1> param1, Class<T2> param2, Class<T3> param3, Class<T4> param4) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]), param4.cast(params[3]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2], (T4) params[3]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(4);
         classes.add(param1);
@@ -534,11 +1221,12 @@ public class HubConnection {
      * @param <T5>     The fifth parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3, T4, T5> Subscription on(String target, Action5<T1, T2, T3, T4, T5> callback,
                                                 Class<T1> param1, Class<T2> param2, Class<T3> param3, Class<T4> param4, Class<T5> param5) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]), param4.cast(params[3]),
-                    param5.cast(params[4]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2], (T4) params[3],
+                    (T5) params[4]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(5);
         classes.add(param1);
@@ -570,11 +1258,12 @@ public class HubConnection {
      * @param <T6>     The sixth parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3, T4, T5, T6> Subscription on(String target, Action6<T1, T2, T3, T4, T5, T6> callback,
                                                     Class<T1> param1, Class<T2> param2, Class<T3> param3, Class<T4> param4, Class<T5> param5, Class<T6> param6) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]), param4.cast(params[3]),
-                    param5.cast(params[4]), param6.cast(params[5]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2], (T4) params[3],
+                    (T5) params[4], (T6) params[5]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(6);
         classes.add(param1);
@@ -609,11 +1298,12 @@ public class HubConnection {
      * @param <T7>     The seventh parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3, T4, T5, T6, T7> Subscription on(String target, Action7<T1, T2, T3, T4, T5, T6, T7> callback,
                                                         Class<T1> param1, Class<T2> param2, Class<T3> param3, Class<T4> param4, Class<T5> param5, Class<T6> param6, Class<T7> param7) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]), param4.cast(params[3]),
-                    param5.cast(params[4]), param6.cast(params[5]), param7.cast(params[6]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2], (T4) params[3],
+                    (T5) params[4], (T6) params[5], (T7) params[6]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(7);
         classes.add(param1);
@@ -651,11 +1341,12 @@ public class HubConnection {
      * @param <T8>     The eighth parameter type.
      * @return A {@link Subscription} that can be disposed to unsubscribe from the hub method.
      */
+    @SuppressWarnings("unchecked")
     public <T1, T2, T3, T4, T5, T6, T7, T8> Subscription on(String target, Action8<T1, T2, T3, T4, T5, T6, T7, T8> callback,
                                                             Class<T1> param1, Class<T2> param2, Class<T3> param3, Class<T4> param4, Class<T5> param5, Class<T6> param6, Class<T7> param7, Class<T8> param8) {
         ActionBase action = params -> {
-            callback.invoke(param1.cast(params[0]), param2.cast(params[1]), param3.cast(params[2]), param4.cast(params[3]),
-                    param5.cast(params[4]), param6.cast(params[5]), param7.cast(params[6]), param8.cast(params[7]));
+            callback.invoke((T1) params[0], (T2) params[1], (T3) params[2], (T4) params[3],
+                    (T5) params[4], (T6) params[5], (T7) params[6], (T8) params[7]);
         };
         ArrayList<Class<?>> classes = new ArrayList<>(8);
         classes.add(param1);
@@ -674,71 +1365,61 @@ public class HubConnection {
     private class ConnectionState implements InvocationBinder {
         private HubConnection connection;
         private AtomicInteger nextId = new AtomicInteger(0);
-        private HashMap<String, InvocationRequest> pendingInvocations = new HashMap<>();
-        private Lock lock = new ReentrantLock();
+        private PendingInvocationTable pendingInvocations = new PendingInvocationTable();
+        private Set<UploadStream> uploads = ConcurrentHashMap.newKeySet();
 
         public ConnectionState(HubConnection connection) {
             this.connection = connection;
         }
 
-        public String getNextInvocationId() {
-            int i = nextId.incrementAndGet();
-            return Integer.toString(i);
+        public int getNextInvocationId() {
+            // Keep ids non-negative when the counter wraps, negative values never match a pending invocation.
+            return nextId.incrementAndGet() & Integer.MAX_VALUE;
         }
 
         public void cancelOutstandingInvocations(Exception ex) {
-            lock.lock();
-            try {
-                pendingInvocations.forEach((key, irq) -> {
-                    if (ex == null) {
-                        irq.cancel();
-                    } else {
-                        irq.fail(ex);
-                    }
-                });
+            pendingInvocations.drain((irq) -> {
+                if (ex == null) {
+                    irq.cancel();
+                } else {
+                    irq.fail(ex);
+                }
+            });
+        }
 
-                pendingInvocations.clear();
-            } finally {
-                lock.unlock();
-            }
+        public void addUpload(UploadStream upload) {
+            uploads.add(upload);
         }
 
-        public void addInvocation(InvocationRequest irq) {
-            lock.lock();
-            try {
-                pendingInvocations.compute(irq.getInvocationId(), (key, value) -> {
-                    if (value != null) {
-                        // This should never happen
-                        throw new IllegalStateException("Invocation Id is already used");
-                    }
+        public void removeUpload(UploadStream upload) {
+            uploads.remove(upload);
+        }
 
-                    return irq;
-                });
-            } finally {
-                lock.unlock();
+        public void closeUploads() {
+            for (UploadStream upload : uploads) {
+                upload.close();
             }
         }
 
-        public InvocationRequest getInvocation(String id) {
-            lock.lock();
-            try {
-                return pendingInvocations.get(id);
-            } finally {
-                lock.unlock();
-            }
+        public void addInvocation(InvocationRequest irq) {
+            pendingInvocations.add(irq);
         }
 
-        public InvocationRequest tryRemoveInvocation(String id) {
-            lock.lock();
-            try {
-                return pendingInvocations.remove(id);
-            } finally {
-                lock.unlock();
-            }
+        public InvocationRequest getInvocation(int id) {
+            return pendingInvocations.get(id);
+        }
+
+        public InvocationRequest tryRemoveInvocation(int id) {
+            return pendingInvocations.remove(id);
         }
 
         @Override
         public Class<?> getReturnType(String invocationId) {
+            return getReturnType(PendingInvocationTable.parseId(invocationId));
+        }
+
+        @Override
+        public Class<?> getReturnType(int invocationId) {
             InvocationRequest irq = getInvocation(invocationId);
             if (irq == null) {
                 return null;
@@ -747,6 +1428,21 @@ public class HubConnection {
             return irq.getReturnType();
         }
 
+        @Override
+        public TypeAdapter<?> getReturnTypeAdapter(String invocationId) {
+            return getReturnTypeAdapter(PendingInvocationTable.parseId(invocationId));
+        }
+
+        @Override
+        public TypeAdapter<?> getReturnTypeAdapter(int invocationId) {
+            InvocationRequest irq = getInvocation(invocationId);
+            if (irq == null) {
+                return null;
+            }
+
+            return irq.getReturnTypeAdapter();
+        }
+
         @Override
         public List<Class<?>> getParameterTypes(String methodName) throws Exception {
             List<InvocationHandler> handlers = connection.handlers.get(methodName);
@@ -761,5 +1457,20 @@ public class HubConnection {
 
             return handlers.get(0).getClasses();
         }
+
+        @Override
+        public TypeAdapter<?>[] getParameterAdapters(String methodName) throws Exception {
+            List<InvocationHandler> handlers = connection.handlers.get(methodName);
+            if (handlers == null) {
+                logger.log(LogLevel.Warning, "Failed to find handler for '%s' method.", methodName);
+                return emptyAdapters;
+            }
+
+            if (handlers.size() == 0) {
+                throw new Exception(String.format("There are no callbacks registered for the method '%s'.", methodName));
+            }
+
+            return handlers.get(0).getAdapters();
+        }
     }
 }
\ No newline at end of file
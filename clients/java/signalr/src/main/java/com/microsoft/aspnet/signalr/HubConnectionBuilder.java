@@ -3,10 +3,28 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 public class HubConnectionBuilder {
     private String url;
     private Transport transport;
     private Logger logger;
+    private HubProtocol hubProtocol;
+    private Executor handlerExecutor;
+    private int handlerQueueCapacity;
+    private HandlerOverflowPolicy handlerOverflowPolicy;
+    private int batchMaxBytes;
+    private Duration batchMaxDelay;
+    private long sendHighWatermark;
+    private SendBackpressurePolicy sendBackpressurePolicy;
+    private Duration invocationTimeout;
+    private ReconnectPolicy reconnectPolicy;
+    private Duration keepAliveInterval;
+    private Duration serverTimeout;
+    private TransportRuntime transportRuntime;
+    private HttpBackend httpBackend;
+    private HubConnectionMetrics metrics;
     private HttpConnectionOptions options = null;
 
     public HubConnectionBuilder withUrl(String url) {
@@ -43,6 +61,197 @@ public class HubConnectionBuilder {
         return this;
     }
 
+    public HubConnectionBuilder withHubProtocol(HubProtocol hubProtocol) {
+        if (hubProtocol == null) {
+            throw new IllegalArgumentException("A valid hub protocol is required.");
+        }
+        this.hubProtocol = hubProtocol;
+        return this;
+    }
+
+    /**
+     * Runs hub method handlers on the given executor instead of the thread that received the message.
+     * Use {@link HandlerExecutors#newVirtualThreadPerTaskExecutor()} to run each invocation on a virtual thread.
+     *
+     * @param handlerExecutor The executor used to run handlers.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withHandlerExecutor(Executor handlerExecutor) {
+        if (handlerExecutor == null) {
+            throw new IllegalArgumentException("A valid executor is required.");
+        }
+        this.handlerExecutor = handlerExecutor;
+        return this;
+    }
+
+    /**
+     * Runs hub method handlers on the given executor with bounded handler queues.
+     *
+     * @param handlerExecutor The executor used to run handlers.
+     * @param queueCapacity   How many invocations each handler queue can hold.
+     * @param overflowPolicy  What to do with an invocation when its queue is full.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withHandlerExecutor(Executor handlerExecutor, int queueCapacity, HandlerOverflowPolicy overflowPolicy) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The handler queue capacity must be at least 1.");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("A valid overflow policy is required.");
+        }
+        withHandlerExecutor(handlerExecutor);
+        this.handlerQueueCapacity = queueCapacity;
+        this.handlerOverflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Gathers outgoing hub messages and sends them together in one frame.
+     *
+     * @param maxBytes The size at which a batch is sent right away.
+     * @param maxDelay The longest time a message waits for others to join its batch, zero sends the batch
+     *                 as soon as the client's timer thread is idle.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withOutboundBatching(int maxBytes, Duration maxDelay) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1.");
+        }
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("A valid batch delay is required.");
+        }
+        this.batchMaxBytes = maxBytes;
+        this.batchMaxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Limits how much data can wait to be written to the WebSocket.
+     *
+     * @param highWatermark The number of queued bytes above which the policy applies.
+     * @param policy        Whether sends wait for the queue to drain or are rejected.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withSendBackpressure(long highWatermark, SendBackpressurePolicy policy) {
+        if (highWatermark < 1) {
+            throw new IllegalArgumentException("The send high watermark must be at least 1 byte.");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("A valid backpressure policy is required.");
+        }
+        this.sendHighWatermark = highWatermark;
+        this.sendBackpressurePolicy = policy;
+        return this;
+    }
+
+    /**
+     * Fails invocations that get no result from the server within the timeout.
+     *
+     * @param timeout The default timeout for {@link HubConnection#invoke(Class, String, Object...)}.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withInvocationTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("A positive invocation timeout is required.");
+        }
+        this.invocationTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Reconnects a lost connection with the default {@link BackoffReconnectPolicy}.
+     *
+     * @return This builder.
+     */
+    public HubConnectionBuilder withAutomaticReconnect() {
+        return withAutomaticReconnect(new BackoffReconnectPolicy());
+    }
+
+    /**
+     * Reconnects a lost connection for as long as the policy returns a delay.
+     *
+     * @param reconnectPolicy Decides whether and when to retry.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withAutomaticReconnect(ReconnectPolicy reconnectPolicy) {
+        if (reconnectPolicy == null) {
+            throw new IllegalArgumentException("A valid reconnect policy is required.");
+        }
+        this.reconnectPolicy = reconnectPolicy;
+        return this;
+    }
+
+    /**
+     * Sends a ping when the client sent nothing else for the interval.
+     *
+     * @param keepAliveInterval The keep-alive interval.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withKeepAliveInterval(Duration keepAliveInterval) {
+        if (keepAliveInterval == null || keepAliveInterval.isNegative() || keepAliveInterval.isZero()) {
+            throw new IllegalArgumentException("A positive keep-alive interval is required.");
+        }
+        this.keepAliveInterval = keepAliveInterval;
+        return this;
+    }
+
+    /**
+     * Closes the connection when nothing was received from the server within the timeout.
+     *
+     * @param serverTimeout The server timeout.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withServerTimeout(Duration serverTimeout) {
+        if (serverTimeout == null || serverTimeout.isNegative() || serverTimeout.isZero()) {
+            throw new IllegalArgumentException("A positive server timeout is required.");
+        }
+        this.serverTimeout = serverTimeout;
+        return this;
+    }
+
+    /**
+     * Shares the HTTP threads and connection pool of the runtime with the other connections that use it.
+     *
+     * @param transportRuntime The shared runtime.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withTransportRuntime(TransportRuntime transportRuntime) {
+        if (transportRuntime == null) {
+            throw new IllegalArgumentException("A valid transport runtime is required.");
+        }
+        this.transportRuntime = transportRuntime;
+        return this;
+    }
+
+    /**
+     * Makes the connection's HTTP requests and WebSockets with the backend, see {@link HttpBackend}.
+     *
+     * @param httpBackend The HTTP backend.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withHttpBackend(HttpBackend httpBackend) {
+        if (httpBackend == null) {
+            throw new IllegalArgumentException("A valid HTTP backend is required.");
+        }
+        this.httpBackend = httpBackend;
+        return this;
+    }
+
+    /**
+     * Reports the connection's messages, invocations and handler times to the listener, see
+     * {@link InMemoryHubConnectionMetrics}.
+     *
+     * @param metrics The listener.
+     * @return This builder.
+     */
+    public HubConnectionBuilder withMetrics(HubConnectionMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("A valid metrics listener is required.");
+        }
+        this.metrics = metrics;
+        return this;
+    }
+
     public HubConnection build() {
         if (this.url == null) {
             throw new RuntimeException("The 'HubConnectionBuilder.withUrl' method must be called before building the connection.");
@@ -59,6 +268,46 @@ public class HubConnectionBuilder {
         if (options.getLogger() == null && this.logger != null) {
             options.setLogger(this.logger);
         }
+        if (options.getHubProtocol() == null && this.hubProtocol != null) {
+            options.setHubProtocol(this.hubProtocol);
+        }
+        if (options.getHandlerExecutor() == null && this.handlerExecutor != null) {
+            options.setHandlerExecutor(this.handlerExecutor);
+            if (this.handlerOverflowPolicy != null) {
+                options.setHandlerQueueCapacity(this.handlerQueueCapacity);
+                options.setHandlerOverflowPolicy(this.handlerOverflowPolicy);
+            }
+        }
+        if (options.getBatchMaxBytes() == 0 && this.batchMaxBytes > 0) {
+            options.setBatchMaxBytes(this.batchMaxBytes);
+            options.setBatchMaxDelay(this.batchMaxDelay);
+        }
+        if (this.sendBackpressurePolicy != null) {
+            options.setSendHighWatermark(this.sendHighWatermark);
+            options.setSendBackpressurePolicy(this.sendBackpressurePolicy);
+        }
+
+        if (options.getInvocationTimeout().isZero() && this.invocationTimeout != null) {
+            options.setInvocationTimeout(this.invocationTimeout);
+        }
+        if (options.getReconnectPolicy() == null && this.reconnectPolicy != null) {
+            options.setReconnectPolicy(this.reconnectPolicy);
+        }
+        if (this.keepAliveInterval != null) {
+            options.setKeepAliveInterval(this.keepAliveInterval);
+        }
+        if (this.serverTimeout != null) {
+            options.setServerTimeout(this.serverTimeout);
+        }
+        if (options.getTransportRuntime() == null && this.transportRuntime != null) {
+            options.setTransportRuntime(this.transportRuntime);
+        }
+        if (this.httpBackend != null) {
+            options.setHttpBackend(this.httpBackend);
+        }
+        if (this.metrics != null) {
+            options.setMetrics(this.metrics);
+        }
 
         return new HubConnection(url, options);
     }
@@ -0,0 +1,93 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+/**
+ * Listens to what a {@link HubConnection} does, for monitoring it without debug logging. Every method does
+ * nothing by default, implement the ones of interest. {@link InMemoryHubConnectionMetrics} keeps counters and
+ * latency histograms.
+ *
+ * <p>The methods are called on the connection's threads, often for every message, so they must be cheap and
+ * must not block or throw. One listener may be shared by many connections. Durations are in nanoseconds.</p>
+ */
+public interface HubConnectionMetrics {
+    /**
+     * Negotiate completed, redirects included.
+     *
+     * @param nanos How long negotiating took.
+     */
+    default void negotiated(long nanos) { }
+
+    /**
+     * The server answered the handshake request.
+     *
+     * @param nanos The time from sending the handshake request to receiving the answer.
+     */
+    default void handshakeCompleted(long nanos) { }
+
+    /**
+     * A message was serialized and handed to the transport, or to the batch it is sent in.
+     *
+     * @param type  The type of the message.
+     * @param bytes The size of the serialized message, text counts in UTF-8.
+     */
+    default void messageSent(HubMessageType type, long bytes) { }
+
+    /**
+     * A message handed to the transport was written, or failed to be. Messages sent and not written yet are
+     * the depth of the outbound queue.
+     *
+     * @param type      The type of the message.
+     * @param succeeded False if the transport failed to write it.
+     */
+    default void sendCompleted(HubMessageType type, boolean succeeded) { }
+
+    /**
+     * A frame arrived from the transport. Its messages are reported by {@link #messageReceived}, a frame may
+     * hold messages of several types.
+     *
+     * @param bytes The size of the frame, text counts in UTF-8.
+     */
+    default void frameReceived(long bytes) { }
+
+    /**
+     * A message was parsed from a received frame.
+     *
+     * @param type The type of the message.
+     */
+    default void messageReceived(HubMessageType type) { }
+
+    /**
+     * An invocation that waits for a result was sent.
+     *
+     * @param target The name of the server method.
+     */
+    default void invocationStarted(String target) { }
+
+    /**
+     * An invocation got its result, failed, timed out or was cancelled when the connection closed.
+     *
+     * @param target    The name of the server method.
+     * @param nanos     The time since {@link #invocationStarted}.
+     * @param succeeded False if the invocation completed with an error.
+     */
+    default void invocationCompleted(String target, long nanos, boolean succeeded) { }
+
+    /**
+     * An invocation failed because no result arrived within the invocation timeout. It is also reported as
+     * completed.
+     *
+     * @param target The name of the server method.
+     */
+    default void invocationTimedOut(String target) { }
+
+    /**
+     * The handlers registered for a target ran for an invocation from the server.
+     *
+     * @param target    The name of the client method the server invoked.
+     * @param nanos     How long all handlers of the target took together.
+     * @param succeeded False if a handler threw.
+     */
+    default void handlersCompleted(String target, long nanos, boolean succeeded) { }
+}
@@ -6,4 +6,8 @@ package com.microsoft.aspnet.signalr;
 public enum HubConnectionState {
     CONNECTED,
     DISCONNECTED,
+    /**
+     * The connection was lost and the {@link ReconnectPolicy} is trying to connect again.
+     */
+    RECONNECTING,
 }
\ No newline at end of file
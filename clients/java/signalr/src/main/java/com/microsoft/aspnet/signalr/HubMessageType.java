@@ -3,7 +3,7 @@
 
 package com.microsoft.aspnet.signalr;
 
-enum HubMessageType {
+public enum HubMessageType {
     INVOCATION(1),
     STREAM_ITEM(2),
     COMPLETION(3),
@@ -12,6 +12,6 @@ enum HubMessageType {
     PING(6),
     CLOSE(7);
 
-    public int value;
+    public final int value;
     HubMessageType(int id) { this.value = id; }
 }
@@ -3,10 +3,12 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
+
 /**
  * A protocol abstraction for communicating with SignalR hubs.
  */
-interface HubProtocol {
+public interface HubProtocol {
     String getName();
     int getVersion();
     TransferFormat getTransferFormat();
@@ -14,7 +16,9 @@ interface HubProtocol {
     /**
      * Creates a new list of {@link HubMessage}s.
      * @param message A string representation of one or more {@link HubMessage}s.
+     * @param binder Resolves the parameter and return types the messages are parsed into.
      * @return A list of {@link HubMessage}s.
+     * @throws Exception The message couldn't be parsed.
      */
     HubMessage[] parseMessages(String message, InvocationBinder binder) throws Exception;
 
@@ -24,4 +28,20 @@ interface HubProtocol {
      * @return A string representation of the message.
      */
     String writeMessage(HubMessage message);
+
+    /**
+     * Creates a new list of {@link HubMessage}s from binary data.
+     * @param message A buffer containing one or more {@link HubMessage}s.
+     * @param binder Resolves the parameter and return types the messages are parsed into.
+     * @return A list of {@link HubMessage}s.
+     * @throws Exception The message couldn't be parsed.
+     */
+    HubMessage[] parseMessages(ByteBuffer message, InvocationBinder binder) throws Exception;
+
+    /**
+     * Writes the specified {@link HubMessage} to a buffer.
+     * @param message The message to write.
+     * @return A buffer containing the encoded message.
+     */
+    ByteBuffer writeMessageBytes(HubMessage message);
 }
@@ -0,0 +1,167 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counters, gauges and {@link LatencyHistogram}s of the connections it is given to, without locks. The
+ * values add up over all those connections and are never reset, read them periodically and report the
+ * difference to get rates.
+ *
+ * <p>Each target that has handlers gets a histogram of its handler times, about 8 KB, so that slow targets
+ * stand out. Connections that receive invocations for an unbounded set of targets shouldn't use it.</p>
+ */
+public final class InMemoryHubConnectionMetrics implements HubConnectionMetrics {
+    private static final HubMessageType[] TYPES = HubMessageType.values();
+
+    private final LongAdder[] messagesSent = newAdders();
+    private final LongAdder[] bytesSent = newAdders();
+    private final LongAdder[] messagesReceived = newAdders();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final AtomicLong outboundQueueDepth = new AtomicLong();
+    private final AtomicLong pendingInvocations = new AtomicLong();
+    private final LongAdder timedOutInvocations = new LongAdder();
+    private final LatencyHistogram negotiateTime = new LatencyHistogram();
+    private final LatencyHistogram handshakeTime = new LatencyHistogram();
+    private final LatencyHistogram invocationLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> handlerTimes = new ConcurrentHashMap<>();
+
+    @Override
+    public void negotiated(long nanos) {
+        negotiateTime.record(nanos);
+    }
+
+    @Override
+    public void handshakeCompleted(long nanos) {
+        handshakeTime.record(nanos);
+    }
+
+    @Override
+    public void messageSent(HubMessageType type, long bytes) {
+        messagesSent[type.ordinal()].increment();
+        bytesSent[type.ordinal()].add(bytes);
+        outboundQueueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void sendCompleted(HubMessageType type, boolean succeeded) {
+        outboundQueueDepth.decrementAndGet();
+    }
+
+    @Override
+    public void frameReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void messageReceived(HubMessageType type) {
+        messagesReceived[type.ordinal()].increment();
+    }
+
+    @Override
+    public void invocationStarted(String target) {
+        pendingInvocations.incrementAndGet();
+    }
+
+    @Override
+    public void invocationCompleted(String target, long nanos, boolean succeeded) {
+        pendingInvocations.decrementAndGet();
+        invocationLatency.record(nanos);
+    }
+
+    @Override
+    public void invocationTimedOut(String target) {
+        timedOutInvocations.increment();
+    }
+
+    @Override
+    public void handlersCompleted(String target, long nanos, boolean succeeded) {
+        LatencyHistogram histogram = handlerTimes.get(target);
+        if (histogram == null) {
+            histogram = handlerTimes.computeIfAbsent(target, (t) -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public long getMessagesSent(HubMessageType type) {
+        return messagesSent[type.ordinal()].sum();
+    }
+
+    public long getBytesSent(HubMessageType type) {
+        return bytesSent[type.ordinal()].sum();
+    }
+
+    public long getMessagesReceived(HubMessageType type) {
+        return messagesReceived[type.ordinal()].sum();
+    }
+
+    /**
+     * @return The bytes of all frames received, frames aren't split up by message type.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * @return The messages handed to the transports that weren't written yet.
+     */
+    public long getOutboundQueueDepth() {
+        return outboundQueueDepth.get();
+    }
+
+    /**
+     * @return The invocations waiting for their result.
+     */
+    public long getPendingInvocations() {
+        return pendingInvocations.get();
+    }
+
+    public long getTimedOutInvocations() {
+        return timedOutInvocations.sum();
+    }
+
+    public LatencyHistogram getNegotiateTime() {
+        return negotiateTime;
+    }
+
+    public LatencyHistogram getHandshakeTime() {
+        return handshakeTime;
+    }
+
+    /**
+     * @return The round trip times of invocations, from sending them to their completion.
+     */
+    public LatencyHistogram getInvocationLatency() {
+        return invocationLatency;
+    }
+
+    /**
+     * @return The targets that handlers ran for.
+     */
+    public Set<String> getHandlerTargets() {
+        return Collections.unmodifiableSet(handlerTimes.keySet());
+    }
+
+    /**
+     * @param target The name of a client method.
+     * @return How long the handlers of the target took per invocation, or null if none ran yet.
+     */
+    public LatencyHistogram getHandlerTime(String target) {
+        return handlerTimes.get(target);
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[TYPES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -5,7 +5,25 @@ package com.microsoft.aspnet.signalr;
 
 import java.util.List;
 
+import com.google.gson.TypeAdapter;
+
 interface InvocationBinder {
     Class<?> getReturnType(String invocationId);
     List<Class<?>> getParameterTypes(String methodName) throws Exception;
-}
\ No newline at end of file
+
+    default TypeAdapter<?> getReturnTypeAdapter(String invocationId) {
+        return TypeAdapterResolver.resolve(getReturnType(invocationId));
+    }
+
+    default Class<?> getReturnType(int invocationId) {
+        return getReturnType(Integer.toString(invocationId));
+    }
+
+    default TypeAdapter<?> getReturnTypeAdapter(int invocationId) {
+        return getReturnTypeAdapter(Integer.toString(invocationId));
+    }
+
+    default TypeAdapter<?>[] getParameterAdapters(String methodName) throws Exception {
+        return TypeAdapterResolver.resolve(getParameterTypes(methodName));
+    }
+}
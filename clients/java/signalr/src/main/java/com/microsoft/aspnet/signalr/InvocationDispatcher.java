@@ -0,0 +1,193 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the handlers registered for an invocation. Without an executor handlers run inline on the
+ * thread that received the message. With an executor targets are hashed onto a fixed set of
+ * stripes, each stripe being a bounded queue that runs its tasks one at a time. Invocations of the
+ * same target therefore run in the order they were received, while targets on different stripes
+ * run in parallel and a slow handler no longer holds up completions or pings.
+ */
+class InvocationDispatcher {
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    // Upper bound on tasks a stripe runs before giving its executor thread back, so a busy
+    // target can't starve the other stripes of a small pool.
+    private static final int MAX_TASKS_PER_RUN = 64;
+
+    private final Executor executor;
+    private final Logger logger;
+    private final HandlerOverflowPolicy overflowPolicy;
+    private final HubConnectionMetrics metrics;
+    private final boolean recordMetrics;
+    private final Stripe[] stripes;
+
+    InvocationDispatcher(Executor executor, Logger logger) {
+        this(executor, logger, DEFAULT_QUEUE_CAPACITY, HandlerOverflowPolicy.BLOCK, Runtime.getRuntime().availableProcessors());
+    }
+
+    InvocationDispatcher(Executor executor, Logger logger, int queueCapacity, HandlerOverflowPolicy overflowPolicy, int concurrency) {
+        this(executor, logger, queueCapacity, overflowPolicy, concurrency, NullHubConnectionMetrics.INSTANCE);
+    }
+
+    InvocationDispatcher(Executor executor, Logger logger, int queueCapacity, HandlerOverflowPolicy overflowPolicy, int concurrency,
+                         HubConnectionMetrics metrics) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The handler queue capacity must be at least 1.");
+        }
+
+        this.executor = executor;
+        this.logger = logger;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+        this.recordMetrics = metrics != NullHubConnectionMetrics.INSTANCE;
+
+        // A power of two lets a target be mapped to its stripe with a mask.
+        int stripeCount = Integer.highestOneBit(Math.max(1, concurrency) * 2 - 1);
+        this.stripes = new Stripe[executor == null ? 0 : stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(queueCapacity);
+        }
+    }
+
+    /**
+     * Queues the handlers for an invocation.
+     *
+     * @throws RejectedExecutionException If the queue is full and the overflow policy is {@link HandlerOverflowPolicy#FAIL},
+     *                                    or if the executor rejected the task.
+     */
+    public void dispatch(String target, List<InvocationHandler> handlers, Object[] arguments) {
+        // Copy the handlers so that handlers added while the invocation is queued don't affect it.
+        InvocationHandler[] snapshot = handlers.toArray(new InvocationHandler[handlers.size()]);
+        if (executor == null) {
+            invokeHandlers(target, snapshot, arguments);
+            return;
+        }
+
+        stripeFor(target).enqueue(target, () -> {
+            try {
+                invokeHandlers(target, snapshot, arguments);
+            } catch (Exception e) {
+                logger.log(LogLevel.Error, "Invoking client method '%s' failed: %s", target, e);
+            }
+        });
+    }
+
+    private Stripe stripeFor(String target) {
+        int hash = target.hashCode();
+        // Spread the high bits down, String hashes of similar names often differ only there.
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    private void invokeHandlers(String target, InvocationHandler[] handlers, Object[] arguments) {
+        if (!recordMetrics) {
+            for (InvocationHandler handler : handlers) {
+                handler.getAction().invoke(arguments);
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            for (InvocationHandler handler : handlers) {
+                handler.getAction().invoke(arguments);
+            }
+            succeeded = true;
+        } finally {
+            metrics.handlersCompleted(target, System.nanoTime() - start, succeeded);
+        }
+    }
+
+    /**
+     * A bounded queue whose tasks run one at a time, in submission order, on the dispatcher's executor.
+     */
+    private final class Stripe implements Runnable {
+        private final ArrayDeque<Runnable> tasks;
+        private final int capacity;
+        private boolean scheduled;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.tasks = new ArrayDeque<>(Math.min(capacity, 16));
+        }
+
+        synchronized void enqueue(String target, Runnable task) {
+            if (tasks.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        try {
+                            while (tasks.size() >= capacity) {
+                                wait();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for room in the handler queue.", e);
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        tasks.poll();
+                        logger.log(LogLevel.Warning, "Handler queue is full, dropped the oldest queued invocation to make room for '%s'.", target);
+                        break;
+                    case FAIL:
+                    default:
+                        throw new RejectedExecutionException(String.format("Handler queue is full, could not queue an invocation of '%s'.", target));
+                }
+            }
+
+            tasks.add(task);
+            if (!scheduled) {
+                scheduled = true;
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled = false;
+                    tasks.pollLast();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_TASKS_PER_RUN; i++) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    notifyAll();
+                }
+                task.run();
+            }
+
+            synchronized (this) {
+                if (tasks.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    logger.log(LogLevel.Error, "The handler executor rejected the remaining %d queued invocation(s).", tasks.size());
+                    tasks.clear();
+                    scheduled = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -5,20 +5,28 @@ package com.microsoft.aspnet.signalr;
 
 import java.util.List;
 
+import com.google.gson.TypeAdapter;
+
 class InvocationHandler {
     private List<Class<?>> classes;
+    private TypeAdapter<?>[] adapters;
     private ActionBase action;
 
     InvocationHandler(ActionBase action, List<Class<?>> classes) {
         this.action = action;
         this.classes = classes;
+        this.adapters = TypeAdapterResolver.resolve(classes);
     }
 
     public List<Class<?>> getClasses() {
         return classes;
     }
 
+    public TypeAdapter<?>[] getAdapters() {
+        return adapters;
+    }
+
     public ActionBase getAction() {
         return action;
     }
-}
\ No newline at end of file
+}
@@ -8,6 +8,7 @@ class InvocationMessage extends HubMessage {
     protected String invocationId;
     private String target;
     private Object[] arguments;
+    private String[] streamIds;
 
     public InvocationMessage(String invocationId, String target, Object[] args) {
         this.invocationId = invocationId;
@@ -35,6 +36,17 @@ class InvocationMessage extends HubMessage {
         this.arguments = arguments;
     }
 
+    /**
+     * @return The ids of the streams the client uploads for this invocation, or null if there are none.
+     */
+    public String[] getStreamIds() {
+        return streamIds;
+    }
+
+    public void setStreamIds(String[] streamIds) {
+        this.streamIds = streamIds;
+    }
+
     @Override
     public HubMessageType getMessageType() {
         return HubMessageType.INVOCATION;
@@ -5,17 +5,23 @@ package com.microsoft.aspnet.signalr;
 
 import java.util.concurrent.CompletableFuture;
 
+import com.google.gson.TypeAdapter;
+
 class InvocationRequest {
     private Class<?> returnType;
+    private TypeAdapter<?> returnTypeAdapter;
     private CompletableFuture<Object> pendingCall = new CompletableFuture<>();
-    private String invocationId;
+    private int id;
+    private volatile HashedWheelTimer.Timeout timeout;
 
-    InvocationRequest(Class<?> returnType, String invocationId) {
+    InvocationRequest(Class<?> returnType, int id) {
         this.returnType = returnType;
-        this.invocationId = invocationId;
+        this.returnTypeAdapter = TypeAdapterResolver.resolve(returnType);
+        this.id = id;
     }
 
     public void complete(CompletionMessage completion) {
+        cancelTimeout();
         if (completion.getResult() != null) {
             pendingCall.complete(completion.getResult());
         } else {
@@ -24,13 +30,25 @@ class InvocationRequest {
     }
 
     public void fail(Exception ex) {
+        cancelTimeout();
         pendingCall.completeExceptionally(ex);
     }
 
     public void cancel() {
+        cancelTimeout();
         pendingCall.cancel(false);
     }
 
+    /**
+     * Hands an item of a server-to-client stream to the request.
+     *
+     * @param item The item, bound to the return type.
+     * @return false if the request isn't a stream invocation.
+     */
+    public boolean addItem(Object item) {
+        return false;
+    }
+
     public CompletableFuture<Object> getPendingCall() {
         return pendingCall;
     }
@@ -39,7 +57,22 @@ class InvocationRequest {
         return returnType;
     }
 
-    public String getInvocationId() {
-        return invocationId;
+    public TypeAdapter<?> getReturnTypeAdapter() {
+        return returnTypeAdapter;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setTimeout(HashedWheelTimer.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    private void cancelTimeout() {
+        HashedWheelTimer.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
     }
 }
\ No newline at end of file
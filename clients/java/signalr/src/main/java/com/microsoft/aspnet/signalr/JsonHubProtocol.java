@@ -4,7 +4,8 @@
 package com.microsoft.aspnet.signalr;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,13 +13,15 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 
-class JsonHubProtocol implements HubProtocol {
+public class JsonHubProtocol implements HubProtocol {
     private final JsonParser jsonParser = new JsonParser();
     private final Gson gson = new Gson();
     private static final String RECORD_SEPARATOR = "\u001e";
+    private static final char RECORD_SEPARATOR_CHAR = '\u001e';
 
     @Override
     public String getName() {
@@ -37,22 +40,26 @@ class JsonHubProtocol implements HubProtocol {
 
     @Override
     public HubMessage[] parseMessages(String payload, InvocationBinder binder) throws Exception {
-        if (payload != null && !payload.substring(payload.length() - 1).equals(RECORD_SEPARATOR)) {
+        if (payload != null && payload.charAt(payload.length() - 1) != RECORD_SEPARATOR_CHAR) {
             throw new RuntimeException("Message is incomplete.");
         }
 
-        String[] messages = payload.split(RECORD_SEPARATOR);
+        // A single reader walks every record in the payload in place. Each record is a top level
+        // JSON value, so the reader has to be lenient to accept more than one per document.
+        RecordSeparatedReader records = new RecordSeparatedReader(payload, RECORD_SEPARATOR_CHAR);
+        JsonReader reader = new JsonReader(records);
+        reader.setLenient(true);
         List<HubMessage> hubMessages = new ArrayList<>();
-        for (String str : messages) {
+        while (records.nextRecord()) {
             HubMessageType messageType = null;
+            int id = PendingInvocationTable.NO_ID;
             String invocationId = null;
             String target = null;
             String error = null;
-            ArrayList<Object> arguments = null;
+            Object[] arguments = null;
             JsonArray argumentsToken = null;
             Object result = null;
             JsonElement resultToken = null;
-            JsonReader reader = new JsonReader(new StringReader(str));
             reader.beginObject();
 
             do {
@@ -62,7 +69,14 @@ class JsonHubProtocol implements HubProtocol {
                         messageType = HubMessageType.values()[reader.nextInt() - 1];
                         break;
                     case "invocationId":
-                        invocationId = reader.nextString();
+                        // Ids of this client's invocations are numeric strings, reading them as an int
+                        // lets the pending invocation be found without a String key.
+                        try {
+                            id = reader.nextInt();
+                        } catch (NumberFormatException e) {
+                            // The reader keeps the token buffered when it isn't an int.
+                            invocationId = reader.nextString();
+                        }
                         break;
                     case "target":
                         target = reader.nextString();
@@ -71,19 +85,19 @@ class JsonHubProtocol implements HubProtocol {
                         error = reader.nextString();
                         break;
                     case "result":
-                        if (invocationId == null) {
-                            resultToken = jsonParser.parse(reader);
+                    case "item":
+                        // Stream items are bound to the invocation's return type just like results.
+                        if (id != PendingInvocationTable.NO_ID) {
+                            result = readValue(reader, binder.getReturnTypeAdapter(id));
+                        } else if (invocationId != null) {
+                            result = readValue(reader, binder.getReturnTypeAdapter(invocationId));
                         } else {
-                            result = gson.fromJson(reader, binder.getReturnType(invocationId));
+                            resultToken = jsonParser.parse(reader);
                         }
                         break;
-                    case "item":
-                        reader.skipValue();
-                        break;
                     case "arguments":
                         if (target != null) {
-                            List<Class<?>> types = binder.getParameterTypes(target);
-                            arguments = bindArguments(reader, types);
+                            arguments = bindArguments(reader, binder.getParameterAdapters(target));
                         } else {
                             argumentsToken = (JsonArray)jsonParser.parse(reader);
                         }
@@ -98,28 +112,39 @@ class JsonHubProtocol implements HubProtocol {
             } while (reader.hasNext());
 
             reader.endObject();
-            reader.close();
+
+            if (invocationId == null && id != PendingInvocationTable.NO_ID && messageType != HubMessageType.COMPLETION
+                    && messageType != HubMessageType.STREAM_ITEM) {
+                invocationId = Integer.toString(id);
+            }
 
             switch (messageType) {
                 case INVOCATION:
                     if (argumentsToken != null) {
-                        List<Class<?>> types = binder.getParameterTypes(target);
-                        arguments = bindArguments(argumentsToken, types);
+                        arguments = bindArguments(argumentsToken, binder.getParameterAdapters(target));
                     }
                     if (arguments == null) {
                         hubMessages.add(new InvocationMessage(invocationId, target, new Object[0]));
                     } else {
-                        hubMessages.add(new InvocationMessage(invocationId, target, arguments.toArray()));
+                        hubMessages.add(new InvocationMessage(invocationId, target, arguments));
                     }
                     break;
                 case COMPLETION:
+                case STREAM_ITEM:
                     if (resultToken != null) {
-                        result = gson.fromJson(resultToken, binder.getReturnType(invocationId));
+                        TypeAdapter<?> adapter = id != PendingInvocationTable.NO_ID ? binder.getReturnTypeAdapter(id)
+                                : binder.getReturnTypeAdapter(invocationId);
+                        result = adapter != null ? adapter.fromJsonTree(resultToken) : null;
+                    }
+                    if (messageType == HubMessageType.STREAM_ITEM) {
+                        hubMessages.add(invocationId == null ? new StreamItemMessage(id, result) : new StreamItemMessage(invocationId, result));
+                    } else if (invocationId == null) {
+                        hubMessages.add(new CompletionMessage(id, result, error));
+                    } else {
+                        hubMessages.add(new CompletionMessage(invocationId, result, error));
                     }
-                    hubMessages.add(new CompletionMessage(invocationId, result, error));
                     break;
                 case STREAM_INVOCATION:
-                case STREAM_ITEM:
                 case CANCEL_INVOCATION:
                     throw new UnsupportedOperationException(String.format("The message type %s is not supported yet.", messageType));
                 case PING:
@@ -136,6 +161,7 @@ class JsonHubProtocol implements HubProtocol {
                     break;
             }
         }
+        reader.close();
 
         return hubMessages.toArray(new HubMessage[hubMessages.size()]);
     }
@@ -145,30 +171,40 @@ class JsonHubProtocol implements HubProtocol {
         return gson.toJson(hubMessage) + RECORD_SEPARATOR;
     }
 
-    private ArrayList<Object> bindArguments(JsonArray argumentsToken, List<Class<?>> paramTypes) {
-        if (argumentsToken.size() != paramTypes.size()) {
-            throw new RuntimeException(String.format("Invocation provides %d argument(s) but target expects %d.", argumentsToken.size(), paramTypes.size()));
+    @Override
+    public HubMessage[] parseMessages(ByteBuffer payload, InvocationBinder binder) throws Exception {
+        return parseMessages(StandardCharsets.UTF_8.decode(payload).toString(), binder);
+    }
+
+    @Override
+    public ByteBuffer writeMessageBytes(HubMessage hubMessage) {
+        return ByteBuffer.wrap(writeMessage(hubMessage).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] bindArguments(JsonArray argumentsToken, TypeAdapter<?>[] paramAdapters) {
+        if (argumentsToken.size() != paramAdapters.length) {
+            throw new RuntimeException(String.format("Invocation provides %d argument(s) but target expects %d.", argumentsToken.size(), paramAdapters.length));
         }
 
-        ArrayList<Object> arguments = null;
-        if (paramTypes.size() >= 1) {
-            arguments = new ArrayList<>();
-            for (int i = 0; i < paramTypes.size(); i++) {
-                arguments.add(gson.fromJson(argumentsToken.get(i), paramTypes.get(i)));
+        Object[] arguments = null;
+        if (paramAdapters.length >= 1) {
+            arguments = new Object[paramAdapters.length];
+            for (int i = 0; i < paramAdapters.length; i++) {
+                arguments[i] = paramAdapters[i].fromJsonTree(argumentsToken.get(i));
             }
         }
 
         return arguments;
     }
 
-    private ArrayList<Object> bindArguments(JsonReader reader, List<Class<?>> paramTypes) throws IOException {
+    private Object[] bindArguments(JsonReader reader, TypeAdapter<?>[] paramAdapters) throws IOException {
         reader.beginArray();
-        int paramCount = paramTypes.size();
+        int paramCount = paramAdapters.length;
         int argCount = 0;
-        ArrayList<Object> arguments = new ArrayList<>();
+        Object[] arguments = new Object[paramCount];
         while (reader.peek() != JsonToken.END_ARRAY) {
             if (argCount < paramCount) {
-                arguments.add(gson.fromJson(reader, paramTypes.get(argCount)));
+                arguments[argCount] = paramAdapters[argCount].read(reader);
             } else {
                 reader.skipValue();
             }
@@ -182,4 +218,13 @@ class JsonHubProtocol implements HubProtocol {
         reader.endArray();
         return arguments;
     }
+
+    private static Object readValue(JsonReader reader, TypeAdapter<?> adapter) throws IOException {
+        if (adapter == null) {
+            // Nothing is waiting for this value, e.g. the invocation is unknown.
+            reader.skipValue();
+            return null;
+        }
+        return adapter.read(reader);
+    }
 }
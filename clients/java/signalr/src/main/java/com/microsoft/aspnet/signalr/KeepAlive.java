@@ -0,0 +1,118 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends a ping when the client sent nothing for the keep-alive interval, and reports a server timeout
+ * when nothing was received for the server timeout.
+ *
+ * <p>Sending and receiving only record the time. A single check per connection is scheduled on the
+ * shared scheduler thread for the earliest deadline and reschedules itself from there, so a busy
+ * connection is looked at about once per interval and an idle one only when a deadline is due.</p>
+ */
+class KeepAlive {
+    private final long keepAliveNanos;
+    private final long serverTimeoutNanos;
+    private final Runnable sendPing;
+    private final Runnable onServerTimeout;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier clock;
+
+    private volatile long lastSent;
+    private volatile long lastReceived;
+    // Guarded by this.
+    private ScheduledFuture<?> check;
+    private boolean stopped;
+
+    /**
+     * @param keepAliveNanos     The idle time after which a ping is sent, 0 to never send pings.
+     * @param serverTimeoutNanos The silence after which the server is considered gone, 0 to never time out.
+     */
+    KeepAlive(long keepAliveNanos, long serverTimeoutNanos, Runnable sendPing, Runnable onServerTimeout,
+              ScheduledExecutorService scheduler) {
+        this(keepAliveNanos, serverTimeoutNanos, sendPing, onServerTimeout, scheduler, System::nanoTime);
+    }
+
+    /**
+     * @param clock Reads the time in nanoseconds, tests pass one they advance by hand.
+     */
+    KeepAlive(long keepAliveNanos, long serverTimeoutNanos, Runnable sendPing, Runnable onServerTimeout,
+              ScheduledExecutorService scheduler, LongSupplier clock) {
+        this.keepAliveNanos = keepAliveNanos;
+        this.serverTimeoutNanos = serverTimeoutNanos;
+        this.sendPing = sendPing;
+        this.onServerTimeout = onServerTimeout;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    public void start() {
+        long now = clock.getAsLong();
+        lastSent = now;
+        lastReceived = now;
+        schedule(now);
+    }
+
+    public void stop() {
+        ScheduledFuture<?> pending;
+        synchronized (this) {
+            stopped = true;
+            pending = check;
+            check = null;
+        }
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    public void messageSent() {
+        lastSent = clock.getAsLong();
+    }
+
+    public void messageReceived() {
+        lastReceived = clock.getAsLong();
+    }
+
+    private void check() {
+        long now = clock.getAsLong();
+        if (serverTimeoutNanos > 0 && now - lastReceived >= serverTimeoutNanos) {
+            stop();
+            onServerTimeout.run();
+            return;
+        }
+        if (keepAliveNanos > 0 && now - lastSent >= keepAliveNanos) {
+            messageSent();
+            try {
+                sendPing.run();
+            } catch (RuntimeException e) {
+                // A failed ping means the connection is going away, which the transport reports.
+            }
+        }
+        schedule(clock.getAsLong());
+    }
+
+    private void schedule(long now) {
+        long delay = Long.MAX_VALUE;
+        if (keepAliveNanos > 0) {
+            delay = lastSent + keepAliveNanos - now;
+        }
+        if (serverTimeoutNanos > 0) {
+            delay = Math.min(delay, lastReceived + serverTimeoutNanos - now);
+        }
+        if (delay == Long.MAX_VALUE) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!stopped) {
+                check = scheduler.schedule(this::check, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -6,4 +6,16 @@ package com.microsoft.aspnet.signalr;
 public interface Logger {
     void log(LogLevel logLevel, String message);
     void log(LogLevel logLevel, String formattedMessage, Object ... args);
+
+    /**
+     * Lets callers skip building the arguments of messages that won't be logged, on paths that log for
+     * every message. Loggers that filter by level should override it, by default every level but None is
+     * enabled.
+     *
+     * @param logLevel The level of the message.
+     * @return True if messages of the level are logged.
+     */
+    default boolean isEnabled(LogLevel logLevel) {
+        return logLevel != LogLevel.None;
+    }
 }
@@ -0,0 +1,273 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Receives with GET requests that the server holds open until it has messages for the client, and
+ * sends with POST requests.
+ *
+ * <p>The next poll is sent as soon as a poll returns, while its payload is still being handed to the
+ * connection, so the server nearly always has a poll to answer. At most one payload waits behind the
+ * one that is being delivered, when another one would the next poll waits for delivery to catch up.
+ * Sends go through a {@link PostQueue}. Polls and POSTs are sent concurrently through the same
+ * {@link HttpClient}, which keeps their HTTP connections alive between requests.</p>
+ *
+ * <p>An instance serves a single connection, requests of a stopped connection could otherwise still
+ * complete after it was started again.</p>
+ */
+class LongPollingTransport implements Transport {
+    // The server answers a poll with an empty response after 90 seconds.
+    static final long POLL_TIMEOUT_MILLIS = 100_000;
+
+    private final Map<String, String> headers;
+    private final HttpClient client;
+    private final Logger logger;
+    private final TransferFormat transferFormat;
+    private OnReceiveCallBack onReceiveCallBack;
+    private Consumer<String> onClose;
+    private volatile String url;
+    private volatile boolean running;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile CompletableFuture<HttpResponse> currentPoll;
+
+    // Guarded by this.
+    private final ArrayDeque<byte[]> received = new ArrayDeque<>();
+    private boolean delivering;
+    private boolean pollDeferred;
+    private final PostQueue postQueue;
+
+    public LongPollingTransport(Map<String, String> headers, HttpClient client, Logger logger, TransferFormat transferFormat) {
+        this.headers = headers;
+        this.client = client;
+        this.logger = logger;
+        this.transferFormat = transferFormat;
+        this.postQueue = new PostQueue(client, headers, "LongPolling");
+    }
+
+    @Override
+    public CompletableFuture<Void> start(String url) {
+        this.url = url;
+        running = true;
+        postQueue.open(url);
+        logger.log(LogLevel.Debug, "Starting LongPolling transport.");
+
+        // The server finishes setting the connection up with the first poll and answers it right away.
+        CompletableFuture<Void> started = sendPoll().thenAccept((response) -> {
+            if (response.getStatusCode() != 200) {
+                throw new RuntimeException(String.format("Unexpected status code returned from poll: %d %s.",
+                        response.getStatusCode(), response.getStatusText()));
+            }
+            logger.log(LogLevel.Information, "LongPolling transport connected to: %s.", url);
+            if (pollCompleted(response, null)) {
+                poll();
+            }
+            deliver();
+        });
+        started.whenComplete((result, error) -> {
+            if (error != null) {
+                running = false;
+            }
+        });
+        return started;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        return postQueue.send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        return postQueue.send(bytes);
+    }
+
+    private CompletableFuture<HttpResponse> sendPoll() {
+        HttpRequest request = new HttpRequest();
+        request.setHeaders(headers);
+        request.setReadTimeout(POLL_TIMEOUT_MILLIS);
+        // The timestamp keeps proxies from answering the poll from a cache.
+        String pollUrl = url + (url.contains("?") ? "&" : "?") + "_=" + System.currentTimeMillis();
+        CompletableFuture<HttpResponse> poll = client.get(pollUrl, request);
+        currentPoll = poll;
+        return poll;
+    }
+
+    private void poll() {
+        while (running) {
+            CompletableFuture<HttpResponse> poll = sendPoll();
+            if (!poll.isDone()) {
+                poll.whenComplete((response, error) -> {
+                    if (pollCompleted(response, error)) {
+                        poll();
+                    }
+                    deliver();
+                });
+                return;
+            }
+
+            HttpResponse response = null;
+            Throwable error = null;
+            try {
+                response = poll.join();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            boolean pollNow = pollCompleted(response, error);
+            deliver();
+            if (!pollNow) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the next poll should be sent right away.
+     */
+    private boolean pollCompleted(HttpResponse response, Throwable error) {
+        if (!running) {
+            return false;
+        }
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            close(String.format("LongPolling poll failed: %s", cause.getMessage()));
+            return false;
+        }
+
+        switch (response.getStatusCode()) {
+            case 200:
+                break;
+            case 204:
+                logger.log(LogLevel.Information, "The server closed the LongPolling connection.");
+                close(null);
+                return false;
+            default:
+                close(String.format("Unexpected status code returned from poll: %d %s.", response.getStatusCode(), response.getStatusText()));
+                return false;
+        }
+
+        byte[] payload = response.getRawContent();
+        if (payload == null || payload.length == 0) {
+            // The poll timed out on the server.
+            return true;
+        }
+        synchronized (this) {
+            received.add(payload);
+            if (received.size() + (delivering ? 1 : 0) > 1) {
+                pollDeferred = true;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void deliver() {
+        synchronized (this) {
+            if (delivering || received.isEmpty()) {
+                return;
+            }
+            delivering = true;
+        }
+
+        while (true) {
+            byte[] payload;
+            synchronized (this) {
+                payload = received.poll();
+                if (payload == null || !running) {
+                    delivering = false;
+                    return;
+                }
+            }
+
+            try {
+                if (transferFormat == TransferFormat.BINARY) {
+                    onReceive(ByteBuffer.wrap(payload));
+                } else {
+                    onReceive(new String(payload, StandardCharsets.UTF_8));
+                }
+            } catch (Exception e) {
+                logger.log(LogLevel.Error, "Failed to process a LongPolling payload: %s", e.getMessage());
+            }
+
+            boolean pollNow;
+            synchronized (this) {
+                pollNow = pollDeferred;
+                pollDeferred = false;
+            }
+            if (pollNow) {
+                poll();
+            }
+        }
+    }
+
+    @Override
+    public void setOnReceive(OnReceiveCallBack callback) {
+        this.onReceiveCallBack = callback;
+    }
+
+    @Override
+    public void onReceive(String message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void onReceive(ByteBuffer message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void setOnClose(Consumer<String> onCloseCallback) {
+        this.onClose = onCloseCallback;
+    }
+
+    @Override
+    public CompletableFuture<Void> stop() {
+        if (!running) {
+            close(null);
+            return CompletableFuture.completedFuture(null);
+        }
+        running = false;
+
+        // The server answers the outstanding poll once the connection is deleted.
+        HttpRequest request = new HttpRequest();
+        request.setHeaders(headers);
+        return client.delete(url, request).handle((response, error) -> {
+            if (error != null) {
+                logger.log(LogLevel.Debug, "Failed to delete the LongPolling connection: %s", error.getMessage());
+            }
+            logger.log(LogLevel.Information, "LongPolling transport stopped.");
+            close(null);
+            return null;
+        });
+    }
+
+    private void close(String errorMessage) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        CompletableFuture<HttpResponse> poll = currentPoll;
+        if (poll != null) {
+            poll.cancel(false);
+        }
+        postQueue.close();
+        synchronized (this) {
+            received.clear();
+        }
+
+        if (onClose != null) {
+            onClose.accept(errorMessage);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+/**
+ * A binary {@link HubProtocol} that encodes messages with MessagePack.
+ * Every message is prefixed with its length encoded as a variable length integer.
+ */
+public class MessagePackHubProtocol implements HubProtocol {
+    private static final int ERROR_RESULT = 1;
+    private static final int VOID_RESULT = 2;
+    private static final int NON_VOID_RESULT = 3;
+
+    private final Gson gson = new Gson();
+
+    @Override
+    public String getName() {
+        return "messagepack";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public TransferFormat getTransferFormat() {
+        return TransferFormat.BINARY;
+    }
+
+    @Override
+    public HubMessage[] parseMessages(String message, InvocationBinder binder) {
+        throw new UnsupportedOperationException("The MessagePack protocol can only parse binary messages.");
+    }
+
+    @Override
+    public String writeMessage(HubMessage message) {
+        throw new UnsupportedOperationException("The MessagePack protocol can only write binary messages.");
+    }
+
+    @Override
+    public HubMessage[] parseMessages(ByteBuffer payload, InvocationBinder binder) throws Exception {
+        payload.order(ByteOrder.BIG_ENDIAN);
+        MessagePackReader reader = new MessagePackReader(payload);
+        List<HubMessage> hubMessages = new ArrayList<>();
+        while (payload.hasRemaining()) {
+            int length = readVarInt(payload);
+            if (length > payload.remaining()) {
+                throw new RuntimeException("Message is incomplete.");
+            }
+
+            int end = payload.position() + length;
+            HubMessage message = parseMessage(reader, binder);
+            if (message != null) {
+                hubMessages.add(message);
+            }
+
+            // Move to the end of the message, this skips any items a newer server might have appended.
+            payload.position(end);
+        }
+
+        return hubMessages.toArray(new HubMessage[hubMessages.size()]);
+    }
+
+    @Override
+    public ByteBuffer writeMessageBytes(HubMessage message) {
+        MessagePackWriter writer = new MessagePackWriter();
+        switch (message.getMessageType()) {
+            case INVOCATION:
+            case STREAM_INVOCATION:
+                InvocationMessage invocationMessage = (InvocationMessage) message;
+                String[] streamIds = invocationMessage.getStreamIds();
+                // Servers without upload streams expect five items, only add the stream ids when there are any.
+                writer.writeArrayHeader(streamIds == null ? 5 : 6);
+                writer.writeLong(message.getMessageType().value);
+                writer.writeMapHeader(0);
+                writer.writeString(invocationMessage.getInvocationId());
+                writer.writeString(invocationMessage.getTarget());
+                Object[] arguments = invocationMessage.getArguments();
+                writer.writeArrayHeader(arguments.length);
+                for (Object argument : arguments) {
+                    writer.writeValue(argument, gson);
+                }
+                if (streamIds != null) {
+                    writer.writeArrayHeader(streamIds.length);
+                    for (String streamId : streamIds) {
+                        writer.writeString(streamId);
+                    }
+                }
+                break;
+            case COMPLETION:
+                CompletionMessage completionMessage = (CompletionMessage) message;
+                int resultKind = completionMessage.getError() != null ? ERROR_RESULT
+                        : completionMessage.getResult() != null ? NON_VOID_RESULT : VOID_RESULT;
+                writer.writeArrayHeader(resultKind == VOID_RESULT ? 4 : 5);
+                writer.writeLong(HubMessageType.COMPLETION.value);
+                writer.writeMapHeader(0);
+                writer.writeString(completionMessage.getInvocationId());
+                writer.writeLong(resultKind);
+                if (resultKind == ERROR_RESULT) {
+                    writer.writeString(completionMessage.getError());
+                } else if (resultKind == NON_VOID_RESULT) {
+                    writer.writeValue(completionMessage.getResult(), gson);
+                }
+                break;
+            case STREAM_ITEM:
+                StreamItemMessage streamItemMessage = (StreamItemMessage) message;
+                writer.writeArrayHeader(4);
+                writer.writeLong(HubMessageType.STREAM_ITEM.value);
+                writer.writeMapHeader(0);
+                writer.writeString(streamItemMessage.getInvocationId());
+                writer.writeValue(streamItemMessage.getItem(), gson);
+                break;
+            case CANCEL_INVOCATION:
+                writer.writeArrayHeader(3);
+                writer.writeLong(HubMessageType.CANCEL_INVOCATION.value);
+                writer.writeMapHeader(0);
+                writer.writeString(((CancelInvocationMessage) message).getInvocationId());
+                break;
+            case PING:
+                writer.writeArrayHeader(1);
+                writer.writeLong(HubMessageType.PING.value);
+                break;
+            case CLOSE:
+                writer.writeArrayHeader(2);
+                writer.writeLong(HubMessageType.CLOSE.value);
+                writer.writeString(((CloseMessage) message).getError());
+                break;
+            default:
+                throw new UnsupportedOperationException(String.format("The message type %s is not supported yet.", message.getMessageType()));
+        }
+
+        return writer.toLengthPrefixedBuffer();
+    }
+
+    private HubMessage parseMessage(MessagePackReader reader, InvocationBinder binder) throws Exception {
+        reader.readArrayHeader();
+        int messageType = reader.readInt();
+        if (messageType < 1 || messageType > HubMessageType.values().length) {
+            // Ignore unknown message types, allows new clients to still work with old protocols
+            return null;
+        }
+
+        HubMessage message;
+        switch (HubMessageType.values()[messageType - 1]) {
+            case INVOCATION:
+                skipHeaders(reader);
+                String invocationId = reader.readString();
+                String target = reader.readString();
+                Object[] arguments = bindArguments(reader, binder.getParameterTypes(target), binder.getParameterAdapters(target));
+                message = new InvocationMessage(invocationId, target, arguments);
+                break;
+            case COMPLETION:
+                skipHeaders(reader);
+                int completionId = reader.tryReadDigitString();
+                String completionIdString = completionId == PendingInvocationTable.NO_ID ? reader.readString() : null;
+                int resultKind = reader.readInt();
+                String error = null;
+                Object result = null;
+                switch (resultKind) {
+                    case ERROR_RESULT:
+                        error = reader.readString();
+                        break;
+                    case VOID_RESULT:
+                        break;
+                    case NON_VOID_RESULT:
+                        if (completionIdString == null) {
+                            result = readValue(reader, binder.getReturnType(completionId), binder.getReturnTypeAdapter(completionId));
+                        } else {
+                            result = readValue(reader, binder.getReturnType(completionIdString), binder.getReturnTypeAdapter(completionIdString));
+                        }
+                        break;
+                    default:
+                        throw new RuntimeException(String.format("Invalid invocation result kind %d.", resultKind));
+                }
+                message = completionIdString == null ? new CompletionMessage(completionId, result, error)
+                        : new CompletionMessage(completionIdString, result, error);
+                break;
+            case STREAM_ITEM:
+                skipHeaders(reader);
+                int itemId = reader.tryReadDigitString();
+                String itemIdString = itemId == PendingInvocationTable.NO_ID ? reader.readString() : null;
+                if (itemIdString == null) {
+                    message = new StreamItemMessage(itemId, readValue(reader, binder.getReturnType(itemId), binder.getReturnTypeAdapter(itemId)));
+                } else {
+                    message = new StreamItemMessage(itemIdString,
+                            readValue(reader, binder.getReturnType(itemIdString), binder.getReturnTypeAdapter(itemIdString)));
+                }
+                break;
+            case PING:
+                message = PingMessage.getInstance();
+                break;
+            case CLOSE:
+                String closeError = reader.readString();
+                message = closeError != null ? new CloseMessage(closeError) : new CloseMessage();
+                break;
+            case STREAM_INVOCATION:
+            case CANCEL_INVOCATION:
+            default:
+                throw new UnsupportedOperationException(String.format("The message type %s is not supported yet.", HubMessageType.values()[messageType - 1]));
+        }
+
+        return message;
+    }
+
+    private Object[] bindArguments(MessagePackReader reader, List<Class<?>> paramTypes, TypeAdapter<?>[] paramAdapters) {
+        int argCount = reader.readArrayHeader();
+        int paramCount = paramTypes.size();
+        if (argCount != paramCount) {
+            throw new RuntimeException(String.format("Invocation provides %d argument(s) but target expects %d.", argCount, paramCount));
+        }
+
+        Object[] arguments = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            arguments[i] = readValue(reader, paramTypes.get(i), paramAdapters[i]);
+        }
+        return arguments;
+    }
+
+    private static Object readValue(MessagePackReader reader, Class<?> type, TypeAdapter<?> adapter) {
+        if (type == null) {
+            reader.skip();
+            return null;
+        }
+        if (reader.tryReadNil()) {
+            return null;
+        }
+
+        if (type == String.class) {
+            return reader.readString();
+        } else if (type == Integer.class || type == int.class) {
+            return reader.readInt();
+        } else if (type == Long.class || type == long.class) {
+            return reader.readLong();
+        } else if (type == Double.class || type == double.class) {
+            return reader.readDouble();
+        } else if (type == Float.class || type == float.class) {
+            return (float) reader.readDouble();
+        } else if (type == Boolean.class || type == boolean.class) {
+            return reader.readBoolean();
+        } else if (type == Short.class || type == short.class) {
+            return (short) reader.readLong();
+        } else if (type == Byte.class || type == byte.class) {
+            return (byte) reader.readLong();
+        } else if (type == byte[].class) {
+            return reader.readBinary();
+        }
+
+        return adapter.fromJsonTree(reader.readJsonElement());
+    }
+
+    private static void skipHeaders(MessagePackReader reader) {
+        int count = reader.readMapHeader();
+        for (int i = 0; i < count * 2; i++) {
+            reader.skip();
+        }
+    }
+
+    private static int readVarInt(ByteBuffer payload) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28 || !payload.hasRemaining()) {
+                throw new RuntimeException("Message is incomplete.");
+            }
+            b = payload.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (value < 0) {
+            throw new RuntimeException("Message is too large.");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,464 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Reads MessagePack values from a {@link ByteBuffer}, advancing its position.
+ */
+class MessagePackReader {
+    private final ByteBuffer buffer;
+
+    MessagePackReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int position() {
+        return buffer.position();
+    }
+
+    public int readArrayHeader() {
+        int format = readFormat();
+        if ((format & 0xf0) == 0x90) {
+            return format & 0x0f;
+        }
+
+        switch (format) {
+            case 0xdc:
+                return readUnsignedShort();
+            case 0xdd:
+                return readLength();
+            default:
+                throw unexpectedFormat("array", format);
+        }
+    }
+
+    public int readMapHeader() {
+        int format = readFormat();
+        if ((format & 0xf0) == 0x80) {
+            return format & 0x0f;
+        }
+
+        switch (format) {
+            case 0xde:
+                return readUnsignedShort();
+            case 0xdf:
+                return readLength();
+            default:
+                throw unexpectedFormat("map", format);
+        }
+    }
+
+    /**
+     * Consumes a nil value if it is the next value.
+     *
+     * @return true if a nil value was consumed.
+     */
+    public boolean tryReadNil() {
+        if (peekFormat() == 0xc0) {
+            buffer.get();
+            return true;
+        }
+        return false;
+    }
+
+    public String readString() {
+        int format = readFormat();
+        int length;
+        if ((format & 0xe0) == 0xa0) {
+            length = format & 0x1f;
+        } else {
+            switch (format) {
+                case 0xc0:
+                    return null;
+                case 0xd9:
+                    length = readUnsignedByte();
+                    break;
+                case 0xda:
+                    length = readUnsignedShort();
+                    break;
+                case 0xdb:
+                    length = readLength();
+                    break;
+                default:
+                    throw unexpectedFormat("string", format);
+            }
+        }
+
+        return readUtf8(length);
+    }
+
+    /**
+     * Reads a short string of decimal digits, such as an invocation id, as an int without creating a String.
+     *
+     * @return The value, or {@link PendingInvocationTable#NO_ID} without consuming anything if the next
+     *         value isn't a string of up to nine digits.
+     */
+    public int tryReadDigitString() {
+        int start = buffer.position();
+        int format = peekFormat();
+        int length;
+        int offset;
+        if ((format & 0xe0) == 0xa0) {
+            length = format & 0x1f;
+            offset = 1;
+        } else if (format == 0xd9) {
+            length = buffer.get(start + 1) & 0xff;
+            offset = 2;
+        } else {
+            return PendingInvocationTable.NO_ID;
+        }
+
+        // Nine digits always fit in an int.
+        if (length == 0 || length > 9) {
+            return PendingInvocationTable.NO_ID;
+        }
+
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int c = buffer.get(start + offset + i);
+            if (c < '0' || c > '9') {
+                return PendingInvocationTable.NO_ID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        buffer.position(start + offset + length);
+        return value;
+    }
+
+    public long readLong() {
+        int format = readFormat();
+        if (format <= 0x7f) {
+            return format;
+        }
+        if (format >= 0xe0) {
+            return (byte) format;
+        }
+
+        switch (format) {
+            case 0xcc:
+                return readUnsignedByte();
+            case 0xcd:
+                return readUnsignedShort();
+            case 0xce:
+                return buffer.getInt() & 0xffffffffL;
+            case 0xcf:
+                long value = buffer.getLong();
+                if (value < 0) {
+                    throw new RuntimeException("MessagePack uint64 value is too large to be read as a long.");
+                }
+                return value;
+            case 0xd0:
+                return buffer.get();
+            case 0xd1:
+                return buffer.getShort();
+            case 0xd2:
+                return buffer.getInt();
+            case 0xd3:
+                return buffer.getLong();
+            default:
+                throw unexpectedFormat("integer", format);
+        }
+    }
+
+    public int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new RuntimeException(String.format("MessagePack integer %d does not fit in an int.", value));
+        }
+        return (int) value;
+    }
+
+    public double readDouble() {
+        int format = peekFormat();
+        switch (format) {
+            case 0xca:
+                buffer.get();
+                return buffer.getFloat();
+            case 0xcb:
+                buffer.get();
+                return buffer.getDouble();
+            default:
+                return readLong();
+        }
+    }
+
+    public boolean readBoolean() {
+        int format = readFormat();
+        switch (format) {
+            case 0xc2:
+                return false;
+            case 0xc3:
+                return true;
+            default:
+                throw unexpectedFormat("boolean", format);
+        }
+    }
+
+    public byte[] readBinary() {
+        int format = readFormat();
+        int length;
+        switch (format) {
+            case 0xc4:
+                length = readUnsignedByte();
+                break;
+            case 0xc5:
+                length = readUnsignedShort();
+                break;
+            case 0xc6:
+                length = readLength();
+                break;
+            default:
+                throw unexpectedFormat("binary", format);
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads the next value into a JSON tree so that it can be bound to an arbitrary type with Gson.
+     */
+    public JsonElement readJsonElement() {
+        int format = peekFormat();
+        if (format <= 0x7f || format >= 0xe0) {
+            return new JsonPrimitive(readLong());
+        }
+        if ((format & 0xf0) == 0x80) {
+            return readJsonObject();
+        }
+        if ((format & 0xf0) == 0x90) {
+            return readJsonArray();
+        }
+        if ((format & 0xe0) == 0xa0) {
+            return new JsonPrimitive(readString());
+        }
+
+        switch (format) {
+            case 0xc0:
+                buffer.get();
+                return JsonNull.INSTANCE;
+            case 0xc2:
+            case 0xc3:
+                return new JsonPrimitive(readBoolean());
+            case 0xc4:
+            case 0xc5:
+            case 0xc6:
+                JsonArray bytes = new JsonArray();
+                for (byte b : readBinary()) {
+                    bytes.add(b);
+                }
+                return bytes;
+            case 0xca:
+            case 0xcb:
+                return new JsonPrimitive(readDouble());
+            case 0xcf:
+                buffer.get();
+                long value = buffer.getLong();
+                if (value < 0) {
+                    return new JsonPrimitive(new BigInteger(Long.toUnsignedString(value)));
+                }
+                return new JsonPrimitive(value);
+            case 0xcc:
+            case 0xcd:
+            case 0xce:
+            case 0xd0:
+            case 0xd1:
+            case 0xd2:
+            case 0xd3:
+                return new JsonPrimitive(readLong());
+            case 0xd9:
+            case 0xda:
+            case 0xdb:
+                return new JsonPrimitive(readString());
+            case 0xdc:
+            case 0xdd:
+                return readJsonArray();
+            case 0xde:
+            case 0xdf:
+                return readJsonObject();
+            default:
+                // Extension types have no JSON representation.
+                skip();
+                return JsonNull.INSTANCE;
+        }
+    }
+
+    /**
+     * Skips over the next value, including all of its children.
+     */
+    public void skip() {
+        int format = readFormat();
+        if (format <= 0x7f || format >= 0xe0) {
+            return;
+        }
+        if ((format & 0xf0) == 0x80) {
+            skipValues((format & 0x0f) * 2);
+            return;
+        }
+        if ((format & 0xf0) == 0x90) {
+            skipValues(format & 0x0f);
+            return;
+        }
+        if ((format & 0xe0) == 0xa0) {
+            skipBytes(format & 0x1f);
+            return;
+        }
+
+        switch (format) {
+            case 0xc0:
+            case 0xc2:
+            case 0xc3:
+                break;
+            case 0xc4:
+            case 0xd9:
+                skipBytes(readUnsignedByte());
+                break;
+            case 0xc5:
+            case 0xda:
+                skipBytes(readUnsignedShort());
+                break;
+            case 0xc6:
+            case 0xdb:
+                skipBytes(readLength());
+                break;
+            case 0xc7:
+                skipBytes(readUnsignedByte() + 1);
+                break;
+            case 0xc8:
+                skipBytes(readUnsignedShort() + 1);
+                break;
+            case 0xc9:
+                skipBytes(readLength() + 1);
+                break;
+            case 0xcc:
+            case 0xd0:
+                skipBytes(1);
+                break;
+            case 0xcd:
+            case 0xd1:
+                skipBytes(2);
+                break;
+            case 0xca:
+            case 0xce:
+            case 0xd2:
+                skipBytes(4);
+                break;
+            case 0xcb:
+            case 0xcf:
+            case 0xd3:
+                skipBytes(8);
+                break;
+            case 0xd4:
+                skipBytes(2);
+                break;
+            case 0xd5:
+                skipBytes(3);
+                break;
+            case 0xd6:
+                skipBytes(5);
+                break;
+            case 0xd7:
+                skipBytes(9);
+                break;
+            case 0xd8:
+                skipBytes(17);
+                break;
+            case 0xdc:
+                skipValues(readUnsignedShort());
+                break;
+            case 0xdd:
+                skipValues(readLength());
+                break;
+            case 0xde:
+                skipValues(readUnsignedShort() * 2);
+                break;
+            case 0xdf:
+                skipValues(readLength() * 2);
+                break;
+            default:
+                throw unexpectedFormat("value", format);
+        }
+    }
+
+    private JsonObject readJsonObject() {
+        int count = readMapHeader();
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < count; i++) {
+            JsonElement key = readJsonElement();
+            object.add(key.isJsonPrimitive() ? key.getAsString() : key.toString(), readJsonElement());
+        }
+        return object;
+    }
+
+    private JsonArray readJsonArray() {
+        int count = readArrayHeader();
+        JsonArray array = new JsonArray(count);
+        for (int i = 0; i < count; i++) {
+            array.add(readJsonElement());
+        }
+        return array;
+    }
+
+    private String readUtf8(int length) {
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            skipBytes(length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private void skipValues(long count) {
+        for (long i = 0; i < count; i++) {
+            skip();
+        }
+    }
+
+    private void skipBytes(int count) {
+        buffer.position(buffer.position() + count);
+    }
+
+    private int peekFormat() {
+        return buffer.get(buffer.position()) & 0xff;
+    }
+
+    private int readFormat() {
+        return buffer.get() & 0xff;
+    }
+
+    private int readUnsignedByte() {
+        return buffer.get() & 0xff;
+    }
+
+    private int readUnsignedShort() {
+        return buffer.getShort() & 0xffff;
+    }
+
+    private int readLength() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            throw new RuntimeException("MessagePack length is too large.");
+        }
+        return length;
+    }
+
+    private static RuntimeException unexpectedFormat(String expected, int format) {
+        return new RuntimeException(String.format("Expected a MessagePack %s but found format 0x%02x.", expected, format));
+    }
+}
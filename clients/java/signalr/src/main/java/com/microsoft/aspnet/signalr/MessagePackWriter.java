@@ -0,0 +1,319 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Writes MessagePack values into a growable byte array.
+ */
+class MessagePackWriter {
+    // Room left in front of the first value so that a length prefix can be added without copying.
+    private static final int PREFIX_RESERVE = 5;
+
+    private byte[] buffer;
+    private int position;
+
+    MessagePackWriter() {
+        this(256);
+    }
+
+    MessagePackWriter(int initialCapacity) {
+        this.buffer = new byte[PREFIX_RESERVE + initialCapacity];
+        this.position = PREFIX_RESERVE;
+    }
+
+    public void writeArrayHeader(int count) {
+        if (count < 16) {
+            writeByte(0x90 | count);
+        } else if (count <= 0xffff) {
+            ensureCapacity(3);
+            writeByte(0xdc);
+            writeShort(count);
+        } else {
+            ensureCapacity(5);
+            writeByte(0xdd);
+            writeInt(count);
+        }
+    }
+
+    public void writeMapHeader(int count) {
+        if (count < 16) {
+            writeByte(0x80 | count);
+        } else if (count <= 0xffff) {
+            ensureCapacity(3);
+            writeByte(0xde);
+            writeShort(count);
+        } else {
+            ensureCapacity(5);
+            writeByte(0xdf);
+            writeInt(count);
+        }
+    }
+
+    public void writeNil() {
+        writeByte(0xc0);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 0xc3 : 0xc2);
+    }
+
+    public void writeLong(long value) {
+        ensureCapacity(9);
+        if (value >= 0) {
+            if (value <= 0x7f) {
+                writeByte((int) value);
+            } else if (value <= 0xff) {
+                writeByte(0xcc);
+                writeByte((int) value);
+            } else if (value <= 0xffff) {
+                writeByte(0xcd);
+                writeShort((int) value);
+            } else if (value <= 0xffffffffL) {
+                writeByte(0xce);
+                writeInt((int) value);
+            } else {
+                writeByte(0xcf);
+                writeLongBits(value);
+            }
+        } else {
+            if (value >= -32) {
+                writeByte((int) value & 0xff);
+            } else if (value >= Byte.MIN_VALUE) {
+                writeByte(0xd0);
+                writeByte((int) value & 0xff);
+            } else if (value >= Short.MIN_VALUE) {
+                writeByte(0xd1);
+                writeShort((int) value);
+            } else if (value >= Integer.MIN_VALUE) {
+                writeByte(0xd2);
+                writeInt((int) value);
+            } else {
+                writeByte(0xd3);
+                writeLongBits(value);
+            }
+        }
+    }
+
+    public void writeFloat(float value) {
+        ensureCapacity(5);
+        writeByte(0xca);
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        ensureCapacity(9);
+        writeByte(0xcb);
+        writeLongBits(Double.doubleToLongBits(value));
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeNil();
+            return;
+        }
+
+        int length = utf8Length(value);
+        ensureCapacity(5 + length);
+        if (length < 32) {
+            writeByte(0xa0 | length);
+        } else if (length <= 0xff) {
+            writeByte(0xd9);
+            writeByte(length);
+        } else if (length <= 0xffff) {
+            writeByte(0xda);
+            writeShort(length);
+        } else {
+            writeByte(0xdb);
+            writeInt(length);
+        }
+        writeUtf8(value);
+    }
+
+    public void writeBinary(byte[] value) {
+        int length = value.length;
+        ensureCapacity(5 + length);
+        if (length <= 0xff) {
+            writeByte(0xc4);
+            writeByte(length);
+        } else if (length <= 0xffff) {
+            writeByte(0xc5);
+            writeShort(length);
+        } else {
+            writeByte(0xc6);
+            writeInt(length);
+        }
+        System.arraycopy(value, 0, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * Writes an arbitrary value. Common scalar types are written directly, everything else is
+     * converted to a JSON tree with Gson first.
+     */
+    public void writeValue(Object value, Gson gson) {
+        if (value == null) {
+            writeNil();
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            writeBoolean((Boolean) value);
+        } else if (value instanceof byte[]) {
+            writeBinary((byte[]) value);
+        } else {
+            writeJsonElement(gson.toJsonTree(value));
+        }
+    }
+
+    public void writeJsonElement(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            writeNil();
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            writeMapHeader(object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                writeString(entry.getKey());
+                writeJsonElement(entry.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            writeArrayHeader(array.size());
+            for (JsonElement item : array) {
+                writeJsonElement(item);
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                writeBoolean(primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                Number number = primitive.getAsNumber();
+                double doubleValue = number.doubleValue();
+                long longValue = number.longValue();
+                if (doubleValue == longValue && !(number instanceof Double || number instanceof Float)) {
+                    writeLong(longValue);
+                } else {
+                    writeDouble(doubleValue);
+                }
+            } else {
+                writeString(primitive.getAsString());
+            }
+        }
+    }
+
+    /**
+     * Returns the written bytes prefixed with their length as a variable length integer.
+     * The prefix is placed in space reserved in front of the data, so nothing is copied.
+     */
+    public ByteBuffer toLengthPrefixedBuffer() {
+        int length = position - PREFIX_RESERVE;
+        int prefixSize = varIntSize(length);
+        int start = PREFIX_RESERVE - prefixSize;
+        int value = length;
+        for (int i = start; i < PREFIX_RESERVE; i++) {
+            int b = value & 0x7f;
+            value >>>= 7;
+            buffer[i] = (byte) (value != 0 ? b | 0x80 : b);
+        }
+        return ByteBuffer.wrap(buffer, start, prefixSize + length);
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced with '?' like String.getBytes does.
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void writeUtf8(String value) {
+        byte[] bytes = buffer;
+        int p = position;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[p++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[p++] = (byte) (0xc0 | (c >> 6));
+                bytes[p++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[p++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[p++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                bytes[p++] = (byte) '?';
+            } else {
+                bytes[p++] = (byte) (0xe0 | (c >> 12));
+                bytes[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[p++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        position = p;
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        buffer[position++] = (byte) (value >> 24);
+        buffer[position++] = (byte) (value >> 16);
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeLongBits(long value) {
+        writeInt((int) (value >> 32));
+        writeInt((int) value);
+    }
+
+    private void ensureCapacity(int count) {
+        if (position + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + count));
+        }
+    }
+}
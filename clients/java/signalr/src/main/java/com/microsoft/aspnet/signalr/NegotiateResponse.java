@@ -5,14 +5,19 @@ package com.microsoft.aspnet.signalr;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.gson.stream.JsonReader;
 
 class NegotiateResponse {
     private String connectionId;
-    private Set<String> availableTransports = new HashSet<>();
+    private Set<String> availableTransports = new LinkedHashSet<>();
+    private Map<String, Set<String>> transferFormats = new HashMap<>();
     private String redirectUrl;
     private String accessToken;
     private String error;
@@ -36,26 +41,33 @@ class NegotiateResponse {
                 case "availableTransports":
                     reader.beginArray();
                     while (reader.hasNext()) {
+                        String transport = null;
+                        Set<String> formats = new HashSet<>();
                         reader.beginObject();
                         while (reader.hasNext()) {
-                            String transport = null;
                             String property = reader.nextName();
                             switch (property) {
                                 case "transport":
                                     transport = reader.nextString();
                                     break;
                                 case "transferFormats":
-                                    // transfer formats aren't supported currently
-                                    reader.skipValue();
+                                    reader.beginArray();
+                                    while (reader.hasNext()) {
+                                        formats.add(reader.nextString());
+                                    }
+                                    reader.endArray();
                                     break;
                                 default:
                                     // Skip unknown property, allows new clients to still work with old protocols
                                     reader.skipValue();
                                     break;
                             }
-                            this.availableTransports.add(transport);
                         }
                         reader.endObject();
+                        if (transport != null) {
+                            this.availableTransports.add(transport);
+                            this.transferFormats.put(transport, formats);
+                        }
                     }
                     reader.endArray();
                     break;
@@ -81,6 +93,15 @@ class NegotiateResponse {
         return availableTransports;
     }
 
+    /**
+     * @return The transfer formats the server offers for the transport, "Text" and "Binary", empty if
+     * the transport isn't offered.
+     */
+    public Set<String> getTransferFormats(String transport) {
+        Set<String> formats = transferFormats.get(transport);
+        return formats != null ? formats : Collections.emptySet();
+    }
+
     public String getRedirectUrl() {
         return redirectUrl;
     }
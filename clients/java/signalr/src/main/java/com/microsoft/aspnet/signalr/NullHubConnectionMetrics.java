@@ -0,0 +1,13 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+/**
+ * Records nothing, a connection with it skips the timing and counting that other listeners need.
+ */
+final class NullHubConnectionMetrics implements HubConnectionMetrics {
+    static final NullHubConnectionMetrics INSTANCE = new NullHubConnectionMetrics();
+
+    private NullHubConnectionMetrics() { }
+}
@@ -9,4 +9,9 @@ class NullLogger implements Logger {
 
     @Override
     public void log(LogLevel logLevel, String formattedMessage, Object... args) { }
+
+    @Override
+    public boolean isEnabled(LogLevel logLevel) {
+        return false;
+    }
 }
@@ -3,6 +3,7 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
@@ -13,6 +14,7 @@ import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.WebSocket;
 import okhttp3.WebSocketListener;
+import okio.ByteString;
 
 class OkHttpWebSocketWrapper extends WebSocketWrapper {
     private WebSocket websocketClient;
@@ -24,12 +26,21 @@ class OkHttpWebSocketWrapper extends WebSocketWrapper {
     private BiConsumer<Integer, String> onClose;
     private CompletableFuture<Void> startFuture = new CompletableFuture<>();
     private CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    private SendQueue sendQueue;
 
     public OkHttpWebSocketWrapper(String url, Map<String, String> headers, OkHttpClient client, Logger logger) {
+        this(url, headers, client, logger, SendQueue.DEFAULT_HIGH_WATERMARK, SendBackpressurePolicy.AWAIT);
+    }
+
+    public OkHttpWebSocketWrapper(String url, Map<String, String> headers, OkHttpClient client, Logger logger,
+                                  long sendHighWatermark, SendBackpressurePolicy sendBackpressurePolicy) {
         this.url = url;
         this.headers = headers;
         this.client = client;
         this.logger = logger;
+        // OkHttp doesn't report written messages, the shared poller watches its queue size instead.
+        this.sendQueue = new SendQueue(() -> websocketClient.queueSize(), sendHighWatermark, sendBackpressurePolicy,
+                SendQueuePoller.shared(), client.dispatcher().executorService());
     }
 
     @Override
@@ -56,8 +67,14 @@ class OkHttpWebSocketWrapper extends WebSocketWrapper {
 
     @Override
     public CompletableFuture<Void> send(String message) {
-        websocketClient.send(message);
-        return CompletableFuture.completedFuture(null);
+        // OkHttp counts queued text by its UTF-8 length.
+        return sendQueue.send(MessagePackWriter.utf8Length(message), () -> websocketClient.send(message));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        ByteString bytes = ByteString.of(message);
+        return sendQueue.send(bytes.size(), () -> websocketClient.send(bytes));
     }
 
     @Override
@@ -81,13 +98,23 @@ class OkHttpWebSocketWrapper extends WebSocketWrapper {
             try {
                 onReceive.invoke(message);
             } catch (Exception e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                logger.log(LogLevel.Error, "Failed to process a WebSocket message: %s", e.getMessage());
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, ByteString bytes) {
+            try {
+                // The buffer is a read-only view of the frame, nothing is copied.
+                onReceive.invoke(bytes.asByteBuffer());
+            } catch (Exception e) {
+                logger.log(LogLevel.Error, "Failed to process a WebSocket message: %s", e.getMessage());
             }
         }
 
         @Override
         public void onClosing(WebSocket webSocket, int code, String reason) {
+            sendQueue.close(null);
             onClose.accept(code, reason);
             closeFuture.complete(null);
             checkStartFailure();
@@ -97,6 +124,7 @@ class OkHttpWebSocketWrapper extends WebSocketWrapper {
         public void onFailure(WebSocket webSocket, Throwable t, Response response) {
             logger.log(LogLevel.Error, "Websocket closed from an error: %s.", t.getMessage());
             closeFuture.completeExceptionally(new RuntimeException(t));
+            sendQueue.close(new RuntimeException(t));
             onClose.accept(null, t.getMessage());
             checkStartFailure();
         }
@@ -3,6 +3,9 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
+
 interface OnReceiveCallBack {
     void invoke(String message) throws Exception;
+    void invoke(ByteBuffer message) throws Exception;
 }
@@ -0,0 +1,182 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces hub messages into as few transport sends as possible. Both hub protocols delimit their
+ * messages themselves, so several messages can share one frame.
+ *
+ * <p>A batch is sent once it reaches the byte limit, or when its delay expires. With a delay of zero
+ * the batch is sent as soon as the scheduler thread is idle, which gathers the messages that were
+ * sent in a burst without holding any of them back for a fixed time.</p>
+ */
+class OutboundBatcher {
+    private final Transport transport;
+    private final int maxBytes;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService scheduler;
+
+    private StringBuilder text;
+    private byte[] bytes;
+    private int size;
+    private CompletableFuture<Void> batchFuture;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    OutboundBatcher(Transport transport, int maxBytes, long maxDelayNanos, ScheduledExecutorService scheduler) {
+        this.transport = transport;
+        this.maxBytes = maxBytes;
+        this.maxDelayNanos = maxDelayNanos;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Adds a text message to the current batch. The size of text messages is counted in characters.
+     *
+     * @return A future that completes when the batch containing the message has been sent.
+     */
+    public synchronized CompletableFuture<Void> send(String message) {
+        if (closed) {
+            return failedFuture(new IllegalStateException("The connection is not active."));
+        }
+        if (bytes != null) {
+            flush();
+        }
+
+        if (size + message.length() > maxBytes) {
+            flush();
+            if (message.length() >= maxBytes) {
+                return transport.send(message);
+            }
+        }
+
+        if (text == null) {
+            text = new StringBuilder(Math.min(maxBytes, 1024));
+        }
+        text.append(message);
+        size += message.length();
+        return added();
+    }
+
+    /**
+     * Adds a binary message to the current batch.
+     *
+     * @return A future that completes when the batch containing the message has been sent.
+     */
+    public synchronized CompletableFuture<Void> send(ByteBuffer message) {
+        if (closed) {
+            return failedFuture(new IllegalStateException("The connection is not active."));
+        }
+        if (text != null) {
+            flush();
+        }
+
+        int length = message.remaining();
+        if (size + length > maxBytes) {
+            flush();
+            if (length >= maxBytes) {
+                return transport.send(message);
+            }
+        }
+
+        if (bytes == null) {
+            bytes = new byte[Math.min(maxBytes, 1024)];
+        } else if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.min(maxBytes, Math.max(bytes.length * 2, size + length)));
+        }
+        message.get(bytes, size, length);
+        size += length;
+        return added();
+    }
+
+    /**
+     * Sends the current batch, if there is one.
+     *
+     * @return A future that completes when the batch has been sent.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (size == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = batchFuture;
+        CompletableFuture<Void> sent;
+        try {
+            // Sending while holding the lock keeps batches in order, transports only queue the data.
+            if (text != null) {
+                sent = transport.send(text.toString());
+                text = null;
+            } else {
+                // The transport may hold on to the buffer, so the next batch starts a new one.
+                sent = transport.send(ByteBuffer.wrap(bytes, 0, size));
+                bytes = null;
+            }
+        } catch (Exception e) {
+            text = null;
+            bytes = null;
+            sent = failedFuture(e);
+        } finally {
+            size = 0;
+            batchFuture = null;
+        }
+
+        sent.whenComplete((result, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Drops the current batch and rejects further messages.
+     */
+    public synchronized void close(Exception exception) {
+        closed = true;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (batchFuture != null) {
+            batchFuture.completeExceptionally(exception != null ? exception : new IllegalStateException("The connection was stopped."));
+            batchFuture = null;
+        }
+        text = null;
+        bytes = null;
+        size = 0;
+    }
+
+    private CompletableFuture<Void> added() {
+        if (batchFuture == null) {
+            batchFuture = new CompletableFuture<>();
+        }
+        CompletableFuture<Void> future = batchFuture;
+
+        if (size >= maxBytes) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    private static CompletableFuture<Void> failedFuture(Throwable error) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
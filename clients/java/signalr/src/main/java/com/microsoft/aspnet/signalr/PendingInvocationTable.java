@@ -0,0 +1,281 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free open addressing table of the invocations waiting for a completion, keyed by their int id.
+ *
+ * <p>Slots are probed linearly and change state with compare-and-set only. A removed invocation
+ * leaves a tombstone so that probes for other ids keep going past it. When too many slots have been
+ * used the table is copied into a new one; every slot of the old table is replaced by a forwarding
+ * marker as it is copied, and operations that run into the marker continue in the new table once
+ * the copy is complete.</p>
+ *
+ * <p>Invocation ids are unique, so adding never has to look for an existing entry with the same id.</p>
+ */
+class PendingInvocationTable {
+    static final int NO_ID = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final InvocationRequest TOMBSTONE = new InvocationRequest(null, NO_ID);
+    private static final InvocationRequest MOVED = new InvocationRequest(null, NO_ID);
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    public void add(InvocationRequest irq) {
+        Table t = table;
+        while (!t.add(irq)) {
+            t = t.resize(this);
+        }
+    }
+
+    public InvocationRequest get(int id) {
+        if (id < 0) {
+            return null;
+        }
+
+        Table t = table;
+        search:
+        while (true) {
+            int mask = t.slots.length() - 1;
+            int index = id & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                InvocationRequest irq = t.slots.get(index);
+                if (irq == null) {
+                    return null;
+                }
+                if (irq == MOVED) {
+                    t = t.awaitCopied(this);
+                    continue search;
+                }
+                if (irq != TOMBSTONE && irq.getId() == id) {
+                    return irq;
+                }
+                index = (index + 1) & mask;
+            }
+
+            Table next = t.next.get();
+            if (next == null) {
+                return null;
+            }
+            t = t.awaitCopied(this);
+        }
+    }
+
+    public InvocationRequest remove(int id) {
+        if (id < 0) {
+            return null;
+        }
+
+        Table t = table;
+        search:
+        while (true) {
+            int mask = t.slots.length() - 1;
+            int index = id & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                InvocationRequest irq = t.slots.get(index);
+                if (irq == null) {
+                    return null;
+                }
+                if (irq == MOVED) {
+                    t = t.awaitCopied(this);
+                    continue search;
+                }
+                if (irq != TOMBSTONE && irq.getId() == id) {
+                    if (t.slots.compareAndSet(index, irq, TOMBSTONE)) {
+                        return irq;
+                    }
+                    // The slot was removed or forwarded concurrently, look at it again.
+                    probes--;
+                    continue;
+                }
+                index = (index + 1) & mask;
+            }
+
+            Table next = t.next.get();
+            if (next == null) {
+                return null;
+            }
+            t = t.awaitCopied(this);
+        }
+    }
+
+    /**
+     * Removes every pending invocation and passes it to the given action.
+     */
+    public void drain(Consumer<InvocationRequest> action) {
+        Table t = table;
+        while (t != null) {
+            for (int i = 0; i < t.slots.length(); i++) {
+                InvocationRequest irq = t.slots.get(i);
+                if (irq != null && irq != TOMBSTONE && irq != MOVED && t.slots.compareAndSet(i, irq, TOMBSTONE)) {
+                    action.accept(irq);
+                }
+            }
+            t = t.next.get();
+        }
+    }
+
+    /**
+     * Parses an invocation id that was written by this client, returns {@link #NO_ID} for anything else.
+     */
+    public static int parseId(String invocationId) {
+        if (invocationId == null || invocationId.isEmpty() || invocationId.length() > 10) {
+            return NO_ID;
+        }
+
+        long value = 0;
+        for (int i = 0; i < invocationId.length(); i++) {
+            char c = invocationId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_ID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? NO_ID : (int) value;
+    }
+
+    private static final class Table {
+        final AtomicReferenceArray<InvocationRequest> slots;
+        final AtomicReference<Table> next = new AtomicReference<>();
+        // Slots that are no longer null, live entries and tombstones alike. Slots never become null again.
+        final AtomicInteger used = new AtomicInteger();
+
+        Table(int capacity) {
+            slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        /**
+         * @return false if the table is full or being resized, the caller should add to the next table.
+         */
+        boolean add(InvocationRequest irq) {
+            int mask = slots.length() - 1;
+            int index = irq.getId() & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                InvocationRequest current = slots.get(index);
+                if (current == MOVED || next.get() != null) {
+                    return false;
+                }
+                if (current == null) {
+                    // Keep the load factor at 3/4 so that misses find a null slot quickly.
+                    if (used.get() >= slots.length() - (slots.length() >> 2)) {
+                        return false;
+                    }
+                    if (slots.compareAndSet(index, null, irq)) {
+                        used.incrementAndGet();
+                        return true;
+                    }
+                    continue;
+                }
+                if (current == TOMBSTONE) {
+                    if (slots.compareAndSet(index, TOMBSTONE, irq)) {
+                        return true;
+                    }
+                    continue;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * Copies this table into a new one. Threads that lose the race to create the new table wait
+         * for the copy to be published, resizing is rare enough that they don't need to help.
+         */
+        Table resize(PendingInvocationTable owner) {
+            Table existing = next.get();
+            if (existing != null) {
+                awaitPublished(owner);
+                return existing;
+            }
+
+            int liveCount = 0;
+            for (int i = 0; i < slots.length(); i++) {
+                InvocationRequest irq = slots.get(i);
+                if (irq != null && irq != TOMBSTONE && irq != MOVED) {
+                    liveCount++;
+                }
+            }
+            // Grow when at least half of the used slots are live, otherwise only purge the tombstones.
+            int capacity = liveCount * 2 >= slots.length() - (slots.length() >> 2) ? slots.length() * 2 : slots.length();
+            Table replacement = new Table(capacity);
+            if (!next.compareAndSet(null, replacement)) {
+                replacement = next.get();
+                awaitPublished(owner);
+                return replacement;
+            }
+
+            for (int i = 0; i < slots.length(); i++) {
+                while (true) {
+                    InvocationRequest irq = slots.get(i);
+                    if (irq == null || irq == TOMBSTONE) {
+                        if (slots.compareAndSet(i, irq, MOVED)) {
+                            break;
+                        }
+                        continue;
+                    }
+
+                    // Readers may still find the entry here until the slot is forwarded.
+                    replacement.copy(irq);
+                    if (slots.compareAndSet(i, irq, MOVED)) {
+                        break;
+                    }
+                    // Removed while it was being copied, take the copy out again.
+                    replacement.removeCopy(irq);
+                }
+            }
+
+            owner.table = replacement;
+            return replacement;
+        }
+
+        private void copy(InvocationRequest irq) {
+            int mask = slots.length() - 1;
+            int index = irq.getId() & mask;
+            while (true) {
+                InvocationRequest current = slots.get(index);
+                if (current == null && slots.compareAndSet(index, null, irq)) {
+                    used.incrementAndGet();
+                    return;
+                }
+                if (current == TOMBSTONE && slots.compareAndSet(index, TOMBSTONE, irq)) {
+                    return;
+                }
+                if (current != null && current != TOMBSTONE) {
+                    index = (index + 1) & mask;
+                }
+            }
+        }
+
+        private void removeCopy(InvocationRequest irq) {
+            for (int i = 0; i < slots.length(); i++) {
+                if (slots.compareAndSet(i, irq, TOMBSTONE)) {
+                    return;
+                }
+            }
+        }
+
+        private void awaitPublished(PendingInvocationTable owner) {
+            while (owner.table == this) {
+                Thread.yield();
+            }
+        }
+
+        /**
+         * Waits until this table has been copied into its replacement and returns the current table.
+         * A forwarded slot only says that slot was copied, an entry further along the probe sequence may
+         * not be in the new table yet, so lookups have to wait for the whole copy.
+         */
+        Table awaitCopied(PendingInvocationTable owner) {
+            awaitPublished(owner);
+            return owner.table;
+        }
+    }
+}
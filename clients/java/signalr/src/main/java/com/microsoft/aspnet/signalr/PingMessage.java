@@ -6,6 +6,7 @@ package com.microsoft.aspnet.signalr;
 class PingMessage extends HubMessage
 {
     private static PingMessage instance = new PingMessage();
+    private final int type = HubMessageType.PING.value;
 
     private PingMessage()
     {
@@ -0,0 +1,113 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends messages for the HTTP transports with POST requests, one at a time so that the server gets
+ * them in order. Messages that are sent while a POST is in flight go out together in the next one,
+ * which works because both hub protocols frame their own messages.
+ */
+class PostQueue {
+    private final HttpClient client;
+    private final Map<String, String> headers;
+    private final String transportName;
+    private volatile String url;
+
+    // Guarded by this.
+    private ByteArrayOutputStream pendingBody = new ByteArrayOutputStream();
+    private List<CompletableFuture<Void>> pendingSends = new ArrayList<>();
+    private boolean posting;
+    private boolean closed = true;
+
+    PostQueue(HttpClient client, Map<String, String> headers, String transportName) {
+        this.client = client;
+        this.headers = headers;
+        this.transportName = transportName;
+    }
+
+    public synchronized void open(String url) {
+        this.url = url;
+        closed = false;
+    }
+
+    /**
+     * @return A future that completes once the POST that carried the message succeeded.
+     */
+    public CompletableFuture<Void> send(byte[] bytes) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean startPost;
+        synchronized (this) {
+            if (closed) {
+                future.completeExceptionally(new RuntimeException(String.format("The %s transport is not running.", transportName)));
+                return future;
+            }
+            pendingBody.write(bytes, 0, bytes.length);
+            pendingSends.add(future);
+            startPost = !posting;
+            posting = true;
+        }
+        if (startPost) {
+            post();
+        }
+        return future;
+    }
+
+    /**
+     * Fails the messages that weren't sent yet, a POST that is in flight still completes.
+     */
+    public void close() {
+        List<CompletableFuture<Void>> sends;
+        synchronized (this) {
+            closed = true;
+            sends = pendingSends;
+            pendingSends = new ArrayList<>();
+            pendingBody = new ByteArrayOutputStream();
+        }
+        for (CompletableFuture<Void> send : sends) {
+            send.completeExceptionally(new RuntimeException(String.format("The %s transport was closed.", transportName)));
+        }
+    }
+
+    private void post() {
+        byte[] body;
+        List<CompletableFuture<Void>> sends;
+        synchronized (this) {
+            if (pendingSends.isEmpty()) {
+                posting = false;
+                return;
+            }
+            body = pendingBody.toByteArray();
+            sends = pendingSends;
+            pendingBody = new ByteArrayOutputStream();
+            pendingSends = new ArrayList<>();
+        }
+
+        HttpRequest request = new HttpRequest();
+        request.setHeaders(headers);
+        request.setBody(body);
+        client.post(url, request).whenComplete((response, error) -> {
+            Throwable failure = null;
+            if (error != null) {
+                failure = error;
+            } else if (response.getStatusCode() != 200) {
+                failure = new RuntimeException(String.format("Unexpected status code returned from send: %d %s.",
+                        response.getStatusCode(), response.getStatusText()));
+            }
+            for (CompletableFuture<Void> send : sends) {
+                if (failure == null) {
+                    send.complete(null);
+                } else {
+                    send.completeExceptionally(failure);
+                }
+            }
+            post();
+        });
+    }
+}
@@ -0,0 +1,18 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.time.Duration;
+
+/**
+ * Decides when a {@link HubConnection} that lost its connection tries to reconnect.
+ */
+public interface ReconnectPolicy {
+    /**
+     * @param previousRetryCount The number of reconnect attempts that failed so far, zero right after the connection was lost.
+     * @param elapsedTime        How long the connection has been reconnecting.
+     * @return The delay before the next attempt, or null to stop reconnecting and close the connection.
+     */
+    Duration nextRetryDelay(int previousRetryCount, Duration elapsedTime);
+}
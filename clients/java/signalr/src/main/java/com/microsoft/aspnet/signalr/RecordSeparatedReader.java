@@ -0,0 +1,61 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.Reader;
+
+/**
+ * A {@link Reader} over a payload of record separated messages that exposes one record at a time.
+ * Records are read straight out of the original payload, so no substrings are created.
+ */
+class RecordSeparatedReader extends Reader {
+    private final String payload;
+    private final char separator;
+    private int position;
+    private int recordEnd;
+
+    RecordSeparatedReader(String payload, char separator) {
+        this.payload = payload;
+        this.separator = separator;
+        this.position = 0;
+        this.recordEnd = -1;
+    }
+
+    /**
+     * Moves the reader to the next record in the payload, skipping anything left of the current record.
+     *
+     * @return true if there is another complete record, false otherwise.
+     */
+    public boolean nextRecord() {
+        int start = recordEnd + 1;
+        if (start >= payload.length()) {
+            return false;
+        }
+
+        int end = payload.indexOf(separator, start);
+        if (end < 0) {
+            return false;
+        }
+
+        position = start;
+        recordEnd = end;
+        return true;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (position >= recordEnd) {
+            return -1;
+        }
+
+        int count = Math.min(length, recordEnd - position);
+        payload.getChars(position, position + count, buffer, offset);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
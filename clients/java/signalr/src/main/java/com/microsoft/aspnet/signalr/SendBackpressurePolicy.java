@@ -0,0 +1,20 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+/**
+ * What to do with an outgoing message when the transport's send queue is above its high watermark.
+ */
+public enum SendBackpressurePolicy {
+    /**
+     * Hold the message until the queue drains below the high watermark. The future returned by the send
+     * completes once the message has been written, so callers that wait on it are slowed down.
+     * Held messages are limited to the size of the high watermark as well, further messages are rejected.
+     */
+    AWAIT,
+    /**
+     * Fail the future returned by the send with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    REJECT
+}
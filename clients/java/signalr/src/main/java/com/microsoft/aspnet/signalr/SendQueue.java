@@ -0,0 +1,234 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the messages handed to a socket that queues writes internally, such as OkHttp's WebSocket.
+ *
+ * <p>The socket only reports how many bytes are still queued. The queue counts every byte it hands to
+ * the socket, so a message has left the socket once the bytes written minus the bytes still queued
+ * reaches the end of that message. A socket that knows when it has written a message calls
+ * {@link #poll()} then. Otherwise the queue is polled by a {@link SendQueuePoller} while messages are
+ * outstanding, and completes their futures on the socket's executor rather than the poller's thread.</p>
+ *
+ * <p>Messages that would push the socket queue above the high watermark are held or rejected
+ * according to the {@link SendBackpressurePolicy}, instead of overflowing the socket, which closes
+ * the connection.</p>
+ */
+class SendQueue {
+    static final long DEFAULT_HIGH_WATERMARK = 8 * 1024 * 1024;
+
+    private final LongSupplier socketQueueSize;
+    private final long highWatermark;
+    private final SendBackpressurePolicy policy;
+    private final SendQueuePoller poller;
+    private final Executor executor;
+
+    private final ArrayDeque<Written> written = new ArrayDeque<>();
+    private final ArrayDeque<Held> held = new ArrayDeque<>();
+    private long writtenBytes;
+    private long heldBytes;
+    private boolean polled;
+    private boolean closed;
+
+    /**
+     * Creates a queue for a socket that calls {@link #poll()} whenever it has written a message.
+     */
+    SendQueue(LongSupplier socketQueueSize, long highWatermark, SendBackpressurePolicy policy) {
+        this(socketQueueSize, highWatermark, policy, null, null);
+    }
+
+    /**
+     * Creates a queue that the poller polls while messages are outstanding.
+     *
+     * @param executor Completes the futures of messages the poller finds written.
+     */
+    SendQueue(LongSupplier socketQueueSize, long highWatermark, SendBackpressurePolicy policy, SendQueuePoller poller, Executor executor) {
+        this.socketQueueSize = socketQueueSize;
+        this.highWatermark = highWatermark;
+        this.policy = policy;
+        this.poller = poller;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes a message to the socket, or holds it until there is room.
+     *
+     * @param size  The size of the message as the socket counts it.
+     * @param write Writes the message to the socket, returns false if the socket refused it.
+     * @return A future that completes when the message has left the socket's queue.
+     */
+    public CompletableFuture<Void> send(long size, BooleanSupplier write) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<CompletableFuture<Void>> completed = new ArrayList<>(1);
+        synchronized (this) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("The connection is not active."));
+                return future;
+            }
+
+            if (held.isEmpty() && fits(socketQueueSize.getAsLong(), size)) {
+                write(size, write, future);
+            } else if (policy == SendBackpressurePolicy.AWAIT && fits(heldBytes, size)) {
+                held.add(new Held(size, write, future));
+                heldBytes += size;
+            } else {
+                future.completeExceptionally(new RejectedExecutionException(String.format(
+                        "The send queue is above its high watermark of %d bytes.", highWatermark)));
+                return future;
+            }
+
+            // The socket usually drains right away, only poll when something is still outstanding.
+            collectCompleted(completed);
+            if (poller != null && !polled && (!written.isEmpty() || !held.isEmpty())) {
+                polled = true;
+                poller.register(this);
+            }
+        }
+
+        complete(completed);
+        return future;
+    }
+
+    /**
+     * Completes the futures of messages that left the socket and writes held messages that now fit.
+     */
+    public void poll() {
+        List<CompletableFuture<Void>> completed = new ArrayList<>();
+        synchronized (this) {
+            drain(completed);
+        }
+
+        complete(completed);
+    }
+
+    /**
+     * Polls on behalf of the poller, the futures are completed on the executor.
+     *
+     * @return False once nothing is outstanding, the poller then drops the queue until it registers again.
+     */
+    boolean pollOutstanding() {
+        List<CompletableFuture<Void>> completed = new ArrayList<>();
+        boolean outstanding;
+        synchronized (this) {
+            drain(completed);
+            outstanding = !written.isEmpty() || !held.isEmpty();
+            polled = outstanding;
+        }
+
+        if (!completed.isEmpty()) {
+            try {
+                executor.execute(() -> complete(completed));
+            } catch (RejectedExecutionException e) {
+                // The executor was shut down, the poller's thread is the only one left.
+                complete(completed);
+            }
+        }
+        return outstanding;
+    }
+
+    /**
+     * Completes the messages that were sent and fails the rest.
+     */
+    public void close(Exception exception) {
+        poll();
+
+        List<CompletableFuture<Void>> failed = new ArrayList<>();
+        synchronized (this) {
+            // The poller drops the queue the next time it finds nothing outstanding.
+            closed = true;
+            for (Written message : written) {
+                failed.add(message.future);
+            }
+            for (Held message : held) {
+                failed.add(message.future);
+            }
+            written.clear();
+            held.clear();
+            heldBytes = 0;
+        }
+
+        Exception error = exception != null ? exception : new IllegalStateException("The connection was closed before the message was sent.");
+        for (CompletableFuture<Void> future : failed) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void drain(List<CompletableFuture<Void>> completed) {
+        collectCompleted(completed);
+        while (!held.isEmpty() && fits(socketQueueSize.getAsLong(), held.peek().size)) {
+            Held message = held.poll();
+            heldBytes -= message.size;
+            write(message.size, message.write, message.future);
+            collectCompleted(completed);
+        }
+    }
+
+    private boolean fits(long queued, long size) {
+        // A message larger than the high watermark still goes out on its own once the queue is empty.
+        return queued == 0 || queued + size <= highWatermark;
+    }
+
+    private void write(long size, BooleanSupplier write, CompletableFuture<Void> future) {
+        boolean accepted;
+        try {
+            accepted = write.getAsBoolean();
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        if (!accepted) {
+            future.completeExceptionally(new IllegalStateException("The connection is closed or its send queue is full."));
+            return;
+        }
+        writtenBytes += size;
+        written.add(new Written(writtenBytes, future));
+    }
+
+    private void collectCompleted(List<CompletableFuture<Void>> completed) {
+        long sent = writtenBytes - socketQueueSize.getAsLong();
+        while (!written.isEmpty() && written.peek().end <= sent) {
+            completed.add(written.poll().future);
+        }
+    }
+
+    private static void complete(List<CompletableFuture<Void>> completed) {
+        // Called outside of the lock, continuations run on this thread.
+        for (CompletableFuture<Void> future : completed) {
+            future.complete(null);
+        }
+    }
+
+    private static final class Written {
+        final long end;
+        final CompletableFuture<Void> future;
+
+        Written(long end, CompletableFuture<Void> future) {
+            this.end = end;
+            this.future = future;
+        }
+    }
+
+    private static final class Held {
+        final long size;
+        final BooleanSupplier write;
+        final CompletableFuture<Void> future;
+
+        Held(long size, BooleanSupplier write, CompletableFuture<Void> future) {
+            this.size = size;
+            this.write = write;
+            this.future = future;
+        }
+    }
+}
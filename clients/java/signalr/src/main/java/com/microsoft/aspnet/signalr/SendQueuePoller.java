@@ -0,0 +1,89 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls the {@link SendQueue}s of sockets that can't report when they have written a message. One task
+ * walks every queue with outstanding messages each interval, instead of each connection scheduling its
+ * own poll, and it stops while no queue has anything outstanding.
+ *
+ * <p>The shared poller has its own thread, so polling many busy connections doesn't delay the timers on
+ * the {@link SharedScheduler}. Queues complete their futures on their own executor, not on this thread.</p>
+ */
+final class SendQueuePoller {
+    static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+    // Each queue is in here at most once, it registers again after it was dropped for having nothing outstanding.
+    private final ConcurrentLinkedQueue<SendQueue> active = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    SendQueuePoller(ScheduledExecutorService scheduler, long intervalNanos) {
+        this.scheduler = scheduler;
+        this.intervalNanos = intervalNanos;
+    }
+
+    public static SendQueuePoller shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Polls the queue until it has nothing outstanding.
+     */
+    public void register(SendQueue queue) {
+        active.add(queue);
+        if (running.compareAndSet(false, true)) {
+            scheduler.schedule(this::pollAll, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void pollAll() {
+        // Queues registered during the walk wait for the next one.
+        for (int remaining = active.size(); remaining > 0; remaining--) {
+            SendQueue queue = active.poll();
+            if (queue == null) {
+                break;
+            }
+            boolean outstanding;
+            try {
+                outstanding = queue.pollOutstanding();
+            } catch (RuntimeException e) {
+                // The socket failed, its own close fails the queue.
+                outstanding = false;
+            }
+            if (outstanding) {
+                active.add(queue);
+            }
+        }
+
+        if (active.isEmpty()) {
+            running.set(false);
+            // A queue that registered after the check saw the poller still running, pick it up.
+            if (active.isEmpty() || !running.compareAndSet(false, true)) {
+                return;
+            }
+        }
+        scheduler.schedule(this::pollAll, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class Holder {
+        static final SendQueuePoller INSTANCE = create();
+
+        private static SendQueuePoller create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (runnable) -> {
+                Thread thread = new Thread(runnable, "signalr-send-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            return new SendQueuePoller(executor, POLL_INTERVAL_NANOS);
+        }
+    }
+}
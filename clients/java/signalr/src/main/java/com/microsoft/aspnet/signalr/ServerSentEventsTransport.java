@@ -0,0 +1,254 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Receives from a GET request whose response is an event stream that stays open, and sends with
+ * POST requests through a {@link PostQueue}.
+ *
+ * <p>The server writes every message as one event, each line of the message in a "data:" line. The
+ * stream is parsed as its chunks arrive: bytes are collected until an event ends and only that event
+ * is decoded, so neither the stream nor a chunk is turned into a String. Event streams are text, the
+ * server only offers this transport for the text transfer format.</p>
+ *
+ * <p>An instance serves a single connection, like {@link LongPollingTransport}.</p>
+ */
+class ServerSentEventsTransport implements Transport {
+    // Only guards against a dead socket, HubConnection's server timeout notices a silent server first.
+    static final long READ_TIMEOUT_MILLIS = 100_000;
+
+    private final Map<String, String> headers;
+    private final HttpClient client;
+    private final Logger logger;
+    private final PostQueue postQueue;
+    private final EventParser parser = new EventParser(this::eventReceived);
+    private OnReceiveCallBack onReceiveCallBack;
+    private Consumer<String> onClose;
+    private volatile boolean running;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile CompletableFuture<Void> eventStream;
+
+    public ServerSentEventsTransport(Map<String, String> headers, HttpClient client, Logger logger) {
+        this.headers = headers;
+        this.client = client;
+        this.logger = logger;
+        this.postQueue = new PostQueue(client, headers, "ServerSentEvents");
+    }
+
+    @Override
+    public CompletableFuture<Void> start(String url) {
+        logger.log(LogLevel.Debug, "Starting ServerSentEvents transport.");
+        CompletableFuture<Void> started = new CompletableFuture<>();
+        HttpRequest request = new HttpRequest();
+        request.setHeaders(headers);
+        request.setHeader("Accept", "text/event-stream");
+        request.setReadTimeout(READ_TIMEOUT_MILLIS);
+
+        running = true;
+        postQueue.open(url);
+        eventStream = client.stream(url, request, (response) -> {
+            if (response.getStatusCode() != 200) {
+                running = false;
+                started.completeExceptionally(new RuntimeException(String.format("Unexpected status code returned from the event stream: %d %s.",
+                        response.getStatusCode(), response.getStatusText())));
+                return;
+            }
+            logger.log(LogLevel.Information, "ServerSentEvents transport connected to: %s.", url);
+            started.complete(null);
+        }, (chunk) -> {
+            if (running) {
+                parser.parse(chunk);
+            }
+        });
+
+        eventStream.whenComplete((result, error) -> {
+            if (!started.isDone()) {
+                running = false;
+                started.completeExceptionally(error != null ? error : new RuntimeException("The event stream ended before it started."));
+                return;
+            }
+            if (!running) {
+                close(null);
+            } else if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                close(String.format("The event stream failed: %s", cause.getMessage()));
+            } else {
+                logger.log(LogLevel.Information, "The server closed the event stream.");
+                close(null);
+            }
+        });
+        return started;
+    }
+
+    private void eventReceived(String data) {
+        try {
+            onReceive(data);
+        } catch (Exception e) {
+            logger.log(LogLevel.Error, "Failed to process a ServerSentEvents message: %s", e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        return postQueue.send(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException("The ServerSentEvents transport only supports text messages."));
+        return future;
+    }
+
+    @Override
+    public void setOnReceive(OnReceiveCallBack callback) {
+        this.onReceiveCallBack = callback;
+    }
+
+    @Override
+    public void onReceive(String message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void onReceive(ByteBuffer message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
+    @Override
+    public void setOnClose(Consumer<String> onCloseCallback) {
+        this.onClose = onCloseCallback;
+    }
+
+    @Override
+    public CompletableFuture<Void> stop() {
+        running = false;
+        // The server ends the connection when the event stream is closed.
+        CompletableFuture<Void> stream = eventStream;
+        if (stream != null) {
+            stream.cancel(false);
+        }
+        logger.log(LogLevel.Information, "ServerSentEvents transport stopped.");
+        close(null);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void close(String errorMessage) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        CompletableFuture<Void> stream = eventStream;
+        if (stream != null) {
+            stream.cancel(false);
+        }
+        postQueue.close();
+
+        if (onClose != null) {
+            onClose.accept(errorMessage);
+        }
+    }
+
+    /**
+     * Parses the data of events from an event stream, other fields and comments are skipped.
+     */
+    static final class EventParser {
+        private static final byte[] DATA = "data".getBytes(StandardCharsets.US_ASCII);
+
+        private final Consumer<String> onEvent;
+        // The current line, which can span chunks.
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private byte[] data = new byte[256];
+        private int dataLength;
+        private boolean hasData;
+        private boolean skipLineFeed;
+
+        EventParser(Consumer<String> onEvent) {
+            this.onEvent = onEvent;
+        }
+
+        void parse(ByteBuffer chunk) {
+            while (chunk.hasRemaining()) {
+                byte b = chunk.get();
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (b == '\n') {
+                        continue;
+                    }
+                }
+                if (b == '\r' || b == '\n') {
+                    // Lines end with CRLF, LF or CR.
+                    skipLineFeed = b == '\r';
+                    lineEnded();
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+        }
+
+        private void lineEnded() {
+            if (lineLength == 0) {
+                if (hasData) {
+                    String event = new String(data, 0, dataLength, StandardCharsets.UTF_8);
+                    hasData = false;
+                    dataLength = 0;
+                    onEvent.accept(event);
+                }
+                return;
+            }
+
+            int nameLength = 0;
+            while (nameLength < lineLength && line[nameLength] != ':') {
+                nameLength++;
+            }
+            if (nameLength > 0 && isData(nameLength)) {
+                int valueStart = Math.min(nameLength + 1, lineLength);
+                if (valueStart < lineLength && line[valueStart] == ' ') {
+                    valueStart++;
+                }
+                if (hasData) {
+                    append((byte) '\n');
+                }
+                for (int i = valueStart; i < lineLength; i++) {
+                    append(line[i]);
+                }
+                hasData = true;
+            }
+            // Lines that start with a colon are comments.
+            lineLength = 0;
+        }
+
+        private boolean isData(int nameLength) {
+            if (nameLength != DATA.length) {
+                return false;
+            }
+            for (int i = 0; i < nameLength; i++) {
+                if (line[i] != DATA[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void append(byte b) {
+            if (dataLength == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[dataLength++] = b;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * A single daemon thread shared by every connection for short timer driven work, so that
+ * connections don't each start their own threads.
+ */
+final class SharedScheduler {
+    private SharedScheduler() {
+    }
+
+    public static ScheduledExecutorService get() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (runnable) -> {
+                Thread thread = new Thread(runnable, "signalr-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Timers are usually cancelled before they fire, don't keep them in the queue until then.
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
@@ -4,11 +4,10 @@
 package com.microsoft.aspnet.signalr;
 
 class StreamInvocationMessage extends InvocationMessage {
-
-    int type = HubMessageType.STREAM_INVOCATION.value;
-
     public StreamInvocationMessage(String invocationId, String target, Object[] arguments) {
         super(invocationId, target, arguments);
+        // Gson rejects a second field with the same name, so reuse the one from InvocationMessage.
+        this.type = HubMessageType.STREAM_INVOCATION.value;
     }
 
     @Override
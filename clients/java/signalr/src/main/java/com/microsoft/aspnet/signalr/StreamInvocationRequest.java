@@ -0,0 +1,217 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+
+import org.reactivestreams.Subscriber;
+
+/**
+ * A pending server-to-client stream. Items are buffered until the subscriber requests them.
+ *
+ * <p>The server has no notion of demand, so when the buffer is full the thread that received the item
+ * waits for the subscriber to request more. That stops the transport from reading, and the server's
+ * own send buffers then slow the stream down. Signals are delivered one at a time by whichever thread
+ * adds an item, requests items or ends the stream.</p>
+ */
+class StreamInvocationRequest<T> extends InvocationRequest {
+    static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    private final Subscriber<? super T> subscriber;
+    private final int capacity;
+    private final Runnable onCancel;
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    private long demand;
+    private boolean subscribed;
+    private boolean emitting;
+    // Set once the subscriber cancelled or received its terminal signal, nothing is delivered after that.
+    private boolean done;
+    private boolean terminated;
+    private Throwable error;
+
+    /**
+     * @param onCancel Runs once when the subscriber cancels before the stream ended.
+     */
+    StreamInvocationRequest(Class<T> itemType, int id, int capacity, Subscriber<? super T> subscriber, Runnable onCancel) {
+        super(itemType, id);
+        this.subscriber = subscriber;
+        this.capacity = capacity;
+        this.onCancel = onCancel;
+    }
+
+    /**
+     * Hands the subscription to the subscriber. Items and signals that arrived before are delivered afterwards.
+     */
+    public void start() {
+        subscriber.onSubscribe(new org.reactivestreams.Subscription() {
+            @Override
+            public void request(long n) {
+                StreamInvocationRequest.this.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelBySubscriber();
+            }
+        });
+        synchronized (this) {
+            subscribed = true;
+        }
+        drain();
+    }
+
+    @Override
+    public boolean addItem(Object item) {
+        if (item == null) {
+            // Reactive Streams forbids null items, so the stream can't go on.
+            synchronized (this) {
+                if (done || terminated) {
+                    return true;
+                }
+            }
+            onCancel.run();
+            terminate(new HubException("The server sent a null stream item."));
+            return true;
+        }
+
+        synchronized (this) {
+            while (buffer.size() >= capacity && !done && !terminated) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (done || terminated) {
+                return true;
+            }
+            buffer.add(item);
+        }
+        drain();
+        return true;
+    }
+
+    @Override
+    public void complete(CompletionMessage completion) {
+        terminate(completion.getError() != null ? new HubException(completion.getError()) : null);
+    }
+
+    @Override
+    public void fail(Exception ex) {
+        terminate(ex);
+    }
+
+    @Override
+    public void cancel() {
+        terminate(new CancellationException("The connection was stopped before the stream completed."));
+    }
+
+    private void request(long n) {
+        if (n <= 0) {
+            synchronized (this) {
+                if (done || terminated) {
+                    return;
+                }
+                buffer.clear();
+            }
+            onCancel.run();
+            terminate(new IllegalArgumentException("The number of requested items must be positive."));
+            return;
+        }
+
+        synchronized (this) {
+            demand += n;
+            if (demand < 0) {
+                // Treated as unbounded, as the Reactive Streams specification allows.
+                demand = Long.MAX_VALUE;
+            }
+        }
+        drain();
+    }
+
+    private void cancelBySubscriber() {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            buffer.clear();
+            notifyAll();
+            if (terminated) {
+                return;
+            }
+        }
+        onCancel.run();
+    }
+
+    private void terminate(Throwable error) {
+        synchronized (this) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            this.error = error;
+            notifyAll();
+        }
+        drain();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        synchronized (this) {
+            if (emitting || !subscribed) {
+                return;
+            }
+            emitting = true;
+        }
+
+        while (true) {
+            Object item = null;
+            Throwable terminalError = null;
+            synchronized (this) {
+                if (done) {
+                    emitting = false;
+                    return;
+                }
+                // Errors skip the items that are still buffered, completion waits for them.
+                if (terminated && (error != null || buffer.isEmpty())) {
+                    done = true;
+                    emitting = false;
+                    terminalError = error;
+                } else if (demand > 0 && !buffer.isEmpty()) {
+                    item = buffer.poll();
+                    demand--;
+                    if (buffer.size() == capacity - 1) {
+                        notifyAll();
+                    }
+                } else {
+                    emitting = false;
+                    return;
+                }
+            }
+
+            if (item == null) {
+                if (terminalError != null) {
+                    subscriber.onError(terminalError);
+                } else {
+                    subscriber.onComplete();
+                }
+                return;
+            }
+
+            try {
+                subscriber.onNext((T) item);
+            } catch (RuntimeException e) {
+                // The subscriber broke the specification, stop delivering to it.
+                synchronized (this) {
+                    emitting = false;
+                }
+                cancelBySubscriber();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+class StreamItemMessage extends HubMessage {
+    private int type = HubMessageType.STREAM_ITEM.value;
+    private String invocationId;
+    private Object item;
+    private transient int id;
+
+    public StreamItemMessage(String invocationId, Object item) {
+        this(PendingInvocationTable.parseId(invocationId), invocationId, item);
+    }
+
+    StreamItemMessage(int id, Object item) {
+        this(id, null, item);
+    }
+
+    private StreamItemMessage(int id, String invocationId, Object item) {
+        this.id = id;
+        this.invocationId = invocationId;
+        this.item = item;
+    }
+
+    public Object getItem() {
+        return item;
+    }
+
+    public String getInvocationId() {
+        if (invocationId == null && id != PendingInvocationTable.NO_ID) {
+            invocationId = Integer.toString(id);
+        }
+        return invocationId;
+    }
+
+    /**
+     * @return The invocation id as an int, or {@link PendingInvocationTable#NO_ID} if it isn't one of ours.
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public HubMessageType getMessageType() {
+        return HubMessageType.STREAM_ITEM;
+    }
+}
@@ -3,14 +3,17 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 interface Transport {
     CompletableFuture<Void> start(String url);
     CompletableFuture<Void> send(String message);
+    CompletableFuture<Void> send(ByteBuffer message);
     void setOnReceive(OnReceiveCallBack callback);
     void onReceive(String message) throws Exception;
+    void onReceive(ByteBuffer message) throws Exception;
     void setOnClose(Consumer<String> onCloseCallback);
     CompletableFuture<Void> stop();
 }
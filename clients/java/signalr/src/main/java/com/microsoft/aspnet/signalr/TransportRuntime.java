@@ -0,0 +1,88 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * The HTTP machinery that connections run on: the dispatcher and its threads, which also read from
+ * WebSockets, and the connection pool. Connections that are given the same runtime share all of it,
+ * instead of each starting their own, while cookies and headers stay separate per connection.
+ * Connections on the {@link HttpBackend#JAVA_NET_HTTP} backend only share the threads.
+ *
+ * <p>Connections that aren't given a runtime create a private one. A shared runtime must outlive the
+ * connections that use it, {@link #close()} it once they are stopped.</p>
+ */
+public final class TransportRuntime implements AutoCloseable {
+    private final ExecutorService executor;
+    private final ConnectionPool connectionPool;
+    private final OkHttpClient client;
+
+    /**
+     * Keeps up to 5 idle HTTP connections for 5 minutes.
+     */
+    public TransportRuntime() {
+        this(5, Duration.ofMinutes(5));
+    }
+
+    /**
+     * @param maxIdleConnections The number of idle HTTP connections to keep for negotiate and other requests.
+     * @param keepAlive          How long an idle HTTP connection is kept.
+     */
+    public TransportRuntime(int maxIdleConnections, Duration keepAlive) {
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("The number of idle connections must not be negative.");
+        }
+        if (keepAlive == null || keepAlive.isNegative() || keepAlive.isZero()) {
+            throw new IllegalArgumentException("A positive keep-alive duration is required.");
+        }
+
+        this.executor = Executors.newCachedThreadPool((runnable) -> {
+            Thread thread = new Thread(runnable, "signalr-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        // An open WebSocket occupies its dispatcher slot for as long as it reads, so the per host limit
+        // would otherwise cap the number of connections to one server.
+        dispatcher.setMaxRequests(Integer.MAX_VALUE);
+        dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+        this.connectionPool = new ConnectionPool(maxIdleConnections, keepAlive.toNanos(), TimeUnit.NANOSECONDS);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .build();
+    }
+
+    /**
+     * Creates a client for one connection, it shares this runtime's threads and pool but keeps its own cookies.
+     */
+    OkHttpClient newClient(CookieJar cookieJar) {
+        return client.newBuilder().cookieJar(cookieJar).build();
+    }
+
+    /**
+     * The threads of the runtime, for backends that don't run on OkHttp.
+     */
+    ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Stops the runtime's threads once their current work is done and closes idle HTTP connections.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        connectionPool.evictAll();
+    }
+}
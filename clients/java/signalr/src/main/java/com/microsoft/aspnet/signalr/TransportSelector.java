@@ -0,0 +1,79 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the transports to try, in order, from the ones a server offers.
+ *
+ * <p>Transports are tried from the most to the least efficient: WebSockets, ServerSentEvents, then
+ * LongPolling, leaving out those that can't carry the transfer format of the hub protocol. The
+ * transport that last connected to a URL is tried first the next time, so that a connection whose
+ * WebSocket upgrade is blocked by a proxy doesn't wait for that upgrade to fail on every reconnect.
+ * The transports are remembered for the process, connections to the same URL share what they learn.</p>
+ */
+final class TransportSelector {
+    static final String WEB_SOCKETS = "WebSockets";
+    static final String SERVER_SENT_EVENTS = "ServerSentEvents";
+    static final String LONG_POLLING = "LongPolling";
+
+    private static final List<String> PREFERENCE = Collections.unmodifiableList(Arrays.asList(WEB_SOCKETS, SERVER_SENT_EVENTS, LONG_POLLING));
+    private static final int MAX_REMEMBERED_URLS = 256;
+    private static final TransportSelector SHARED = new TransportSelector(MAX_REMEMBERED_URLS);
+
+    // Guarded by itself, the least recently used URL is forgotten first.
+    private final Map<String, String> lastConnected = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxRememberedUrls;
+
+    TransportSelector(int maxRememberedUrls) {
+        this.maxRememberedUrls = maxRememberedUrls;
+    }
+
+    static TransportSelector shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The transports to try for the URL, empty if the server offers none that fits.
+     */
+    List<String> select(String url, NegotiateResponse response, TransferFormat transferFormat) {
+        String format = transferFormat == TransferFormat.BINARY ? "Binary" : "Text";
+        List<String> transports = new ArrayList<>(PREFERENCE.size());
+        for (String transport : PREFERENCE) {
+            if (response.getTransferFormats(transport).contains(format)
+                    // Event streams are text, whatever the server claims.
+                    && !(transport.equals(SERVER_SENT_EVENTS) && transferFormat == TransferFormat.BINARY)) {
+                transports.add(transport);
+            }
+        }
+
+        String preferred;
+        synchronized (lastConnected) {
+            preferred = lastConnected.get(url);
+        }
+        if (preferred != null && transports.remove(preferred)) {
+            transports.add(0, preferred);
+        }
+        return transports;
+    }
+
+    void connected(String url, String transport) {
+        synchronized (lastConnected) {
+            lastConnected.put(url, transport);
+            // Access order puts the least recently used URL first.
+            Iterator<String> urls = lastConnected.keySet().iterator();
+            while (lastConnected.size() > maxRememberedUrls) {
+                urls.next();
+                urls.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+/**
+ * Resolves the Gson {@link TypeAdapter}s used to bind hub arguments and results.
+ * Adapters are resolved once when a handler or invocation is registered instead of for every message.
+ */
+final class TypeAdapterResolver {
+    private static final Gson gson = new Gson();
+
+    private TypeAdapterResolver() {
+    }
+
+    public static TypeAdapter<?> resolve(Class<?> type) {
+        if (type == null) {
+            return null;
+        }
+        return gson.getAdapter(type);
+    }
+
+    public static TypeAdapter<?>[] resolve(List<Class<?>> types) {
+        TypeAdapter<?>[] adapters = new TypeAdapter<?>[types.size()];
+        for (int i = 0; i < adapters.length; i++) {
+            adapters[i] = resolve(types.get(i));
+        }
+        return adapters;
+    }
+}
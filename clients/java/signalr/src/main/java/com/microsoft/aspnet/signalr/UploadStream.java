@@ -0,0 +1,267 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Sends the items of a {@link Publisher} or an {@link Iterator} argument to the server as StreamItem
+ * messages, followed by a Completion message once the source ends.
+ *
+ * <p>Only one frame is written at a time. Items that arrive while a frame is being written are sent
+ * together in the next frame, so a slow source sends every item right away and a fast one fills whole
+ * frames. A frame counts as written once the transport's send future completes, which waits while the
+ * outbound queue is above its high watermark. At most {@link #MAX_OUTSTANDING_ITEMS} items are queued
+ * or being written, publishers are only asked for that many and iterators are not read further.</p>
+ */
+class UploadStream {
+    static final int MAX_OUTSTANDING_ITEMS = 256;
+
+    private static final ExecutorService ITERATOR_READERS = Executors.newCachedThreadPool((runnable) -> {
+        Thread thread = new Thread(runnable, "signalr-upload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String streamId;
+    private final Function<List<HubMessage>, CompletableFuture<Void>> sender;
+    private final Consumer<UploadStream> onClosed;
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private List<HubMessage> pending = new ArrayList<>();
+    private int outstanding;
+    private boolean writing;
+    private boolean finished;
+    private boolean closed;
+    private Subscription subscription;
+
+    /**
+     * @param sender   Writes a list of hub messages to the connection in one frame.
+     * @param onClosed Runs once the completion was sent or the upload was closed.
+     */
+    UploadStream(String streamId, Function<List<HubMessage>, CompletableFuture<Void>> sender, Consumer<UploadStream> onClosed) {
+        this.streamId = streamId;
+        this.sender = sender;
+        this.onClosed = onClosed;
+    }
+
+    static boolean isSource(Object argument) {
+        return argument instanceof Publisher || argument instanceof Iterator;
+    }
+
+    public String getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Starts reading the source, must be called after the invocation that refers to the stream was sent.
+     */
+    public void start(Object source) {
+        if (source instanceof Publisher) {
+            ((Publisher<?>) source).subscribe(new Subscriber<Object>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    boolean cancel;
+                    synchronized (UploadStream.this) {
+                        cancel = closed;
+                        subscription = s;
+                    }
+                    if (cancel) {
+                        s.cancel();
+                    } else {
+                        s.request(MAX_OUTSTANDING_ITEMS);
+                    }
+                }
+
+                @Override
+                public void onNext(Object item) {
+                    offer(item);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    finish(error);
+                }
+
+                @Override
+                public void onComplete() {
+                    finish(null);
+                }
+            });
+        } else {
+            Iterator<?> iterator = (Iterator<?>) source;
+            // Iterators may block until their next item is ready, so they get a thread of their own.
+            ITERATOR_READERS.execute(() -> readIterator(iterator));
+        }
+    }
+
+    /**
+     * Stops reading the source and drops the items that weren't written yet.
+     */
+    public void close() {
+        Subscription s;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            s = subscription;
+            notifyAll();
+        }
+        if (s != null) {
+            s.cancel();
+        }
+        onClosed.accept(this);
+    }
+
+    private void readIterator(Iterator<?> iterator) {
+        try {
+            while (iterator.hasNext()) {
+                Object item = iterator.next();
+                synchronized (this) {
+                    while (outstanding >= MAX_OUTSTANDING_ITEMS && !closed) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                offer(item);
+            }
+            finish(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        } catch (RuntimeException e) {
+            finish(e);
+        }
+    }
+
+    private void offer(Object item) {
+        synchronized (this) {
+            if (closed || finished) {
+                return;
+            }
+            pending.add(new StreamItemMessage(streamId, item));
+            outstanding++;
+        }
+        drain();
+    }
+
+    private void finish(Throwable error) {
+        synchronized (this) {
+            if (closed || finished) {
+                return;
+            }
+            finished = true;
+            String message = error == null ? null : error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+            pending.add(new CompletionMessage(streamId, null, message));
+        }
+        drain();
+    }
+
+    private void drain() {
+        // Frames written synchronously and publishers that emit from within request() would otherwise
+        // recurse, the first caller keeps writing frames until no other call came in.
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (writeFrame()) {
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean writeFrame() {
+        List<HubMessage> frame;
+        synchronized (this) {
+            if (writing || closed || pending.isEmpty()) {
+                return false;
+            }
+            writing = true;
+            frame = pending;
+            pending = new ArrayList<>();
+        }
+
+        CompletableFuture<Void> future;
+        try {
+            future = sender.apply(frame);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+
+        if (!future.isDone()) {
+            future.whenComplete((result, error) -> {
+                frameWritten(frame, error);
+                drain();
+            });
+            return false;
+        }
+
+        Throwable error = null;
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            error = e.getCause();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        return frameWritten(frame, error);
+    }
+
+    private boolean frameWritten(List<HubMessage> frame, Throwable error) {
+        if (error != null) {
+            // The connection is gone or the queue rejected the frame, the server won't get the rest either.
+            close();
+            return false;
+        }
+
+        int items = 0;
+        boolean completed = false;
+        for (HubMessage message : frame) {
+            if (message.getMessageType() == HubMessageType.STREAM_ITEM) {
+                items++;
+            } else {
+                completed = true;
+            }
+        }
+
+        Subscription s;
+        synchronized (this) {
+            writing = false;
+            outstanding -= items;
+            s = completed || closed ? null : subscription;
+            notifyAll();
+        }
+
+        if (completed) {
+            synchronized (this) {
+                closed = true;
+            }
+            onClosed.accept(this);
+            return false;
+        }
+        if (s != null && items > 0) {
+            s.request(items);
+        }
+        return true;
+    }
+}
@@ -3,6 +3,7 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -45,11 +46,24 @@ class WebSocketTransport implements Transport {
     public CompletableFuture<Void> start(String url) {
         this.url = formatUrl(url);
         logger.log(LogLevel.Debug, "Starting Websocket connection.");
-        this.webSocketClient = client.createWebSocket(this.url, this.headers);
-        this.webSocketClient.setOnReceive((message) -> onReceive(message));
-        this.webSocketClient.setOnClose((code, reason) -> {
-            if (onClose != null) {
-                onClose(code, reason);
+        WebSocketWrapper webSocketClient = client.createWebSocket(this.url, this.headers);
+        this.webSocketClient = webSocketClient;
+        this.webSocketClient.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) throws Exception {
+                onReceive(message);
+            }
+
+            @Override
+            public void invoke(ByteBuffer message) throws Exception {
+                onReceive(message);
+            }
+        });
+        webSocketClient.setOnClose((code, reason) -> {
+            // A socket that was given up on can report its close after the transport was restarted.
+            if (onClose != null && webSocketClient == this.webSocketClient) {
+                // A failed socket has no close code, report it as an abnormal closure.
+                onClose(code != null ? code : 1006, reason);
             }
         });
 
@@ -61,6 +75,11 @@ class WebSocketTransport implements Transport {
         return webSocketClient.send(message);
     }
 
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        return webSocketClient.send(message);
+    }
+
     @Override
     public void setOnReceive(OnReceiveCallBack callback) {
         this.onReceiveCallBack = callback;
@@ -72,6 +91,11 @@ class WebSocketTransport implements Transport {
         this.onReceiveCallBack.invoke(message);
     }
 
+    @Override
+    public void onReceive(ByteBuffer message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
     @Override
     public void setOnClose(Consumer<String> onCloseCallback) {
         this.onClose = onCloseCallback;
@@ -86,7 +110,7 @@ class WebSocketTransport implements Transport {
         logger.log(LogLevel.Information, "WebSocket connection stopping with " +
                 "code %d and reason '%s'.", code, reason);
         if (code != 1000) {
-            onClose.accept(reason);
+            onClose.accept(reason != null && !reason.isEmpty() ? reason : "WebSocket closed with code " + code + ".");
         }
         else {
             onClose.accept(null);
@@ -3,6 +3,7 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
@@ -13,6 +14,8 @@ abstract class WebSocketWrapper {
 
     public abstract CompletableFuture<Void> send(String message);
 
+    public abstract CompletableFuture<Void> send(ByteBuffer message);
+
     public abstract void setOnReceive(OnReceiveCallBack onReceive);
 
     public abstract void setOnClose(BiConsumer<Integer, String> onClose);
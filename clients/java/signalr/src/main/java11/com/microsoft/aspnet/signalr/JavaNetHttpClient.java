@@ -0,0 +1,194 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * An {@link HttpClient} on the {@code java.net.http} client of Java 11, see {@link HttpBackend#JAVA_NET_HTTP}.
+ *
+ * <p>Requests prefer HTTP/2, which is negotiated with ALPN over TLS, and fall back to HTTP/1.1. Streamed
+ * responses are read with demand: the next chunk is only requested once onData returned, so a slow
+ * reader keeps the server's data in the socket instead of in memory.</p>
+ *
+ * <p>On Java 11 to 15, cancelling a request only abandons its response once the headers arrived.</p>
+ */
+class JavaNetHttpClient extends HttpClient {
+    // Matches OkHttp's defaults.
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final java.net.http.HttpClient client;
+    private final Logger logger;
+    private final long sendHighWatermark;
+    private final SendBackpressurePolicy sendBackpressurePolicy;
+
+    public JavaNetHttpClient(Logger logger, long sendHighWatermark, SendBackpressurePolicy sendBackpressurePolicy,
+                             TransportRuntime runtime) {
+        this.logger = logger;
+        this.sendHighWatermark = sendHighWatermark;
+        this.sendBackpressurePolicy = sendBackpressurePolicy;
+        // The cookies belong to this connection even when the runtime is shared.
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .cookieHandler(new CookieManager());
+        if (runtime != null) {
+            builder.executor(runtime.executor());
+        }
+        this.client = builder.build();
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> send(HttpRequest httpRequest) {
+        java.net.http.HttpRequest.Builder requestBuilder = newRequest(httpRequest.getUrl(), httpRequest);
+        if (httpRequest.getMethod() == "POST") {
+            byte[] content = httpRequest.getBody() != null ? httpRequest.getBody() : new byte[] {};
+            requestBuilder.POST(java.net.http.HttpRequest.BodyPublishers.ofByteArray(content));
+        } else if (httpRequest.getMethod() == "DELETE") {
+            requestBuilder.DELETE();
+        } else {
+            requestBuilder.GET();
+        }
+
+        CompletableFuture<java.net.http.HttpResponse<byte[]>> call = client.sendAsync(requestBuilder.build(), BodyHandlers.ofByteArray());
+        CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
+        call.whenComplete((response, error) -> {
+            if (error != null) {
+                responseFuture.completeExceptionally(error.getCause() != null ? error.getCause() : error);
+            } else {
+                // HTTP/2 has no reason phrases, and the client doesn't expose those of HTTP/1.1.
+                responseFuture.complete(new HttpResponse(response.statusCode(), "", response.body()));
+            }
+        });
+        // Lets a transport abandon a request that the server holds open.
+        responseFuture.whenComplete((response, error) -> {
+            if (responseFuture.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+
+        return responseFuture;
+    }
+
+    @Override
+    public CompletableFuture<Void> stream(String url, HttpRequest options, Consumer<HttpResponse> onResponse,
+                                          Consumer<ByteBuffer> onData) {
+        java.net.http.HttpRequest request = newRequest(url, options).GET().build();
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        BodyHandler<Void> handler = (responseInfo) -> {
+            onResponse.accept(new HttpResponse(responseInfo.statusCode(), ""));
+            if (responseInfo.statusCode() < 200 || responseInfo.statusCode() >= 300) {
+                completion.complete(null);
+                return BodySubscribers.discarding();
+            }
+            return new StreamSubscriber(onData, completion);
+        };
+        CompletableFuture<java.net.http.HttpResponse<Void>> call = client.sendAsync(request, handler);
+        call.whenComplete((response, error) -> {
+            if (error != null) {
+                completion.completeExceptionally(error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        completion.whenComplete((result, error) -> {
+            if (completion.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+
+        return completion;
+    }
+
+    private java.net.http.HttpRequest.Builder newRequest(String url, HttpRequest options) {
+        java.net.http.HttpRequest.Builder requestBuilder = java.net.http.HttpRequest.newBuilder(URI.create(url))
+                .timeout(options.getReadTimeout() > 0 ? Duration.ofMillis(options.getReadTimeout()) : DEFAULT_TIMEOUT);
+        if (options.getHeaders() != null) {
+            options.getHeaders().forEach((key, value) -> {
+                requestBuilder.header(key, value);
+            });
+        }
+        return requestBuilder;
+    }
+
+    @Override
+    public WebSocketWrapper createWebSocket(String url, Map<String, String> headers) {
+        return new JavaNetWebSocketWrapper(url, headers, client, logger, sendHighWatermark, sendBackpressurePolicy);
+    }
+
+    /**
+     * Hands the body to onData a chunk at a time and only asks for more once a chunk was handled.
+     */
+    private static final class StreamSubscriber implements BodySubscriber<Void> {
+        private final Consumer<ByteBuffer> onData;
+        private final CompletableFuture<Void> completion;
+        private volatile Flow.Subscription subscription;
+
+        StreamSubscriber(Consumer<ByteBuffer> onData, CompletableFuture<Void> completion) {
+            this.onData = onData;
+            this.completion = completion;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            // Cancelling the stream closes the response, the request may have been sent long before.
+            completion.whenComplete((result, error) -> {
+                if (completion.isCancelled()) {
+                    subscription.cancel();
+                }
+            });
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> chunks) {
+            try {
+                for (ByteBuffer chunk : chunks) {
+                    if (completion.isDone()) {
+                        break;
+                    }
+                    onData.accept(chunk);
+                }
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+            }
+
+            if (completion.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+
+        @Override
+        public CompletionStage<Void> getBody() {
+            return completion;
+        }
+    }
+}
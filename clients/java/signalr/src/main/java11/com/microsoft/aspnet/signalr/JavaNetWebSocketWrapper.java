@@ -0,0 +1,277 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link WebSocketWrapper} on the {@code java.net.http} WebSocket of Java 11.
+ *
+ * <p>Messages are requested one at a time and the next one only once the connection handled the
+ * last, so a connection that falls behind stops reading from the socket and the server sees its
+ * backpressure. That WebSocket allows a single outstanding send, so outgoing frames wait in a queue
+ * here, the {@link SendQueue} limits it the way it limits OkHttp's.</p>
+ */
+class JavaNetWebSocketWrapper extends WebSocketWrapper {
+    private static final Object CLOSE = new Object();
+
+    private final String url;
+    private final Map<String, String> headers;
+    private final HttpClient client;
+    private final Logger logger;
+    private volatile WebSocket websocketClient;
+    private OnReceiveCallBack onReceive;
+    private BiConsumer<Integer, String> onClose;
+    private final CompletableFuture<Void> startFuture = new CompletableFuture<>();
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+    private final SendQueue sendQueue;
+
+    // Guarded by outgoing.
+    private final ArrayDeque<Frame> outgoing = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean sending;
+
+    JavaNetWebSocketWrapper(String url, Map<String, String> headers, HttpClient client, Logger logger,
+                            long sendHighWatermark, SendBackpressurePolicy sendBackpressurePolicy) {
+        this.url = url;
+        this.headers = headers;
+        this.client = client;
+        this.logger = logger;
+        // Polled whenever a frame is written, see frameSent.
+        this.sendQueue = new SendQueue(this::queuedBytes, sendHighWatermark, sendBackpressurePolicy);
+    }
+
+    @Override
+    public CompletableFuture<Void> start() {
+        WebSocket.Builder builder = client.newWebSocketBuilder();
+        headers.forEach(builder::header);
+        builder.buildAsync(URI.create(url), new SignalRWebSocketListener()).whenComplete((webSocket, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                logger.log(LogLevel.Error, "Websocket closed from an error: %s.", cause.getMessage());
+                closed(null, cause.getMessage(), new RuntimeException(cause));
+            }
+        });
+        return startFuture;
+    }
+
+    @Override
+    public CompletableFuture<Void> stop() {
+        if (websocketClient == null) {
+            closeFuture.complete(null);
+            return closeFuture;
+        }
+        enqueue(CLOSE, 0);
+        return closeFuture;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String message) {
+        // Counted by the UTF-8 length, like OkHttp does.
+        return sendQueue.send(MessagePackWriter.utf8Length(message), () -> enqueue(message, MessagePackWriter.utf8Length(message)));
+    }
+
+    @Override
+    public CompletableFuture<Void> send(ByteBuffer message) {
+        // The WebSocket holds on to the buffer until the frame is written, the caller may reuse it.
+        ByteBuffer copy = ByteBuffer.allocate(message.remaining());
+        copy.put(message).flip();
+        return sendQueue.send(copy.remaining(), () -> enqueue(copy, copy.remaining()));
+    }
+
+    @Override
+    public void setOnReceive(OnReceiveCallBack onReceive) {
+        this.onReceive = onReceive;
+    }
+
+    @Override
+    public void setOnClose(BiConsumer<Integer, String> onClose) {
+        this.onClose = onClose;
+    }
+
+    private long queuedBytes() {
+        synchronized (outgoing) {
+            return queuedBytes;
+        }
+    }
+
+    private boolean enqueue(Object payload, long size) {
+        synchronized (outgoing) {
+            outgoing.add(new Frame(payload, size));
+            queuedBytes += size;
+            if (sending) {
+                return true;
+            }
+            sending = true;
+        }
+        sendNext();
+        return true;
+    }
+
+    private void sendNext() {
+        while (true) {
+            Frame frame;
+            synchronized (outgoing) {
+                frame = outgoing.peek();
+                if (frame == null) {
+                    sending = false;
+                    return;
+                }
+            }
+
+            WebSocket webSocket = websocketClient;
+            CompletableFuture<WebSocket> sent;
+            if (frame.payload == CLOSE) {
+                sent = webSocket.sendClose(1000, "HubConnection stopped.");
+            } else if (frame.payload instanceof String) {
+                sent = webSocket.sendText((String) frame.payload, true);
+            } else {
+                sent = webSocket.sendBinary((ByteBuffer) frame.payload, true);
+            }
+
+            if (!sent.isDone()) {
+                sent.whenComplete((ws, error) -> {
+                    if (frameSent(error)) {
+                        sendNext();
+                    }
+                });
+                return;
+            }
+            // Frames that go out right away are sent in this loop, instead of recursing.
+            Throwable error = null;
+            try {
+                sent.join();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            if (!frameSent(error)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the next frame should be sent.
+     */
+    private boolean frameSent(Throwable error) {
+        if (error != null) {
+            synchronized (outgoing) {
+                outgoing.clear();
+                queuedBytes = 0;
+                sending = false;
+            }
+            // The listener reports the close, the messages that didn't go out fail now.
+            sendQueue.close(new RuntimeException(error));
+            return false;
+        }
+
+        synchronized (outgoing) {
+            queuedBytes -= outgoing.poll().size;
+        }
+        sendQueue.poll();
+        return true;
+    }
+
+    private void closed(Integer code, String reason, Exception error) {
+        sendQueue.close(error);
+        onClose.accept(code, reason);
+        if (error != null) {
+            closeFuture.completeExceptionally(error);
+        } else {
+            closeFuture.complete(null);
+        }
+        // If the start future hasn't completed yet, then we need to complete it exceptionally.
+        if (!startFuture.isDone()) {
+            String errorMessage = "There was an error starting the Websockets transport.";
+            logger.log(LogLevel.Debug, errorMessage);
+            startFuture.completeExceptionally(new RuntimeException(errorMessage));
+        }
+    }
+
+    private class SignalRWebSocketListener implements WebSocket.Listener {
+        // Frames of a message that arrives in parts.
+        private final StringBuilder text = new StringBuilder();
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            websocketClient = webSocket;
+            webSocket.request(1);
+            startFuture.complete(null);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                try {
+                    onReceive.invoke(message);
+                } catch (Exception e) {
+                    logger.log(LogLevel.Error, "Failed to process a WebSocket message: %s", e.getMessage());
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            ByteBuffer message = data;
+            if (!last || binary.size() > 0) {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                binary.write(bytes, 0, bytes.length);
+                if (!last) {
+                    webSocket.request(1);
+                    return null;
+                }
+                message = ByteBuffer.wrap(binary.toByteArray());
+                binary.reset();
+            }
+
+            try {
+                // A single frame is handed over without a copy, it is only valid during the call.
+                onReceive.invoke(message);
+            } catch (Exception e) {
+                logger.log(LogLevel.Error, "Failed to process a WebSocket message: %s", e.getMessage());
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            // The close is answered once the returned stage completes, which null does right away.
+            closed(statusCode, reason, null);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            logger.log(LogLevel.Error, "Websocket closed from an error: %s.", error.getMessage());
+            closed(null, error.getMessage(), new RuntimeException(error));
+        }
+    }
+
+    private static final class Frame {
+        final Object payload;
+        final long size;
+
+        Frame(Object payload, long size) {
+            this.payload = payload;
+            this.size = size;
+        }
+    }
+}
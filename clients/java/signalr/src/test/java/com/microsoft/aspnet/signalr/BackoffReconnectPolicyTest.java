@@ -0,0 +1,59 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class BackoffReconnectPolicyTest {
+    @Test
+    public void delaysStayBelowTheDoublingCeiling() {
+        BackoffReconnectPolicy policy = new BackoffReconnectPolicy(Duration.ofMillis(100), Duration.ofSeconds(1), 10);
+        long[] ceilings = { 100, 200, 400, 800, 1000, 1000 };
+        for (int count = 0; count < ceilings.length; count++) {
+            for (int i = 0; i < 100; i++) {
+                Duration delay = policy.nextRetryDelay(count, Duration.ZERO);
+                assertFalse(delay.isNegative());
+                assertTrue(delay.toMillis() <= ceilings[count]);
+            }
+        }
+    }
+
+    @Test
+    public void delaysAreSpreadOut() {
+        BackoffReconnectPolicy policy = new BackoffReconnectPolicy(Duration.ofSeconds(10), Duration.ofSeconds(10), 10);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.nextRetryDelay(0, Duration.ZERO).toMillis();
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min < 2000);
+        assertTrue(max > 8000);
+    }
+
+    @Test
+    public void givesUpAfterTheMaximumNumberOfRetries() {
+        BackoffReconnectPolicy policy = new BackoffReconnectPolicy(Duration.ofMillis(100), Duration.ofSeconds(1), 2);
+        assertNotNull(policy.nextRetryDelay(1, Duration.ZERO));
+        assertNull(policy.nextRetryDelay(2, Duration.ZERO));
+    }
+
+    @Test
+    public void largeRetryCountsDoNotOverflow() {
+        BackoffReconnectPolicy policy = new BackoffReconnectPolicy(Duration.ofSeconds(1), Duration.ofSeconds(30), Integer.MAX_VALUE);
+        assertTrue(policy.nextRetryDelay(100, Duration.ZERO).getSeconds() <= 30);
+    }
+
+    @Test
+    public void maxDelayShorterThanBaseDelayThrows() {
+        Throwable exception = assertThrows(IllegalArgumentException.class,
+                () -> new BackoffReconnectPolicy(Duration.ofSeconds(2), Duration.ofSeconds(1), 1));
+        assertEquals("The maximum delay must not be shorter than the base delay.", exception.getMessage());
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConsoleLoggerTest {
+    @Test
+    public void isEnabledFromTheConfiguredLevel() {
+        ConsoleLogger logger = new ConsoleLogger(LogLevel.Information, new AsyncLogWriter(16, () -> System.out, () -> System.err));
+
+        assertFalse(logger.isEnabled(LogLevel.Trace));
+        assertFalse(logger.isEnabled(LogLevel.Debug));
+        assertTrue(logger.isEnabled(LogLevel.Information));
+        assertTrue(logger.isEnabled(LogLevel.Critical));
+        assertFalse(logger.isEnabled(LogLevel.None));
+        assertFalse(new NullLogger().isEnabled(LogLevel.Critical));
+    }
+
+    @Test
+    public void writesEnabledLinesToTheirStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(out, true);
+        PrintStream errStream = new PrintStream(err, true);
+        AsyncLogWriter writer = new AsyncLogWriter(16, () -> outStream, () -> errStream);
+        ConsoleLogger logger = new ConsoleLogger(LogLevel.Debug, writer);
+
+        logger.log(LogLevel.Trace, "Not logged.");
+        logger.log(LogLevel.Debug, "Received %d message(s) from '%s'.", 2, "hub");
+        logger.log(LogLevel.Information, "100% done.");
+        logger.log(LogLevel.Error, "Failed: %s", "boom");
+        assertTrue(writer.flush(5, TimeUnit.SECONDS));
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].matches("\\[\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}[+-]\\d{4}\\] \\[Debug\\] Received 2 message\\(s\\) from 'hub'\\."), lines[0]);
+        assertTrue(lines[1].endsWith("[Information] 100% done."), lines[1]);
+        assertTrue(err.toString().trim().endsWith("[Error] Failed: boom"), err.toString());
+    }
+
+    @Test
+    public void dropsLinesInsteadOfBlockingWhenTheBufferIsFull() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(out, true);
+        PrintStream errStream = new PrintStream(err, true);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch console = new CountDownLatch(1);
+        AsyncLogWriter writer = new AsyncLogWriter(2, () -> {
+            writing.countDown();
+            try {
+                console.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return outStream;
+        }, () -> errStream);
+
+        // The writer takes the first line and then waits for the console, the buffer holds two more.
+        assertTrue(writer.write(LogLevel.Information, "first", null));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.write(LogLevel.Information, "second", null));
+        assertTrue(writer.write(LogLevel.Information, "third", null));
+        assertFalse(writer.write(LogLevel.Information, "fourth", null));
+
+        console.countDown();
+        assertTrue(writer.flush(5, TimeUnit.SECONDS));
+
+        assertEquals(3, out.toString().split(System.lineSeparator()).length);
+        assertFalse(out.toString().contains("fourth"));
+        // The drop is reported once the writer has caught up.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!err.toString().contains("1 log message(s) were dropped") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(err.toString().contains("[Warning] 1 log message(s) were dropped"), err.toString());
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class HashedWheelTimerTest {
+    // A small wheel so that timeouts wrap around it several times.
+    private final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8, SharedScheduler.get());
+
+    @Test
+    public void timeoutRunsAfterItsDelay() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(expired::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(timeout.isExpired());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.pendingTimeouts());
+
+        CountDownLatch later = new CountDownLatch(1);
+        timer.newTimeout(later::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    public void manyTimeoutsExpireOnceEach() throws InterruptedException {
+        int count = 1000;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch expired = new CountDownLatch(count / 2);
+        for (int i = 0; i < count; i++) {
+            HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> {
+                runs.incrementAndGet();
+                expired.countDown();
+            }, i % 50, TimeUnit.MILLISECONDS);
+            if (i % 2 == 0) {
+                timeout.cancel();
+            }
+        }
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertEquals(count / 2, runs.get());
+        assertEquals(0, timer.pendingTimeouts());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopOtherTimeouts() throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        timer.newTimeout(() -> {
+            throw new IllegalStateException("Boom.");
+        }, 5, TimeUnit.MILLISECONDS);
+        timer.newTimeout(expired::countDown, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void wheelSizeMustBeAPowerOfTwo() {
+        Throwable exception = assertThrows(IllegalArgumentException.class,
+                () -> new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 10, SharedScheduler.get()));
+        assertEquals("The wheel size must be a power of two.", exception.getMessage());
+    }
+}
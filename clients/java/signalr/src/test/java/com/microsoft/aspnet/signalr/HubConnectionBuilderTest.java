@@ -6,6 +6,8 @@ package com.microsoft.aspnet.signalr;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
 public class HubConnectionBuilderTest {
@@ -29,4 +31,53 @@ public class HubConnectionBuilderTest {
         Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withUrl(""));
         assertEquals("A valid url is required.", exception.getMessage());
     }
+
+    @Test
+    public void passingInNullToWithHubProtocolThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withHubProtocol(null));
+        assertEquals("A valid hub protocol is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInNullToWithHandlerExecutorThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withHandlerExecutor(null));
+        assertEquals("A valid executor is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInZeroToWithInvocationTimeoutThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withInvocationTimeout(Duration.ZERO));
+        assertEquals("A positive invocation timeout is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInNullToWithAutomaticReconnectThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withAutomaticReconnect(null));
+        assertEquals("A valid reconnect policy is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInNullToWithTransportRuntimeThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withTransportRuntime(null));
+        assertEquals("A valid transport runtime is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInNullToWithHttpBackendThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withHttpBackend(null));
+        assertEquals("A valid HTTP backend is required.", exception.getMessage());
+    }
+
+    @Test
+    public void passingInNullToWithMetricsThrows() {
+        HubConnectionBuilder builder = new HubConnectionBuilder();
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> builder.withMetrics(null));
+        assertEquals("A valid metrics listener is required.", exception.getMessage());
+    }
 }
@@ -5,15 +5,31 @@ package com.microsoft.aspnet.signalr;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
 
 
 class HubConnectionTest {
@@ -456,6 +472,53 @@ class HubConnectionTest {
         assertTrue(hasException);
     }
 
+    @Test
+    public void invokeWithMessagePackProtocol() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        HubConnection hubConnection = new HubConnectionBuilder()
+                .withUrl("http://example.com", options)
+                .withHubProtocol(new MessagePackHubProtocol())
+                .build();
+
+        hubConnection.start();
+        assertEquals("{\"protocol\":\"messagepack\",\"version\":1}" + RECORD_SEPARATOR, mockTransport.getSentMessages()[0]);
+        mockTransport.receiveMessage(ByteBuffer.wrap(new byte[] { '{', '}', 0x1e }));
+
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+        byte[] expectedInvocation = new byte[] { 0x13, (byte) 0x95, 0x01, (byte) 0x80, (byte) 0xa1, '1', (byte) 0xa4, 'e', 'c', 'h', 'o',
+                (byte) 0x91, (byte) 0xa7, 'm', 'e', 's', 's', 'a', 'g', 'e' };
+        ByteBuffer sent = mockTransport.getSentBinaryMessages()[0];
+        byte[] sentBytes = new byte[sent.remaining()];
+        sent.get(sentBytes);
+        assertArrayEquals(expectedInvocation, sentBytes);
+        assertFalse(result.isDone());
+
+        mockTransport.receiveMessage(ByteBuffer.wrap(new byte[] { 0x07, (byte) 0x95, 0x03, (byte) 0x80, (byte) 0xa1, '1', 0x03, 0x2a }));
+
+        assertEquals(Integer.valueOf(42), result.get(1000L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void handshakeAndMessagesInOneBinaryFrame() throws Exception {
+        AtomicReference<Integer> value = new AtomicReference<>();
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        options.setHubProtocol(new MessagePackHubProtocol());
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options).build();
+        hubConnection.on("inc", (param) -> value.set(param), Integer.class);
+
+        hubConnection.start();
+        mockTransport.receiveMessage(ByteBuffer.wrap(new byte[] { '{', '}', 0x1e, 0x0a, (byte) 0x95, 0x01, (byte) 0x80, (byte) 0xc0,
+                (byte) 0xa3, 'i', 'n', 'c', (byte) 0x91, 0x07 }));
+
+        assertEquals(Integer.valueOf(7), value.get());
+    }
+
     @Test
     public void sendWithNoParamsTriggersOnHandler() throws Exception {
         AtomicReference<Integer> value = new AtomicReference<>(0);
@@ -495,6 +558,307 @@ class HubConnectionTest {
         assertEquals("Hello World", value.get());
     }
 
+    @Test
+    public void sendWithPrimitiveParamTriggersOnHandler() throws Exception {
+        AtomicReference<Integer> value = new AtomicReference<>();
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.on("inc", (param) -> {
+            assertNull(value.get());
+            value.set(param);
+        }, int.class);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        mockTransport.receiveMessage("{\"type\":1,\"target\":\"inc\",\"arguments\":[42]}" + RECORD_SEPARATOR);
+
+        assertEquals(Integer.valueOf(42), value.get());
+    }
+
+    @Test
+    public void handlerExecutorRunsHandlersOffTheReceivingThreadInOrder() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            MockTransport mockTransport = new MockTransport();
+            HttpConnectionOptions options = new HttpConnectionOptions();
+            options.setTransport(mockTransport);
+            options.setSkipNegotiate(true);
+            options.setHttpClient(new TestHttpClient());
+            options.setHandlerExecutor(executor);
+            HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options).build();
+
+            Thread receivingThread = Thread.currentThread();
+            CountDownLatch done = new CountDownLatch(3);
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            hubConnection.on("inc", (value) -> {
+                assertNotSame(receivingThread, Thread.currentThread());
+                order.add(value);
+                done.countDown();
+            }, Integer.class);
+
+            hubConnection.start();
+            mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+            mockTransport.receiveMessage("{\"type\":1,\"target\":\"inc\",\"arguments\":[1]}" + RECORD_SEPARATOR
+                    + "{\"type\":1,\"target\":\"inc\",\"arguments\":[2]}" + RECORD_SEPARATOR
+                    + "{\"type\":1,\"target\":\"inc\",\"arguments\":[3]}" + RECORD_SEPARATOR);
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList(1, 2, 3), order);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void outboundBatchingSendsMessagesInOneFrameAndFlushesOnStop() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        options.setHttpClient(new TestHttpClient());
+        HubConnection hubConnection = new HubConnectionBuilder()
+                .withUrl("http://example.com", options)
+                .withOutboundBatching(1000, Duration.ofHours(1))
+                .build();
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        hubConnection.send("inc", "A");
+        hubConnection.send("inc", "B");
+        assertEquals(1, mockTransport.getSentMessages().length);
+
+        hubConnection.stop();
+        String[] sentMessages = mockTransport.getSentMessages();
+        assertEquals(2, sentMessages.length);
+        assertEquals("{\"type\":1,\"target\":\"inc\",\"arguments\":[\"A\"]}" + RECORD_SEPARATOR
+                + "{\"type\":1,\"target\":\"inc\",\"arguments\":[\"B\"]}" + RECORD_SEPARATOR, sentMessages[1]);
+    }
+
+    @Test
+    public void invokeFailsWhenTheMessageCannotBeSent() throws Exception {
+        AtomicBoolean rejectSends = new AtomicBoolean();
+        MockTransport mockTransport = new MockTransport() {
+            @Override
+            public CompletableFuture send(String message) {
+                if (rejectSends.get()) {
+                    CompletableFuture<Void> future = new CompletableFuture<>();
+                    future.completeExceptionally(new RejectedExecutionException("The send queue is full."));
+                    return future;
+                }
+                return super.send(message);
+            }
+        };
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        rejectSends.set(true);
+
+        CompletableFuture<Void> sendFuture = hubConnection.send("inc", "A");
+        Throwable exception = assertThrows(ExecutionException.class, () -> sendFuture.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("The send queue is full.", exception.getCause().getMessage());
+
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+        exception = assertThrows(ExecutionException.class, () -> result.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("The send queue is full.", exception.getCause().getMessage());
+
+        // The failed invocation is no longer pending, a late completion for it is ignored.
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\",\"result\":42}" + RECORD_SEPARATOR);
+    }
+
+    @Test
+    public void invokeFailsWhenNoResultArrivesWithinTheTimeout() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        options.setHttpClient(new TestHttpClient());
+        HubConnection hubConnection = new HubConnectionBuilder()
+                .withUrl("http://example.com", options)
+                .withInvocationTimeout(Duration.ofMillis(50))
+                .build();
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+        Throwable exception = assertThrows(ExecutionException.class, () -> result.get(5000, TimeUnit.MILLISECONDS));
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        assertEquals("The invocation of 'echo' did not complete within 50 ms.", exception.getCause().getMessage());
+        assertEquals(1, hubConnection.getTimedOutInvocationCount());
+
+        // The timed out invocation is no longer pending, a late completion for it is ignored.
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\",\"result\":42}" + RECORD_SEPARATOR);
+
+        // A per-call timeout overrides the default, and a result that arrives in time cancels the timeout.
+        CompletableFuture<Integer> answered = hubConnection.invoke(Duration.ofHours(1), Integer.class, "echo", "message");
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"2\",\"result\":42}" + RECORD_SEPARATOR);
+        assertEquals(Integer.valueOf(42), answered.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(1, hubConnection.getTimedOutInvocationCount());
+    }
+
+    @Test
+    public void streamDeliversItemsAsTheyAreRequested() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        hubConnection.stream(Integer.class, "count", 3).subscribe(subscriber);
+        assertEquals("{\"type\":4,\"invocationId\":\"1\",\"target\":\"count\",\"arguments\":[3]}" + RECORD_SEPARATOR,
+                mockTransport.getSentMessages()[1]);
+
+        subscriber.subscription.request(1);
+        mockTransport.receiveMessage("{\"type\":2,\"invocationId\":\"1\",\"item\":1}" + RECORD_SEPARATOR);
+        mockTransport.receiveMessage("{\"type\":2,\"invocationId\":\"1\",\"item\":2}" + RECORD_SEPARATOR);
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\"}" + RECORD_SEPARATOR);
+        assertEquals(Arrays.asList(1), subscriber.items);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void cancellingStreamSendsCancelInvocation() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        hubConnection.stream(Integer.class, "count", 3).subscribe(subscriber);
+        subscriber.subscription.request(10);
+        mockTransport.receiveMessage("{\"type\":2,\"invocationId\":\"1\",\"item\":1}" + RECORD_SEPARATOR);
+        subscriber.subscription.cancel();
+
+        assertEquals("{\"type\":5,\"invocationId\":\"1\"}" + RECORD_SEPARATOR, mockTransport.getSentMessages()[2]);
+
+        // Items that were already on their way are dropped.
+        mockTransport.receiveMessage("{\"type\":2,\"invocationId\":\"1\",\"item\":2}" + RECORD_SEPARATOR);
+        assertEquals(Arrays.asList(1), subscriber.items);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void streamErrorAndStopAreDeliveredToSubscribers() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        TestSubscriber<Integer> failed = new TestSubscriber<>();
+        TestSubscriber<Integer> stopped = new TestSubscriber<>();
+        hubConnection.stream(Integer.class, "count", 3).subscribe(failed);
+        hubConnection.stream(Integer.class, "count", 3).subscribe(stopped);
+
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\",\"error\":\"There was an error\"}" + RECORD_SEPARATOR);
+        assertTrue(failed.error instanceof HubException);
+        assertEquals("There was an error", failed.error.getMessage());
+
+        hubConnection.stop();
+        assertTrue(stopped.error instanceof CancellationException);
+
+        TestSubscriber<Integer> notConnected = new TestSubscriber<>();
+        hubConnection.stream(Integer.class, "count", 3).subscribe(notConnected);
+        assertEquals("The 'stream' method cannot be called if the connection is not active", notConnected.error.getMessage());
+    }
+
+    @Test
+    public void publisherArgumentIsUploadedAsStreamItems() throws Exception {
+        AtomicReference<CompletableFuture<Void>> heldSend = new AtomicReference<>();
+        AtomicBoolean holdSends = new AtomicBoolean();
+        MockTransport mockTransport = new MockTransport() {
+            @Override
+            public CompletableFuture send(String message) {
+                super.send(message);
+                if (holdSends.getAndSet(false)) {
+                    heldSend.set(new CompletableFuture<>());
+                    return heldSend.get();
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        TestPublisher<String> publisher = new TestPublisher<>();
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "upload", "meta", publisher);
+        assertEquals("{\"type\":1,\"invocationId\":\"1\",\"target\":\"upload\",\"arguments\":[\"meta\"],\"streamIds\":[\"2\"]}"
+                + RECORD_SEPARATOR, mockTransport.getSentMessages()[1]);
+        assertEquals(UploadStream.MAX_OUTSTANDING_ITEMS, publisher.requested.get());
+
+        // Items that arrive while a frame is being written go out together in the next frame.
+        holdSends.set(true);
+        publisher.subscriber.onNext("a");
+        publisher.subscriber.onNext("b");
+        publisher.subscriber.onNext("c");
+        publisher.subscriber.onComplete();
+        assertEquals(3, mockTransport.getSentMessages().length);
+        assertEquals("{\"type\":2,\"invocationId\":\"2\",\"item\":\"a\"}" + RECORD_SEPARATOR, mockTransport.getSentMessages()[2]);
+
+        heldSend.get().complete(null);
+        assertEquals(4, mockTransport.getSentMessages().length);
+        assertEquals("{\"type\":2,\"invocationId\":\"2\",\"item\":\"b\"}" + RECORD_SEPARATOR
+                + "{\"type\":2,\"invocationId\":\"2\",\"item\":\"c\"}" + RECORD_SEPARATOR
+                + "{\"type\":3,\"invocationId\":\"2\"}" + RECORD_SEPARATOR, mockTransport.getSentMessages()[3]);
+        assertEquals(UploadStream.MAX_OUTSTANDING_ITEMS + 1, publisher.requested.get());
+
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\",\"result\":3}" + RECORD_SEPARATOR);
+        assertEquals(Integer.valueOf(3), result.get(1000, TimeUnit.MILLISECONDS));
+        assertFalse(publisher.cancelled);
+    }
+
+    @Test
+    public void iteratorArgumentIsUploadedAsStreamItems() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        hubConnection.send("upload", Arrays.asList(1, 2).iterator());
+        assertEquals("{\"type\":1,\"target\":\"upload\",\"arguments\":[],\"streamIds\":[\"1\"]}" + RECORD_SEPARATOR,
+                mockTransport.getSentMessages()[1]);
+
+        String expected = "{\"type\":2,\"invocationId\":\"1\",\"item\":1}" + RECORD_SEPARATOR
+                + "{\"type\":2,\"invocationId\":\"1\",\"item\":2}" + RECORD_SEPARATOR
+                + "{\"type\":3,\"invocationId\":\"1\"}" + RECORD_SEPARATOR;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String uploaded;
+        do {
+            String[] sentMessages = mockTransport.getSentMessages();
+            uploaded = String.join("", Arrays.asList(sentMessages).subList(2, sentMessages.length));
+            Thread.sleep(1);
+        } while (!uploaded.equals(expected) && System.nanoTime() < deadline);
+        assertEquals(expected, uploaded);
+    }
+
+    @Test
+    public void stopCancelsUploads() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = TestUtils.createHubConnection("http://example.com", mockTransport);
+
+        hubConnection.start();
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        TestPublisher<String> publisher = new TestPublisher<>();
+        hubConnection.send("upload", publisher);
+        publisher.subscriber.onNext("a");
+        hubConnection.stop();
+
+        assertTrue(publisher.cancelled);
+    }
+
     @Test
     public void sendWithTwoParamsTriggersOnHandler() throws Exception {
         AtomicReference<String> value1 = new AtomicReference<>();
@@ -1095,6 +1459,95 @@ class HubConnectionTest {
         assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
     }
 
+    @Test
+    public void connectsWithLongPollingWhenWebSocketsIsNotOffered() throws Exception {
+        AtomicLong polls = new AtomicLong();
+        CompletableFuture<HttpResponse> pendingPoll = new CompletableFuture<>();
+        TestHttpClient client = new TestHttpClient()
+                .on("POST", "http://example.com/negotiate", (req) -> CompletableFuture
+                        .completedFuture(new HttpResponse(200, "", "{\"connectionId\":\"bVOiRPG8-6YiJ6d7ZcTOVQ\",\""
+                                + "availableTransports\":[{\"transport\":\"LongPolling\",\"transferFormats\":[\"Text\",\"Binary\"]}]}")))
+                .on("POST", "http://example.com?id=bVOiRPG8-6YiJ6d7ZcTOVQ", (req) -> CompletableFuture.completedFuture(new HttpResponse(200, "", "")))
+                .on("GET", (req) -> {
+                    long poll = polls.incrementAndGet();
+                    if (poll == 1) {
+                        return CompletableFuture.completedFuture(new HttpResponse(200, "", ""));
+                    } else if (poll == 2) {
+                        return CompletableFuture.completedFuture(new HttpResponse(200, "", "{}" + RECORD_SEPARATOR));
+                    }
+                    return pendingPoll;
+                });
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setHttpClient(client);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options).build();
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+
+        assertEquals(HubConnectionState.CONNECTED, hubConnection.getConnectionState());
+        assertEquals(3, polls.get());
+        HttpRequest handshake = client.getSentRequests().stream()
+                .filter((req) -> req.getMethod().equals("POST") && req.getBody() != null).findFirst().get();
+        assertEquals("{\"protocol\":\"json\",\"version\":1}" + RECORD_SEPARATOR, new String(handshake.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void fallsBackWhenWebSocketsFailsAndTriesTheWorkingTransportFirstAfterwards() throws Exception {
+        AtomicInteger webSocketAttempts = new AtomicInteger();
+        AtomicLong polls = new AtomicLong();
+        TestHttpClient client = new TestHttpClient() {
+            @Override
+            public WebSocketWrapper createWebSocket(String url, Map<String, String> headers) {
+                webSocketAttempts.incrementAndGet();
+                return super.createWebSocket(url, headers);
+            }
+        };
+        client.on("POST", "http://fallback.example.com/negotiate", (req) -> CompletableFuture
+                        .completedFuture(new HttpResponse(200, "", "{\"connectionId\":\"bVOiRPG8-6YiJ6d7ZcTOVQ\",\""
+                                + "availableTransports\":[{\"transport\":\"WebSockets\",\"transferFormats\":[\"Text\",\"Binary\"]},"
+                                + "{\"transport\":\"LongPolling\",\"transferFormats\":[\"Text\",\"Binary\"]}]}")))
+                .on("POST", "http://fallback.example.com?id=bVOiRPG8-6YiJ6d7ZcTOVQ", (req) -> CompletableFuture.completedFuture(new HttpResponse(200, "", "")))
+                .on("DELETE", (req) -> CompletableFuture.completedFuture(new HttpResponse(202, "", "")))
+                .on("GET", (req) -> {
+                    // Every start polls once to connect, once for the handshake response, then waits.
+                    long poll = polls.incrementAndGet() % 3;
+                    if (poll == 1) {
+                        return CompletableFuture.completedFuture(new HttpResponse(200, "", ""));
+                    } else if (poll == 2) {
+                        return CompletableFuture.completedFuture(new HttpResponse(200, "", "{}" + RECORD_SEPARATOR));
+                    }
+                    return new CompletableFuture<>();
+                });
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setHttpClient(client);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://fallback.example.com", options).build();
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(HubConnectionState.CONNECTED, hubConnection.getConnectionState());
+        assertEquals(1, webSocketAttempts.get());
+
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(HubConnectionState.CONNECTED, hubConnection.getConnectionState());
+        assertEquals(1, webSocketAttempts.get());
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void binaryProtocolSkipsTransportsThatOnlyCarryText() throws Exception {
+        TestHttpClient client = new TestHttpClient()
+                .on("POST", "http://example.com/negotiate", (req) -> CompletableFuture
+                        .completedFuture(new HttpResponse(200, "", "{\"connectionId\":\"bVOiRPG8-6YiJ6d7ZcTOVQ\",\""
+                                + "availableTransports\":[{\"transport\":\"WebSockets\",\"transferFormats\":[\"Text\"]},"
+                                + "{\"transport\":\"ServerSentEvents\",\"transferFormats\":[\"Text\"]}]}")));
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setHttpClient(client);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options)
+                .withHubProtocol(new MessagePackHubProtocol()).build();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> hubConnection.start().get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("There were no compatible transports on the server.", exception.getCause().getCause().getMessage());
+    }
+
     @Test
     public void non200FromNegotiateThrowsError() {
         TestHttpClient client = new TestHttpClient()
@@ -1111,4 +1564,222 @@ class HubConnectionTest {
         ExecutionException exception = assertThrows(ExecutionException.class, () -> hubConnection.start().get(1000, TimeUnit.MILLISECONDS));
         assertEquals("Unexpected status code returned from negotiate: 500 Internal server error.", exception.getCause().getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void lostConnectionReconnectsAndKeepsHandlers() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createReconnectingHubConnection(mockTransport, (count, elapsed) -> count < 3 ? Duration.ZERO : null);
+        AtomicReference<String> value = new AtomicReference<>();
+        hubConnection.on("inc", (v) -> value.set(v), String.class);
+        AtomicReference<Exception> reconnectingError = new AtomicReference<>();
+        CountDownLatch reconnected = new CountDownLatch(1);
+        hubConnection.onReconnecting(reconnectingError::set);
+        hubConnection.onReconnected(reconnected::countDown);
+        AtomicBoolean closed = new AtomicBoolean();
+        hubConnection.onClosed((error) -> closed.set(true));
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.stopWithError("Connection lost.");
+        assertEquals("Connection lost.", reconnectingError.get().getMessage());
+
+        assertTrue(reconnected.await(5, TimeUnit.SECONDS));
+        assertEquals(HubConnectionState.CONNECTED, hubConnection.getConnectionState());
+        assertFalse(closed.get());
+
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        mockTransport.receiveMessage("{\"type\":1,\"target\":\"inc\",\"arguments\":[\"after reconnect\"]}" + RECORD_SEPARATOR);
+        assertEquals("after reconnect", value.get());
+
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void lostConnectionFailsPendingInvocationsBeforeReconnecting() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createReconnectingHubConnection(mockTransport, (count, elapsed) -> Duration.ofSeconds(10));
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+        mockTransport.stopWithError("Connection lost.");
+
+        assertEquals(HubConnectionState.RECONNECTING, hubConnection.getConnectionState());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("Connection lost.", exception.getCause().getMessage());
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void stopWhileReconnectingStopsRetrying() throws Exception {
+        AtomicLong starts = new AtomicLong();
+        MockTransport mockTransport = new MockTransport() {
+            @Override
+            public CompletableFuture start(String url) {
+                starts.incrementAndGet();
+                return super.start(url);
+            }
+        };
+        HubConnection hubConnection = createReconnectingHubConnection(mockTransport, (count, elapsed) -> Duration.ofMillis(200));
+        AtomicReference<Exception> closedError = new AtomicReference<>(new Exception());
+        hubConnection.onClosed(closedError::set);
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.stopWithError("Connection lost.");
+        assertEquals(HubConnectionState.RECONNECTING, hubConnection.getConnectionState());
+
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+        assertNull(closedError.get());
+
+        // A retry would run on the shared scheduler before this task, which is due long after it. Waiting for the
+        // task instead of sleeping keeps the test correct however late the scheduler runs.
+        SharedScheduler.get().schedule(() -> { }, 2, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+        assertEquals(1, starts.get());
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+    }
+
+    @Test
+    public void reconnectGivesUpWhenThePolicyReturnsNull() throws Exception {
+        AtomicLong starts = new AtomicLong();
+        MockTransport mockTransport = new MockTransport() {
+            @Override
+            public CompletableFuture start(String url) {
+                if (starts.incrementAndGet() == 1) {
+                    return super.start(url);
+                }
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new RuntimeException("Server unavailable."));
+                return failed;
+            }
+        };
+        List<Integer> retryCounts = Collections.synchronizedList(new ArrayList<>());
+        HubConnection hubConnection = createReconnectingHubConnection(mockTransport, (count, elapsed) -> {
+            retryCounts.add(count);
+            return count < 3 ? Duration.ZERO : null;
+        });
+        CompletableFuture<Exception> closedError = new CompletableFuture<>();
+        hubConnection.onClosed(closedError::complete);
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.stopWithError("Connection lost.");
+
+        assertEquals("Server unavailable.", closedError.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+        assertEquals(Arrays.asList(0, 1, 2, 3), retryCounts);
+        assertEquals(4, starts.get());
+    }
+
+    @Test
+    public void stopWithoutErrorDoesNotReconnect() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createReconnectingHubConnection(mockTransport, (count, elapsed) -> Duration.ZERO);
+        AtomicBoolean reconnecting = new AtomicBoolean();
+        hubConnection.onReconnecting((error) -> reconnecting.set(true));
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.stop();
+
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+        assertFalse(reconnecting.get());
+    }
+
+    @Test
+    public void pingIsSentWhenTheClientIsIdle() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        options.setServerTimeout(Duration.ZERO);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options)
+                .withKeepAliveInterval(Duration.ofMillis(50)).build();
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Arrays.asList(mockTransport.getSentMessages()).contains("{\"type\":6}" + RECORD_SEPARATOR)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals("{\"type\":6}" + RECORD_SEPARATOR, mockTransport.getSentMessages()[1]);
+        hubConnection.stop().get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void serverTimeoutStopsTheConnection() throws Exception {
+        MockTransport mockTransport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(mockTransport);
+        options.setSkipNegotiate(true);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options)
+                .withServerTimeout(Duration.ofMillis(100)).build();
+        CompletableFuture<Exception> closedError = new CompletableFuture<>();
+        hubConnection.onClosed(closedError::complete);
+
+        long start = System.nanoTime();
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+
+        assertEquals("Server timeout elapsed without receiving a message from the server within 100 ms.",
+                closedError.get(5, TimeUnit.SECONDS).getMessage());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+    }
+
+    private static HubConnection createReconnectingHubConnection(MockTransport transport, ReconnectPolicy policy) {
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(transport);
+        options.setSkipNegotiate(true);
+        return new HubConnectionBuilder().withUrl("http://example.com", options).withAutomaticReconnect(policy).build();
+    }
+
+    private static class TestSubscriber<T> implements Subscriber<T> {
+        private final List<T> items = Collections.synchronizedList(new ArrayList<>());
+        private volatile org.reactivestreams.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(org.reactivestreams.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static class TestPublisher<T> implements Publisher<T> {
+        private final AtomicLong requested = new AtomicLong();
+        private volatile Subscriber<? super T> subscriber;
+        private volatile boolean cancelled;
+
+        @Override
+        public void subscribe(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new org.reactivestreams.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
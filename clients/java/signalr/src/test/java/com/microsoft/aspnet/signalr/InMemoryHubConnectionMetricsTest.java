@@ -0,0 +1,110 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class InMemoryHubConnectionMetricsTest {
+    private static final String RECORD_SEPARATOR = "\u001e";
+
+    @Test
+    public void countsMessagesAndBytesInBothDirections() throws Exception {
+        InMemoryHubConnectionMetrics metrics = new InMemoryHubConnectionMetrics();
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createHubConnection(mockTransport, metrics, Duration.ZERO);
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        hubConnection.send("inc", "\u00e9");
+        mockTransport.receiveMessage("{\"type\":1,\"target\":\"inc\",\"arguments\":[]}" + RECORD_SEPARATOR
+                + "{\"type\":6}" + RECORD_SEPARATOR);
+
+        assertEquals(1, metrics.getHandshakeTime().getCount());
+        assertEquals(1, metrics.getMessagesSent(HubMessageType.INVOCATION));
+        String sent = mockTransport.getSentMessages()[1];
+        // The argument takes two bytes in UTF-8.
+        assertEquals(sent.length() + 1, metrics.getBytesSent(HubMessageType.INVOCATION));
+        assertEquals(0, metrics.getOutboundQueueDepth());
+        assertEquals(1, metrics.getMessagesReceived(HubMessageType.INVOCATION));
+        assertEquals(1, metrics.getMessagesReceived(HubMessageType.PING));
+        assertTrue(metrics.getBytesReceived() > 0);
+
+        hubConnection.stop();
+    }
+
+    @Test
+    public void recordsInvocationLatencyAndPendingInvocations() throws Exception {
+        InMemoryHubConnectionMetrics metrics = new InMemoryHubConnectionMetrics();
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createHubConnection(mockTransport, metrics, Duration.ZERO);
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+        assertEquals(1, metrics.getPendingInvocations());
+
+        mockTransport.receiveMessage("{\"type\":3,\"invocationId\":\"1\",\"result\":42}" + RECORD_SEPARATOR);
+        assertEquals(Integer.valueOf(42), result.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals(0, metrics.getPendingInvocations());
+        assertEquals(1, metrics.getInvocationLatency().getCount());
+
+        hubConnection.stop();
+    }
+
+    @Test
+    public void countsTimedOutInvocations() throws Exception {
+        InMemoryHubConnectionMetrics metrics = new InMemoryHubConnectionMetrics();
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createHubConnection(mockTransport, metrics, Duration.ofMillis(50));
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        CompletableFuture<Integer> result = hubConnection.invoke(Integer.class, "echo", "message");
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getTimedOutInvocations());
+        assertEquals(0, metrics.getPendingInvocations());
+
+        hubConnection.stop();
+    }
+
+    @Test
+    public void recordsHandlerTimePerTarget() throws Exception {
+        InMemoryHubConnectionMetrics metrics = new InMemoryHubConnectionMetrics();
+        MockTransport mockTransport = new MockTransport();
+        HubConnection hubConnection = createHubConnection(mockTransport, metrics, Duration.ZERO);
+        hubConnection.on("slow", () -> { });
+        hubConnection.on("fast", () -> { });
+
+        hubConnection.start().get(1000, TimeUnit.MILLISECONDS);
+        mockTransport.receiveMessage("{}" + RECORD_SEPARATOR);
+        mockTransport.receiveMessage("{\"type\":1,\"target\":\"slow\",\"arguments\":[]}" + RECORD_SEPARATOR
+                + "{\"type\":1,\"target\":\"slow\",\"arguments\":[]}" + RECORD_SEPARATOR
+                + "{\"type\":1,\"target\":\"fast\",\"arguments\":[]}" + RECORD_SEPARATOR);
+
+        assertEquals(2, metrics.getHandlerTime("slow").getCount());
+        assertEquals(1, metrics.getHandlerTime("fast").getCount());
+        assertNull(metrics.getHandlerTime("other"));
+        assertEquals(2, metrics.getHandlerTargets().size());
+        assertTrue(metrics.getHandlerTargets().contains("slow"));
+
+        hubConnection.stop();
+    }
+
+    private static HubConnection createHubConnection(MockTransport transport, HubConnectionMetrics metrics, Duration invocationTimeout) {
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(transport);
+        options.setSkipNegotiate(true);
+        options.setMetrics(metrics);
+        options.setInvocationTimeout(invocationTimeout);
+        return new HubConnectionBuilder().withUrl("http://example.com", options).build();
+    }
+}
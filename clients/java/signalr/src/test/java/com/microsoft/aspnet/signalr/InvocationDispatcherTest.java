@@ -0,0 +1,121 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+class InvocationDispatcherTest {
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<Object> invoked = Collections.synchronizedList(new ArrayList<>());
+    private final List<InvocationHandler> handlers = Collections.singletonList(
+            new InvocationHandler(args -> invoked.add(args[0]), new ArrayList<>(Arrays.asList(Integer.class))));
+
+    @Test
+    public void handlersRunInlineWithoutAnExecutor() {
+        InvocationDispatcher dispatcher = new InvocationDispatcher(null, new NullLogger());
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+
+        assertEquals(Arrays.asList(1), invoked);
+    }
+
+    @Test
+    public void sameTargetRunsInOrderOnOneScheduledTask() {
+        InvocationDispatcher dispatcher = createDispatcher(HandlerOverflowPolicy.FAIL);
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+        dispatcher.dispatch("target", handlers, new Object[] { 2 });
+
+        assertTrue(invoked.isEmpty());
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(Arrays.asList(1, 2), invoked);
+    }
+
+    @Test
+    public void targetsOnDifferentStripesAreScheduledIndependently() {
+        InvocationDispatcher dispatcher = new InvocationDispatcher(scheduled::add, new NullLogger(), 2, HandlerOverflowPolicy.FAIL, 2);
+        dispatcher.dispatch("a", handlers, new Object[] { 1 });
+        dispatcher.dispatch("b", handlers, new Object[] { 2 });
+
+        // Each stripe gets its own task, so a blocked handler for "a" can't hold up "b".
+        assertEquals(2, scheduled.size());
+        scheduled.remove(1).run();
+        assertEquals(Arrays.asList(2), invoked);
+    }
+
+    @Test
+    public void dropOldestDiscardsTheOldestQueuedInvocation() {
+        InvocationDispatcher dispatcher = createDispatcher(HandlerOverflowPolicy.DROP_OLDEST);
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+        dispatcher.dispatch("target", handlers, new Object[] { 2 });
+        dispatcher.dispatch("target", handlers, new Object[] { 3 });
+
+        runScheduled();
+        assertEquals(Arrays.asList(2, 3), invoked);
+    }
+
+    @Test
+    public void failRejectsInvocationWhenQueueIsFull() {
+        InvocationDispatcher dispatcher = createDispatcher(HandlerOverflowPolicy.FAIL);
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+        dispatcher.dispatch("target", handlers, new Object[] { 2 });
+
+        Throwable exception = assertThrows(RejectedExecutionException.class,
+                () -> dispatcher.dispatch("target", handlers, new Object[] { 3 }));
+        assertEquals("Handler queue is full, could not queue an invocation of 'target'.", exception.getMessage());
+        runScheduled();
+        assertEquals(Arrays.asList(1, 2), invoked);
+    }
+
+    @Test
+    public void blockWaitsForRoomInTheQueue() throws Exception {
+        InvocationDispatcher dispatcher = createDispatcher(HandlerOverflowPolicy.BLOCK);
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+        dispatcher.dispatch("target", handlers, new Object[] { 2 });
+
+        Thread producer = new Thread(() -> dispatcher.dispatch("target", handlers, new Object[] { 3 }));
+        producer.start();
+        while (producer.getState() != Thread.State.WAITING) {
+            assertTrue(producer.isAlive());
+            Thread.sleep(1);
+        }
+
+        runScheduled();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        runScheduled();
+        assertEquals(Arrays.asList(1, 2, 3), invoked);
+    }
+
+    @Test
+    public void handlerExceptionDoesNotStopTheQueue() {
+        List<InvocationHandler> throwing = Collections.singletonList(new InvocationHandler(args -> {
+            throw new RuntimeException("boom");
+        }, new ArrayList<>()));
+        InvocationDispatcher dispatcher = createDispatcher(HandlerOverflowPolicy.FAIL);
+        dispatcher.dispatch("target", throwing, new Object[0]);
+        dispatcher.dispatch("target", handlers, new Object[] { 1 });
+
+        runScheduled();
+        assertEquals(Arrays.asList(1), invoked);
+    }
+
+    private InvocationDispatcher createDispatcher(HandlerOverflowPolicy policy) {
+        // A single stripe with room for two invocations, run by hand.
+        return new InvocationDispatcher(scheduled::add, new NullLogger(), 2, policy, 1);
+    }
+
+    private void runScheduled() {
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+    }
+}
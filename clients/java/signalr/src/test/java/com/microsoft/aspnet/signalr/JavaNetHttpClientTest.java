@@ -0,0 +1,133 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnJre;
+import org.junit.jupiter.api.condition.JRE;
+
+import com.sun.net.httpserver.HttpServer;
+
+@DisabledOnJre({JRE.JAVA_8, JRE.JAVA_9, JRE.JAVA_10})
+class JavaNetHttpClientTest {
+    private final HttpClient client = HttpClient.create(HttpBackend.JAVA_NET_HTTP, new NullLogger(),
+            SendQueue.DEFAULT_HIGH_WATERMARK, SendBackpressurePolicy.AWAIT, null);
+
+    @Test
+    public void postSendsTheBodyAndReadsTheResponse() throws Exception {
+        HttpServer server = startServer();
+        try {
+            server.createContext("/echo", (exchange) -> {
+                byte[] body = readAll(exchange.getRequestBody());
+                String header = exchange.getRequestHeaders().getFirst("X-Test");
+                byte[] response = (header + ":" + new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(response);
+                }
+            });
+
+            HttpRequest request = new HttpRequest();
+            request.setHeader("X-Test", "header");
+            request.setBody("body".getBytes(StandardCharsets.UTF_8));
+            HttpResponse response = client.post(urlOf(server, "/echo"), request).get(5, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatusCode());
+            assertEquals("header:body", response.getContent());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void streamDeliversDataAsItArrives() throws Exception {
+        CountDownLatch firstChunkReceived = new CountDownLatch(1);
+        HttpServer server = startServer();
+        try {
+            server.createContext("/stream", (exchange) -> {
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write("first".getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    // The rest of the body is only written once the client got the first chunk.
+                    firstChunkReceived.await(5, TimeUnit.SECONDS);
+                    output.write("second".getBytes(StandardCharsets.UTF_8));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            AtomicReference<HttpResponse> response = new AtomicReference<>();
+            StringBuffer received = new StringBuffer();
+            CompletableFuture<Void> stream = client.stream(urlOf(server, "/stream"), new HttpRequest(), response::set, (chunk) -> {
+                received.append(StandardCharsets.UTF_8.decode(chunk));
+                if (received.toString().equals("first")) {
+                    firstChunkReceived.countDown();
+                }
+            });
+
+            stream.get(5, TimeUnit.SECONDS);
+            assertEquals(200, response.get().getStatusCode());
+            assertEquals("firstsecond", received.toString());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void streamWithAnErrorStatusEndsWithoutData() throws Exception {
+        HttpServer server = startServer();
+        try {
+            server.createContext("/missing", (exchange) -> {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            });
+
+            AtomicReference<HttpResponse> response = new AtomicReference<>();
+            AtomicInteger received = new AtomicInteger();
+            client.stream(urlOf(server, "/missing"), new HttpRequest(), response::set, (chunk) -> received.addAndGet(chunk.remaining()))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(404, response.get().getStatusCode());
+            assertEquals(0, received.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.start();
+        return server;
+    }
+
+    private static String urlOf(HttpServer server, String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
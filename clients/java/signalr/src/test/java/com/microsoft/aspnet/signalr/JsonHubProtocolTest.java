@@ -50,6 +50,11 @@ class JsonHubProtocolTest {
         assertEquals(HubMessageType.PING, messages[0].getMessageType());
     }
 
+    @Test
+    public void verifyWritePingMessage() {
+        assertEquals("{\"type\":6}\u001E", jsonHubProtocol.writeMessage(PingMessage.getInstance()));
+    }
+
     @Test
     public void parseCloseMessage() throws Exception {
         String stringifiedMessage = "{\"type\":7}\u001E";
@@ -109,12 +114,26 @@ class JsonHubProtocolTest {
     }
 
     @Test
-    public void parseSingleUnsupportedStreamItemMessage() throws Exception {
-        String stringifiedMessage = "{\"type\":2,\"Id\":1,\"Item\":42}\u001E";
-        TestBinder binder = new TestBinder(null);
+    public void parseSingleStreamItemMessage() throws Exception {
+        String stringifiedMessage = "{\"type\":2,\"invocationId\":\"1\",\"item\":42}\u001E";
+        TestBinder binder = new TestBinder(new StreamItemMessage("1", 42));
 
-        Throwable exception = assertThrows(UnsupportedOperationException.class, () -> jsonHubProtocol.parseMessages(stringifiedMessage, binder));
-        assertEquals("The message type STREAM_ITEM is not supported yet.", exception.getMessage());
+        HubMessage[] messages = jsonHubProtocol.parseMessages(stringifiedMessage, binder);
+        assertEquals(1, messages.length);
+        assertEquals(HubMessageType.STREAM_ITEM, messages[0].getMessageType());
+        StreamItemMessage streamItemMessage = (StreamItemMessage) messages[0];
+        assertEquals(1, streamItemMessage.getId());
+        assertEquals("1", streamItemMessage.getInvocationId());
+        assertEquals(42, streamItemMessage.getItem());
+    }
+
+    @Test
+    public void verifyWriteStreamInvocationAndCancelInvocationMessages() {
+        String streamInvocation = jsonHubProtocol.writeMessage(new StreamInvocationMessage("1", "test", new Object[] { 42 }));
+        assertEquals("{\"type\":4,\"invocationId\":\"1\",\"target\":\"test\",\"arguments\":[42]}\u001E", streamInvocation);
+
+        String cancelInvocation = jsonHubProtocol.writeMessage(new CancelInvocationMessage("1"));
+        assertEquals("{\"type\":5,\"invocationId\":\"1\"}\u001E", cancelInvocation);
     }
 
     @Test
@@ -166,6 +185,24 @@ class JsonHubProtocolTest {
         assertEquals(43, secondMessageResult);
     }
 
+    @Test
+    public void parseMessagesLargerThanReaderBuffer() throws Exception {
+        StringBuilder longArgument = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            longArgument.append((char)('a' + (i % 26)));
+        }
+        String message = "{\"type\":1,\"target\":\"test\",\"arguments\":[\"" + longArgument + "\"]}\u001E";
+        TestBinder binder = new TestBinder(new InvocationMessage(null, "test", new Object[] { "" }));
+
+        HubMessage[] messages = jsonHubProtocol.parseMessages(message + message + message, binder);
+        assertEquals(3, messages.length);
+        for (HubMessage hubMessage : messages) {
+            InvocationMessage invocationMessage = (InvocationMessage) hubMessage;
+            assertEquals("test", invocationMessage.getTarget());
+            assertEquals(longArgument.toString(), invocationMessage.getArguments()[0]);
+        }
+    }
+
     @Test
     public void parseSingleMessageMutipleArgs() throws Exception {
         String stringifiedMessage = "{\"type\":1,\"target\":\"test\",\"arguments\":[42, 24]}\u001E";
@@ -204,6 +241,24 @@ class JsonHubProtocolTest {
         assertEquals(24, messageResult2);
     }
 
+    @Test
+    public void parseCompletionMessageWithNumericAndNonNumericIds() throws Exception {
+        String stringifiedMessage = "{\"type\":3,\"invocationId\":\"12\",\"result\":42}\u001E"
+                + "{\"type\":3,\"invocationId\":\"abc\",\"result\":24}\u001E";
+        TestBinder binder = new TestBinder(new CompletionMessage("1", 42, null));
+
+        HubMessage[] messages = jsonHubProtocol.parseMessages(stringifiedMessage, binder);
+
+        CompletionMessage numeric = (CompletionMessage) messages[0];
+        assertEquals(12, numeric.getId());
+        assertEquals("12", numeric.getInvocationId());
+        assertEquals(42, numeric.getResult());
+        CompletionMessage nonNumeric = (CompletionMessage) messages[1];
+        assertEquals(PendingInvocationTable.NO_ID, nonNumeric.getId());
+        assertEquals("abc", nonNumeric.getInvocationId());
+        assertEquals(24, nonNumeric.getResult());
+    }
+
     @Test
     public void parseCompletionMessageWithOutOfOrderProperties() throws Exception {
         String stringifiedMessage = "{\"type\":3,\"result\":42,\"invocationId\":\"1\"}\u001E";
@@ -281,6 +336,7 @@ class JsonHubProtocolTest {
                     paramTypes = types.toArray(new Class<?>[types.size()]);
                     break;
                 case STREAM_ITEM:
+                    returnType = ((StreamItemMessage) expectedMessage).getItem().getClass();
                     break;
                 case COMPLETION:
                     returnType = ((CompletionMessage)expectedMessage).getResult().getClass();
@@ -0,0 +1,139 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class KeepAliveTest {
+    private final AtomicInteger pings = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    // Checks only run when the test advances the clock, so the results don't depend on the machine's timing.
+    private final ManualScheduler scheduler = new ManualScheduler();
+
+    @Test
+    public void sendingMessagesSuppressesPings() {
+        KeepAlive keepAlive = createKeepAlive(100, 0);
+        keepAlive.start();
+        for (int i = 0; i < 20; i++) {
+            scheduler.advance(10);
+            keepAlive.messageSent();
+        }
+        assertEquals(0, pings.get());
+
+        scheduler.advance(99);
+        assertEquals(0, pings.get());
+        scheduler.advance(1);
+        assertEquals(1, pings.get());
+        scheduler.advance(100);
+        assertEquals(2, pings.get());
+        keepAlive.stop();
+    }
+
+    @Test
+    public void receivingMessagesPostponesTheServerTimeout() {
+        KeepAlive keepAlive = createKeepAlive(0, 100);
+        keepAlive.start();
+        for (int i = 0; i < 20; i++) {
+            scheduler.advance(10);
+            keepAlive.messageReceived();
+        }
+        assertEquals(0, timeouts.get());
+
+        scheduler.advance(99);
+        assertEquals(0, timeouts.get());
+        scheduler.advance(1);
+        assertEquals(1, timeouts.get());
+        // A timeout stops the checks.
+        scheduler.advance(1000);
+        assertEquals(1, timeouts.get());
+    }
+
+    @Test
+    public void stoppedKeepAliveDoesNothing() {
+        KeepAlive keepAlive = createKeepAlive(20, 20);
+        keepAlive.start();
+        keepAlive.stop();
+
+        scheduler.advance(1000);
+        assertEquals(0, timeouts.get());
+        assertEquals(0, pings.get());
+    }
+
+    private KeepAlive createKeepAlive(long keepAliveMillis, long serverTimeoutMillis) {
+        return new KeepAlive(TimeUnit.MILLISECONDS.toNanos(keepAliveMillis), TimeUnit.MILLISECONDS.toNanos(serverTimeoutMillis),
+                pings::incrementAndGet, timeouts::incrementAndGet, scheduler, scheduler::now);
+    }
+
+    /**
+     * Runs the tasks scheduled with {@link #schedule(Runnable, long, TimeUnit)} on the test's thread when
+     * {@link #advance} moves its clock past their time. It never starts a thread.
+     */
+    private static final class ManualScheduler extends ScheduledThreadPoolExecutor {
+        private final List<Task> tasks = new ArrayList<>();
+        private long now;
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        long now() {
+            return now;
+        }
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+            while (true) {
+                Task due = null;
+                for (Task task : tasks) {
+                    if (task.time <= now && (due == null || task.time < due.time)) {
+                        due = task;
+                    }
+                }
+                if (due == null) {
+                    return;
+                }
+                tasks.remove(due);
+                // Does nothing if the task was cancelled.
+                due.run();
+            }
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task task = new Task(command, now + unit.toNanos(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        private final class Task extends FutureTask<Void> implements ScheduledFuture<Void> {
+            final long time;
+
+            Task(Runnable command, long time) {
+                super(command, null);
+                this.time = time;
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(time - now, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed other) {
+                return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class LongPollingTransportTest {
+    private final LinkedBlockingQueue<CompletableFuture<HttpResponse>> polls = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<CompletableFuture<HttpResponse>> posts = new LinkedBlockingQueue<>();
+    private final List<HttpRequest> postRequests = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<String> closeMessage = new AtomicReference<>("not closed");
+    private final TestHttpClient client = new TestHttpClient()
+            .on("GET", (req) -> {
+                CompletableFuture<HttpResponse> poll = new CompletableFuture<>();
+                polls.add(poll);
+                return poll;
+            })
+            .on("POST", (req) -> {
+                CompletableFuture<HttpResponse> post = new CompletableFuture<>();
+                postRequests.add(req);
+                posts.add(post);
+                return post;
+            })
+            .on("DELETE", (req) -> CompletableFuture.completedFuture(new HttpResponse(202, "", "")));
+
+    @Test
+    public void nextPollIsSentBeforeThePayloadIsDelivered() throws Exception {
+        List<Integer> pollsWhileDelivering = Collections.synchronizedList(new ArrayList<>());
+        LongPollingTransport transport = createTransport(TransferFormat.TEXT);
+        transport.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) {
+                pollsWhileDelivering.add(polls.size());
+                received.add(message);
+            }
+
+            @Override
+            public void invoke(ByteBuffer message) {
+            }
+        });
+        CompletableFuture<Void> started = transport.start("http://example.com?id=1");
+        nextPoll().complete(new HttpResponse(200, "", ""));
+        started.get(1000, TimeUnit.MILLISECONDS);
+
+        nextPoll().complete(new HttpResponse(200, "", "first"));
+        assertEquals(Collections.singletonList("first"), received);
+        assertEquals(Collections.singletonList(1), pollsWhileDelivering);
+
+        nextPoll().complete(new HttpResponse(200, "", "second"));
+        assertEquals(2, received.size());
+        assertEquals("second", received.get(1));
+        assertNotNull(nextPoll());
+    }
+
+    @Test
+    public void sendsWhileAPostIsInFlightGoOutTogether() throws Exception {
+        LongPollingTransport transport = startTransport(TransferFormat.TEXT);
+
+        CompletableFuture<Void> first = transport.send("a");
+        CompletableFuture<Void> second = transport.send("b");
+        CompletableFuture<Void> third = transport.send("c");
+        assertEquals(1, postRequests.size());
+        assertFalse(second.isDone());
+
+        posts.take().complete(new HttpResponse(200, "", ""));
+        assertTrue(first.isDone());
+        assertEquals(2, postRequests.size());
+        assertEquals("bc", new String(postRequests.get(1).getBody(), StandardCharsets.UTF_8));
+
+        posts.take().complete(new HttpResponse(200, "", ""));
+        second.get(1000, TimeUnit.MILLISECONDS);
+        third.get(1000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void binaryPayloadsAreDeliveredAsBytes() throws Exception {
+        AtomicReference<ByteBuffer> message = new AtomicReference<>();
+        LongPollingTransport transport = createTransport(TransferFormat.BINARY);
+        transport.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) {
+            }
+
+            @Override
+            public void invoke(ByteBuffer payload) {
+                message.set(payload);
+            }
+        });
+        CompletableFuture<Void> started = transport.start("http://example.com?id=1");
+        nextPoll().complete(new HttpResponse(200, "", ""));
+        started.get(1000, TimeUnit.MILLISECONDS);
+
+        nextPoll().complete(new HttpResponse(200, "", new byte[] { 0x01, (byte) 0x93 }));
+        assertEquals(ByteBuffer.wrap(new byte[] { 0x01, (byte) 0x93 }), message.get());
+    }
+
+    @Test
+    public void noContentFromAPollClosesTheTransport() throws Exception {
+        startTransport(TransferFormat.TEXT);
+        nextPoll().complete(new HttpResponse(204, "", ""));
+
+        assertNull(closeMessage.get());
+    }
+
+    @Test
+    public void unexpectedStatusCodeClosesTheTransportWithAnError() throws Exception {
+        startTransport(TransferFormat.TEXT);
+        nextPoll().complete(new HttpResponse(500, "Internal server error", ""));
+
+        assertEquals("Unexpected status code returned from poll: 500 Internal server error.", closeMessage.get());
+    }
+
+    @Test
+    public void stopDeletesTheConnectionAndAbandonsThePoll() throws Exception {
+        LongPollingTransport transport = startTransport(TransferFormat.TEXT);
+        CompletableFuture<HttpResponse> poll = nextPoll();
+
+        transport.stop().get(1000, TimeUnit.MILLISECONDS);
+
+        assertTrue(poll.isCancelled());
+        assertNull(closeMessage.get());
+        HttpRequest delete = client.getSentRequests().get(client.getSentRequests().size() - 1);
+        assertEquals("DELETE", delete.getMethod());
+        assertEquals("http://example.com?id=1", delete.getUrl());
+    }
+
+    private LongPollingTransport createTransport(TransferFormat transferFormat) {
+        LongPollingTransport transport = new LongPollingTransport(new HashMap<>(), client, new NullLogger(), transferFormat);
+        transport.setOnClose(closeMessage::set);
+        return transport;
+    }
+
+    private LongPollingTransport startTransport(TransferFormat transferFormat) throws Exception {
+        LongPollingTransport transport = createTransport(transferFormat);
+        transport.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void invoke(ByteBuffer message) {
+            }
+        });
+        CompletableFuture<Void> started = transport.start("http://example.com?id=1");
+        nextPoll().complete(new HttpResponse(200, "", ""));
+        started.get(1000, TimeUnit.MILLISECONDS);
+        return transport;
+    }
+
+    private CompletableFuture<HttpResponse> nextPoll() throws InterruptedException {
+        return polls.poll(1, TimeUnit.SECONDS);
+    }
+}
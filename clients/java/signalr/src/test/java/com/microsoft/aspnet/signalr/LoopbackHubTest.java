@@ -0,0 +1,90 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class LoopbackHubTest {
+    @Test
+    public void echoRoundTripsWithTheJsonProtocol() throws Exception {
+        try (LoopbackHub hub = new LoopbackHub(2)) {
+            HubConnection hubConnection = new HubConnectionBuilder().withUrl(LoopbackHub.URL, hub.newConnectionOptions()).build();
+
+            hubConnection.start().get(5, TimeUnit.SECONDS);
+            assertEquals(HubConnectionState.CONNECTED, hubConnection.getConnectionState());
+            assertEquals("h\u00e9llo", hubConnection.invoke(String.class, LoopbackHub.ECHO, "h\u00e9llo").get(5, TimeUnit.SECONDS));
+
+            hubConnection.stop().get(5, TimeUnit.SECONDS);
+            assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+            assertEquals(0, hub.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void echoRoundTripsWithTheMessagePackProtocol() throws Exception {
+        try (LoopbackHub hub = new LoopbackHub(2)) {
+            hub.on("Add", (arguments) -> (Integer) arguments[0] + (Integer) arguments[1], Integer.class, Integer.class);
+            HubConnection hubConnection = new HubConnectionBuilder()
+                    .withUrl(LoopbackHub.URL, hub.newConnectionOptions())
+                    .withHubProtocol(new MessagePackHubProtocol())
+                    .build();
+
+            hubConnection.start().get(5, TimeUnit.SECONDS);
+            assertEquals("echo", hubConnection.invoke(String.class, LoopbackHub.ECHO, "echo").get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(42), hubConnection.invoke(Integer.class, "Add", 40, 2).get(5, TimeUnit.SECONDS));
+
+            hubConnection.stop().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void broadcastsReachEveryConnectionAtTheGivenRate() throws Exception {
+        try (LoopbackHub hub = new LoopbackHub(2)) {
+            CountDownLatch received = new CountDownLatch(100);
+            HubConnection first = new HubConnectionBuilder().withUrl(LoopbackHub.URL, hub.newConnectionOptions()).build();
+            HubConnection second = new HubConnectionBuilder()
+                    .withUrl(LoopbackHub.URL, hub.newConnectionOptions())
+                    .withHubProtocol(new MessagePackHubProtocol())
+                    .build();
+            first.on("Tick", (value) -> received.countDown(), String.class);
+            second.on("Tick", (value) -> received.countDown(), String.class);
+            first.start().get(5, TimeUnit.SECONDS);
+            second.start().get(5, TimeUnit.SECONDS);
+            assertEquals(2, hub.getConnectionCount());
+
+            LoopbackHub.Broadcast broadcast = hub.startBroadcast(10_000, "Tick", "tock");
+            try {
+                assertTrue(received.await(5, TimeUnit.SECONDS));
+            } finally {
+                broadcast.stop();
+            }
+
+            first.stop().get(5, TimeUnit.SECONDS);
+            second.stop().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void unknownMethodClosesTheConnectionWithAnError() throws Exception {
+        try (LoopbackHub hub = new LoopbackHub(1)) {
+            HubConnection hubConnection = new HubConnectionBuilder().withUrl(LoopbackHub.URL, hub.newConnectionOptions()).build();
+            CompletableFuture<Exception> closed = new CompletableFuture<>();
+            hubConnection.onClosed(closed::complete);
+
+            hubConnection.start().get(5, TimeUnit.SECONDS);
+            CompletableFuture<String> result = hubConnection.invoke(String.class, "Missing");
+
+            assertEquals("Unknown hub method 'Missing'.", closed.get(5, TimeUnit.SECONDS).getMessage());
+            assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertEquals(HubConnectionState.DISCONNECTED, hubConnection.getConnectionState());
+        }
+    }
+}
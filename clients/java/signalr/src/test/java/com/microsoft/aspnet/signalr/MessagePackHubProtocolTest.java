@@ -0,0 +1,227 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MessagePackHubProtocolTest {
+    private MessagePackHubProtocol messagePackHubProtocol = new MessagePackHubProtocol();
+
+    @Test
+    public void checkProtocolName() {
+        assertEquals("messagepack", messagePackHubProtocol.getName());
+    }
+
+    @Test
+    public void checkVersionNumber() {
+        assertEquals(1, messagePackHubProtocol.getVersion());
+    }
+
+    @Test
+    public void checkTransferFormat() {
+        assertEquals(TransferFormat.BINARY, messagePackHubProtocol.getTransferFormat());
+    }
+
+    @Test
+    public void verifyWriteInvocationMessage() {
+        InvocationMessage invocationMessage = new InvocationMessage(null, "test", new Object[] { 42 });
+        ByteBuffer result = messagePackHubProtocol.writeMessageBytes(invocationMessage);
+        byte[] expected = new byte[] { 0x0b, (byte) 0x95, 0x01, (byte) 0x80, (byte) 0xc0,
+                (byte) 0xa4, 't', 'e', 's', 't', (byte) 0x91, 0x2a };
+        assertArrayEquals(expected, toArray(result));
+    }
+
+    @Test
+    public void verifyWriteInvocationMessageWithStreamIds() {
+        InvocationMessage invocationMessage = new InvocationMessage("1", "test", new Object[0]);
+        invocationMessage.setStreamIds(new String[] { "2" });
+        ByteBuffer result = messagePackHubProtocol.writeMessageBytes(invocationMessage);
+        byte[] expected = new byte[] { 0x0e, (byte) 0x96, 0x01, (byte) 0x80, (byte) 0xa1, '1',
+                (byte) 0xa4, 't', 'e', 's', 't', (byte) 0x90, (byte) 0x91, (byte) 0xa1, '2' };
+        assertArrayEquals(expected, toArray(result));
+    }
+
+    @Test
+    public void verifyWritePingMessage() {
+        ByteBuffer result = messagePackHubProtocol.writeMessageBytes(PingMessage.getInstance());
+        assertArrayEquals(new byte[] { 0x02, (byte) 0x91, 0x06 }, toArray(result));
+    }
+
+    @Test
+    public void parseInvocationMessage() throws Exception {
+        byte[] payload = new byte[] { 0x0b, (byte) 0x95, 0x01, (byte) 0x80, (byte) 0xc0,
+                (byte) 0xa4, 't', 'e', 's', 't', (byte) 0x91, 0x2a };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class));
+
+        assertEquals(1, messages.length);
+        assertEquals(HubMessageType.INVOCATION, messages[0].getMessageType());
+        InvocationMessage invocationMessage = (InvocationMessage) messages[0];
+        assertEquals("test", invocationMessage.getTarget());
+        assertNull(invocationMessage.getInvocationId());
+        assertEquals(42, invocationMessage.getArguments()[0]);
+    }
+
+    @Test
+    public void parseCompletionMessage() throws Exception {
+        byte[] payload = new byte[] { 0x07, (byte) 0x95, 0x03, (byte) 0x80, (byte) 0xa1, '1', 0x03, 0x2a };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class));
+
+        assertEquals(1, messages.length);
+        CompletionMessage completionMessage = (CompletionMessage) messages[0];
+        assertEquals("1", completionMessage.getInvocationId());
+        assertEquals(42, completionMessage.getResult());
+        assertNull(completionMessage.getError());
+    }
+
+    @Test
+    public void parseCompletionMessageWithError() throws Exception {
+        byte[] payload = new byte[] { 0x0a, (byte) 0x95, 0x03, (byte) 0x80, (byte) 0xa1, '1', 0x01, (byte) 0xa3, 'e', 'r', 'r' };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class));
+
+        CompletionMessage completionMessage = (CompletionMessage) messages[0];
+        assertNull(completionMessage.getResult());
+        assertEquals("err", completionMessage.getError());
+    }
+
+    @Test
+    public void parseStreamItemMessage() throws Exception {
+        byte[] payload = new byte[] { 0x06, (byte) 0x94, 0x02, (byte) 0x80, (byte) 0xa1, '1', 0x2a };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class));
+
+        assertEquals(1, messages.length);
+        StreamItemMessage streamItemMessage = (StreamItemMessage) messages[0];
+        assertEquals(1, streamItemMessage.getId());
+        assertEquals(42, streamItemMessage.getItem());
+    }
+
+    @Test
+    public void verifyWriteStreamInvocationAndCancelInvocationMessages() {
+        StreamInvocationMessage streamInvocationMessage = new StreamInvocationMessage("1", "test", new Object[] { 42 });
+        byte[] expected = new byte[] { 0x0c, (byte) 0x95, 0x04, (byte) 0x80, (byte) 0xa1, '1',
+                (byte) 0xa4, 't', 'e', 's', 't', (byte) 0x91, 0x2a };
+        assertArrayEquals(expected, toArray(messagePackHubProtocol.writeMessageBytes(streamInvocationMessage)));
+
+        ByteBuffer cancel = messagePackHubProtocol.writeMessageBytes(new CancelInvocationMessage("1"));
+        assertArrayEquals(new byte[] { 0x05, (byte) 0x93, 0x05, (byte) 0x80, (byte) 0xa1, '1' }, toArray(cancel));
+    }
+
+    @Test
+    public void parseMultipleMessages() throws Exception {
+        byte[] payload = new byte[] { 0x02, (byte) 0x91, 0x06, 0x06, (byte) 0x92, 0x07, (byte) 0xa3, 'e', 'r', 'r' };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder((Class<?>) null));
+
+        assertEquals(2, messages.length);
+        assertEquals(HubMessageType.PING, messages[0].getMessageType());
+        assertEquals(HubMessageType.CLOSE, messages[1].getMessageType());
+        assertEquals("err", ((CloseMessage) messages[1]).getError());
+    }
+
+    @Test
+    public void parseMessageWithExtraItems() throws Exception {
+        // A ping from a newer server with an unknown trailing item.
+        byte[] payload = new byte[] { 0x03, (byte) 0x92, 0x06, 0x01 };
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder((Class<?>) null));
+
+        assertEquals(1, messages.length);
+        assertEquals(HubMessageType.PING, messages[0].getMessageType());
+    }
+
+    @Test
+    public void errorWhileParsingIncompleteMessage() {
+        byte[] payload = new byte[] { 0x0b, (byte) 0x95, 0x01, (byte) 0x80 };
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class)));
+        assertEquals("Message is incomplete.", exception.getMessage());
+    }
+
+    @Test
+    public void errorWhileParsingTooManyArguments() {
+        byte[] payload = new byte[] { 0x0c, (byte) 0x95, 0x01, (byte) 0x80, (byte) 0xc0,
+                (byte) 0xa4, 't', 'e', 's', 't', (byte) 0x92, 0x2a, 0x2b };
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> messagePackHubProtocol.parseMessages(ByteBuffer.wrap(payload), new TestBinder(Integer.class)));
+        assertEquals("Invocation provides 2 argument(s) but target expects 1.", exception.getMessage());
+    }
+
+    @Test
+    public void roundTripArgumentsOfManyTypes() throws Exception {
+        Person person = new Person();
+        person.name = "\u00e9l\u00e8ve \ud83d\ude00";
+        person.age = 301;
+        person.scores = new double[] { 1.5, -2.25 };
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            longString.append('x');
+        }
+
+        Object[] arguments = new Object[] { "text", -5, 4000000000L, 3.25, true, new byte[] { 1, 2, 3 }, person,
+                longString.toString(), null };
+        List<Class<?>> types = Arrays.asList(String.class, int.class, Long.class, Double.class, Boolean.class,
+                byte[].class, Person.class, String.class, String.class);
+        ByteBuffer written = messagePackHubProtocol.writeMessageBytes(new InvocationMessage("7", "target", arguments));
+
+        HubMessage[] messages = messagePackHubProtocol.parseMessages(written, new TestBinder(types));
+        InvocationMessage invocationMessage = (InvocationMessage) messages[0];
+        assertEquals("7", invocationMessage.getInvocationId());
+        Object[] parsed = invocationMessage.getArguments();
+        assertEquals("text", parsed[0]);
+        assertEquals(-5, parsed[1]);
+        assertEquals(4000000000L, parsed[2]);
+        assertEquals(3.25, parsed[3]);
+        assertEquals(true, parsed[4]);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) parsed[5]);
+        Person parsedPerson = (Person) parsed[6];
+        assertEquals(person.name, parsedPerson.name);
+        assertEquals(301, parsedPerson.age);
+        assertEquals(-2.25, parsedPerson.scores[1]);
+        assertEquals(longString.toString(), parsed[7]);
+        assertNull(parsed[8]);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static class Person {
+        String name;
+        int age;
+        double[] scores;
+    }
+
+    private class TestBinder implements InvocationBinder {
+        private List<Class<?>> paramTypes;
+        private Class<?> returnType;
+
+        public TestBinder(Class<?> type) {
+            this.returnType = type;
+            this.paramTypes = new ArrayList<>();
+            if (type != null) {
+                this.paramTypes.add(type);
+            }
+        }
+
+        public TestBinder(List<Class<?>> paramTypes) {
+            this.paramTypes = paramTypes;
+        }
+
+        @Override
+        public Class<?> getReturnType(String invocationId) {
+            return returnType;
+        }
+
+        @Override
+        public List<Class<?>> getParameterTypes(String methodName) {
+            return paramTypes;
+        }
+    }
+}
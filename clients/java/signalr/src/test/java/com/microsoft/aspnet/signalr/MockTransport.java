@@ -3,13 +3,17 @@
 
 package com.microsoft.aspnet.signalr;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 class MockTransport implements Transport {
     private OnReceiveCallBack onReceiveCallBack;
-    private ArrayList<String> sentMessages = new ArrayList<>();
+    private List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+    private List<ByteBuffer> sentBinaryMessages = Collections.synchronizedList(new ArrayList<>());
     private String url;
     private Consumer<String> onClose;
 
@@ -25,6 +29,12 @@ class MockTransport implements Transport {
         return CompletableFuture.completedFuture(null);
     }
 
+    @Override
+    public CompletableFuture send(ByteBuffer message) {
+        sentBinaryMessages.add(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
     @Override
     public void setOnReceive(OnReceiveCallBack callback) {
         this.onReceiveCallBack = callback;
@@ -35,6 +45,11 @@ class MockTransport implements Transport {
         this.onReceiveCallBack.invoke(message);
     }
 
+    @Override
+    public void onReceive(ByteBuffer message) throws Exception {
+        this.onReceiveCallBack.invoke(message);
+    }
+
     @Override
     public void setOnClose(Consumer<String> onCloseCallback) {
         this.onClose = onCloseCallback;
@@ -54,10 +69,18 @@ class MockTransport implements Transport {
         this.onReceive(message);
     }
 
+    public void receiveMessage(ByteBuffer message) throws Exception {
+        this.onReceive(message);
+    }
+
     public String[] getSentMessages() {
         return sentMessages.toArray(new String[sentMessages.size()]);
     }
 
+    public ByteBuffer[] getSentBinaryMessages() {
+        return sentBinaryMessages.toArray(new ByteBuffer[sentBinaryMessages.size()]);
+    }
+
     public String getUrl() {
         return this.url;
     }
@@ -6,6 +6,9 @@ package com.microsoft.aspnet.signalr;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 
 import org.junit.jupiter.api.Test;
 
@@ -26,6 +29,19 @@ class NegotiateResponseTest {
         assertEquals("bVOiRPG8-6YiJ6d7ZcTOVQ", negotiateResponse.getConnectionId());
     }
 
+    @Test
+    public void VerifyTransferFormats() throws IOException {
+        String stringNegotiateResponse = "{\"connectionId\":\"bVOiRPG8-6YiJ6d7ZcTOVQ\",\"" +
+                "availableTransports\":[{\"transferFormats\":[\"Text\",\"Binary\"],\"transport\":\"WebSockets\"}," +
+                "{\"transport\":\"ServerSentEvents\",\"transferFormats\":[\"Text\"]}," +
+                "{\"transferFormats\":[\"Text\"]}]}";
+        NegotiateResponse negotiateResponse = new NegotiateResponse(stringNegotiateResponse);
+        assertEquals(new HashSet<>(Arrays.asList("WebSockets", "ServerSentEvents")), negotiateResponse.getAvailableTransports());
+        assertEquals(new HashSet<>(Arrays.asList("Text", "Binary")), negotiateResponse.getTransferFormats("WebSockets"));
+        assertEquals(Collections.singleton("Text"), negotiateResponse.getTransferFormats("ServerSentEvents"));
+        assertTrue(negotiateResponse.getTransferFormats("LongPolling").isEmpty());
+    }
+
     @Test
     public void VerifyRedirectNegotiateResponse() throws IOException {
         String stringNegotiateResponse = "{\"url\":\"www.example.com\"," +
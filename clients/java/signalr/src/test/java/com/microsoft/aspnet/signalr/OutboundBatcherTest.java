@@ -0,0 +1,93 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class OutboundBatcherTest {
+    private static final String RECORD_SEPARATOR = "\u001e";
+    private static final long ONE_HOUR = TimeUnit.HOURS.toNanos(1);
+
+    private final MockTransport transport = new MockTransport();
+    private final ScheduledExecutorService scheduler = SharedScheduler.get();
+
+    @Test
+    public void sendsBatchWhenItWouldExceedMaxBytes() throws Exception {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 10, ONE_HOUR, scheduler);
+        CompletableFuture<Void> first = batcher.send("abc" + RECORD_SEPARATOR);
+        CompletableFuture<Void> second = batcher.send("def" + RECORD_SEPARATOR);
+
+        assertEquals(0, transport.getSentMessages().length);
+        assertFalse(first.isDone());
+
+        CompletableFuture<Void> third = batcher.send("ghi" + RECORD_SEPARATOR);
+        assertEquals(1, transport.getSentMessages().length);
+        assertEquals("abc" + RECORD_SEPARATOR + "def" + RECORD_SEPARATOR, transport.getSentMessages()[0]);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+    }
+
+    @Test
+    public void sendsBatchAfterMaxDelay() throws Exception {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 1000, TimeUnit.MILLISECONDS.toNanos(10), scheduler);
+        batcher.send("abc" + RECORD_SEPARATOR);
+        CompletableFuture<Void> second = batcher.send("def" + RECORD_SEPARATOR);
+
+        second.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new String[] { "abc" + RECORD_SEPARATOR + "def" + RECORD_SEPARATOR }, transport.getSentMessages());
+    }
+
+    @Test
+    public void zeroDelayFlushesWhenSchedulerIsIdle() throws Exception {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 1000, 0, scheduler);
+        CompletableFuture<Void> future = batcher.send("abc" + RECORD_SEPARATOR);
+
+        future.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new String[] { "abc" + RECORD_SEPARATOR }, transport.getSentMessages());
+    }
+
+    @Test
+    public void messageLargerThanMaxBytesIsSentOnItsOwn() {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 5, ONE_HOUR, scheduler);
+        batcher.send("a" + RECORD_SEPARATOR);
+        batcher.send("abcdefgh" + RECORD_SEPARATOR);
+
+        assertArrayEquals(new String[] { "a" + RECORD_SEPARATOR, "abcdefgh" + RECORD_SEPARATOR }, transport.getSentMessages());
+    }
+
+    @Test
+    public void binaryMessagesAreConcatenated() {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 100, ONE_HOUR, scheduler);
+        batcher.send(ByteBuffer.wrap(new byte[] { 0x02, (byte) 0x91, 0x06 }));
+        batcher.send(ByteBuffer.wrap(new byte[] { 0x02, (byte) 0x91, 0x06 }));
+        batcher.flush();
+
+        ByteBuffer[] sent = transport.getSentBinaryMessages();
+        assertEquals(1, sent.length);
+        byte[] bytes = new byte[sent[0].remaining()];
+        sent[0].get(bytes);
+        assertArrayEquals(new byte[] { 0x02, (byte) 0x91, 0x06, 0x02, (byte) 0x91, 0x06 }, bytes);
+    }
+
+    @Test
+    public void closeFailsPendingBatch() {
+        OutboundBatcher batcher = new OutboundBatcher(transport, 100, ONE_HOUR, scheduler);
+        CompletableFuture<Void> future = batcher.send("abc" + RECORD_SEPARATOR);
+        batcher.close(new RuntimeException("Connection lost."));
+
+        Throwable exception = assertThrows(ExecutionException.class, () -> future.get());
+        assertEquals("Connection lost.", exception.getCause().getMessage());
+        assertEquals(0, transport.getSentMessages().length);
+        assertTrue(batcher.send("def" + RECORD_SEPARATOR).isCompletedExceptionally());
+    }
+}
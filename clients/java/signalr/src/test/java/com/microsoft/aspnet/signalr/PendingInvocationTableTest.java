@@ -0,0 +1,137 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class PendingInvocationTableTest {
+    @Test
+    public void addGetAndRemove() {
+        PendingInvocationTable table = new PendingInvocationTable();
+        InvocationRequest irq = new InvocationRequest(Integer.class, 5);
+        table.add(irq);
+
+        assertSame(irq, table.get(5));
+        assertNull(table.get(21));
+        assertSame(irq, table.remove(5));
+        assertNull(table.get(5));
+        assertNull(table.remove(5));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        PendingInvocationTable table = new PendingInvocationTable();
+        for (int i = 1; i <= 1000; i++) {
+            table.add(new InvocationRequest(Integer.class, i));
+        }
+
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, table.get(i).getId());
+        }
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, table.remove(i).getId());
+        }
+        assertNull(table.get(500));
+    }
+
+    @Test
+    public void manyShortLivedInvocationsDoNotFillTheTable() {
+        PendingInvocationTable table = new PendingInvocationTable();
+        InvocationRequest longLived = new InvocationRequest(Integer.class, 0);
+        table.add(longLived);
+        for (int i = 1; i <= 100000; i++) {
+            table.add(new InvocationRequest(Integer.class, i));
+            assertEquals(i, table.remove(i).getId());
+        }
+
+        assertSame(longLived, table.get(0));
+    }
+
+    @Test
+    public void drainRemovesEveryInvocation() {
+        PendingInvocationTable table = new PendingInvocationTable();
+        for (int i = 1; i <= 40; i++) {
+            table.add(new InvocationRequest(Integer.class, i));
+        }
+        table.remove(7);
+
+        List<Integer> drained = new ArrayList<>();
+        table.drain(irq -> drained.add(irq.getId()));
+
+        assertEquals(39, drained.size());
+        assertFalse(drained.contains(7));
+        assertNull(table.get(1));
+    }
+
+    @Test
+    public void parseIdOnlyAcceptsNonNegativeInts() {
+        assertEquals(0, PendingInvocationTable.parseId("0"));
+        assertEquals(42, PendingInvocationTable.parseId("42"));
+        assertEquals(Integer.MAX_VALUE, PendingInvocationTable.parseId("2147483647"));
+        assertEquals(PendingInvocationTable.NO_ID, PendingInvocationTable.parseId("2147483648"));
+        assertEquals(PendingInvocationTable.NO_ID, PendingInvocationTable.parseId("-1"));
+        assertEquals(PendingInvocationTable.NO_ID, PendingInvocationTable.parseId("abc"));
+        assertEquals(PendingInvocationTable.NO_ID, PendingInvocationTable.parseId(""));
+        assertEquals(PendingInvocationTable.NO_ID, PendingInvocationTable.parseId(null));
+    }
+
+    @Test
+    public void concurrentAddAndRemoveLoseNothing() throws Exception {
+        PendingInvocationTable table = new PendingInvocationTable();
+        AtomicInteger nextId = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int threads = 4;
+        int perThread = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    List<Integer> mine = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        int id = nextId.incrementAndGet();
+                        table.add(new InvocationRequest(Integer.class, id));
+                        mine.add(id);
+                        // Keep a few invocations outstanding so the table has to grow and shrink.
+                        if (mine.size() > 50) {
+                            int oldest = mine.remove(0);
+                            if (table.remove(oldest) == null) {
+                                throw new AssertionError("Lost invocation " + oldest);
+                            }
+                            removed.incrementAndGet();
+                        }
+                    }
+                    for (int id : mine) {
+                        if (table.get(id) == null || table.remove(id) == null) {
+                            throw new AssertionError("Lost invocation " + id);
+                        }
+                        removed.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(threads * perThread, removed.get());
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Fails when receiving a message in the steady state allocates more than its budget. The budgets are the
+ * bytes per message measured when they were last changed, plus headroom for differences between JVMs.
+ * Lower them when an optimization lands, raise them only with a reason.
+ */
+class ReceiveAllocationTest {
+    // Most of a JSON frame's budget is the JsonReader and its buffer, one per frame.
+    private static final long JSON_INVOCATION_BUDGET = 4096;
+    private static final long JSON_COMPLETION_BUDGET = 4608;
+    private static final long MESSAGE_PACK_INVOCATION_BUDGET = 640;
+    private static final long MESSAGE_PACK_COMPLETION_BUDGET = 1088;
+
+    // Enough rounds for the JIT to compile the receive path before it is measured.
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MESSAGES_PER_ROUND = 1000;
+    private static final String RECORD_SEPARATOR = "\u001e";
+
+    @Test
+    public void jsonInvocationStaysWithinItsBudget() throws Exception {
+        assertWithinBudget(JSON_INVOCATION_BUDGET, new JsonHubProtocol(), false);
+    }
+
+    @Test
+    public void jsonCompletionStaysWithinItsBudget() throws Exception {
+        assertWithinBudget(JSON_COMPLETION_BUDGET, new JsonHubProtocol(), true);
+    }
+
+    @Test
+    public void messagePackInvocationStaysWithinItsBudget() throws Exception {
+        assertWithinBudget(MESSAGE_PACK_INVOCATION_BUDGET, new MessagePackHubProtocol(), false);
+    }
+
+    @Test
+    public void messagePackCompletionStaysWithinItsBudget() throws Exception {
+        assertWithinBudget(MESSAGE_PACK_COMPLETION_BUDGET, new MessagePackHubProtocol(), true);
+    }
+
+    private static void assertWithinBudget(long budget, HubProtocol protocol, boolean completions) throws Exception {
+        // Skipped rather than failed on JVMs that don't count allocations per thread.
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean, "The JVM doesn't measure allocations per thread.");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "The JVM doesn't measure allocations per thread.");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        MockTransport transport = new MockTransport();
+        HttpConnectionOptions options = new HttpConnectionOptions();
+        options.setTransport(transport);
+        options.setSkipNegotiate(true);
+        options.setHubProtocol(protocol);
+        HubConnection hubConnection = new HubConnectionBuilder().withUrl("http://example.com", options).build();
+        long[] received = new long[1];
+        hubConnection.on("PriceUpdate", (symbol, price) -> received[0]++, String.class, Double.class);
+
+        CompletableFuture<Void> start = hubConnection.start();
+        transport.receiveMessage("{}" + RECORD_SEPARATOR);
+        start.get(1000, TimeUnit.MILLISECONDS);
+
+        try {
+            long threadId = Thread.currentThread().getId();
+            long allocated = 0;
+            for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                Object[] frames = new Object[MESSAGES_PER_ROUND];
+                for (int i = 0; i < MESSAGES_PER_ROUND; i++) {
+                    HubMessage message;
+                    if (completions) {
+                        // Only the receive is measured, the invocations are sent beforehand.
+                        hubConnection.invoke(Double.class, "GetPrice", "MSFT");
+                        message = new CompletionMessage(Integer.toString(round * MESSAGES_PER_ROUND + i + 1), 100.25, null);
+                    } else {
+                        message = new InvocationMessage(null, "PriceUpdate", new Object[] { "MSFT", 100.25 });
+                    }
+                    frames[i] = protocol.getTransferFormat() == TransferFormat.TEXT ? protocol.writeMessage(message)
+                            : protocol.writeMessageBytes(message);
+                }
+
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (Object frame : frames) {
+                    if (frame instanceof String) {
+                        transport.receiveMessage((String) frame);
+                    } else {
+                        transport.receiveMessage((ByteBuffer) frame);
+                    }
+                }
+                allocated = threads.getThreadAllocatedBytes(threadId) - before;
+            }
+
+            long perMessage = allocated / MESSAGES_PER_ROUND;
+            assertTrue(perMessage <= budget, String.format("Receiving a %s %s allocated %d bytes, the budget is %d bytes.",
+                    protocol.getName(), completions ? "completion" : "invocation", perMessage, budget));
+            if (!completions) {
+                assertEquals((long) (WARMUP_ROUNDS + 1) * MESSAGES_PER_ROUND, received[0]);
+            }
+        } finally {
+            hubConnection.stop();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+class SendQueueTest {
+    // Bytes waiting in the fake socket, tests drain it by hand.
+    private final AtomicLong socketQueue = new AtomicLong();
+
+    @Test
+    public void futureCompletesWhenMessageLeavesTheSocket() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.REJECT);
+        CompletableFuture<Void> future = queue.send(10, write(10));
+
+        assertFalse(future.isDone());
+        socketQueue.set(0);
+        queue.poll();
+        assertTrue(future.isDone());
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void futureCompletesRightAwayWhenSocketDrainsImmediately() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.REJECT);
+        CompletableFuture<Void> future = queue.send(10, () -> true);
+
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void rejectPolicyFailsSendAboveHighWatermark() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.REJECT);
+        queue.send(80, write(80));
+        CompletableFuture<Void> future = queue.send(30, write(30));
+
+        Throwable exception = assertThrows(ExecutionException.class, () -> future.get());
+        assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        assertEquals("The send queue is above its high watermark of 100 bytes.", exception.getCause().getMessage());
+        assertEquals(80, socketQueue.get());
+    }
+
+    @Test
+    public void awaitPolicyHoldsMessagesUntilThereIsRoom() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.AWAIT);
+        CompletableFuture<Void> first = queue.send(80, write(80));
+        CompletableFuture<Void> second = queue.send(30, write(30));
+        CompletableFuture<Void> third = queue.send(5, write(5));
+
+        // The second message is held, and the third waits behind it even though it would fit.
+        assertEquals(80, socketQueue.get());
+        assertFalse(second.isDone());
+        assertFalse(third.isDone());
+
+        socketQueue.set(0);
+        queue.poll();
+        assertTrue(first.isDone());
+        assertEquals(35, socketQueue.get());
+        assertFalse(second.isDone());
+
+        socketQueue.set(0);
+        queue.poll();
+        assertTrue(second.isDone());
+        assertTrue(third.isDone());
+    }
+
+    @Test
+    public void awaitPolicyRejectsWhenHeldMessagesReachHighWatermark() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.AWAIT);
+        queue.send(80, write(80));
+        queue.send(90, write(90));
+        CompletableFuture<Void> future = queue.send(20, write(20));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void messageLargerThanHighWatermarkIsSentWhenSocketIsEmpty() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.REJECT);
+        CompletableFuture<Void> future = queue.send(500, write(500));
+
+        assertFalse(future.isCompletedExceptionally());
+        assertEquals(500, socketQueue.get());
+    }
+
+    @Test
+    public void refusedWriteFailsTheFuture() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.REJECT);
+        CompletableFuture<Void> future = queue.send(10, () -> false);
+
+        Throwable exception = assertThrows(ExecutionException.class, () -> future.get());
+        assertEquals("The connection is closed or its send queue is full.", exception.getCause().getMessage());
+    }
+
+    @Test
+    public void closeFailsOutstandingMessages() {
+        SendQueue queue = createQueue(SendBackpressurePolicy.AWAIT);
+        CompletableFuture<Void> written = queue.send(80, write(80));
+        CompletableFuture<Void> held = queue.send(30, write(30));
+        queue.close(new RuntimeException("Connection lost."));
+
+        assertTrue(written.isCompletedExceptionally());
+        assertTrue(held.isCompletedExceptionally());
+        assertTrue(queue.send(1, write(1)).isCompletedExceptionally());
+    }
+
+    @Test
+    public void pollerCompletesFuturesOnTheQueuesExecutor() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService executor = Executors.newSingleThreadExecutor((runnable) -> new Thread(runnable, "completions"));
+        try {
+            SendQueuePoller poller = new SendQueuePoller(scheduler, TimeUnit.MILLISECONDS.toNanos(1));
+            SendQueue queue = new SendQueue(socketQueue::get, 100, SendBackpressurePolicy.AWAIT, poller, executor);
+            CompletableFuture<Void> first = queue.send(80, write(80));
+            CompletableFuture<Void> second = queue.send(30, write(30));
+            CompletableFuture<String> completedOn = second.thenApply((v) -> Thread.currentThread().getName());
+
+            // The poller writes the held message once the socket drains, then completes it once that drains too.
+            socketQueue.set(0);
+            first.get(5, TimeUnit.SECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (socketQueue.get() != 30 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            socketQueue.set(0);
+
+            assertEquals("completions", completedOn.get(5, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private SendQueue createQueue(SendBackpressurePolicy policy) {
+        return new SendQueue(socketQueue::get, 100, policy);
+    }
+
+    private BooleanSupplier write(long size) {
+        return () -> {
+            socketQueue.addAndGet(size);
+            return true;
+        };
+    }
+}
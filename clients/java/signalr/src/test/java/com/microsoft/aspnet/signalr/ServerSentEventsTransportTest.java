@@ -0,0 +1,128 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+class ServerSentEventsTransportTest {
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<String> closeMessage = new AtomicReference<>("not closed");
+    private final CompletableFuture<Void> stream = new CompletableFuture<>();
+    private final AtomicReference<HttpRequest> streamRequest = new AtomicReference<>();
+    private Consumer<HttpResponse> onResponse;
+    private Consumer<ByteBuffer> onData;
+    private final TestHttpClient client = new TestHttpClient() {
+        @Override
+        public CompletableFuture<Void> stream(String url, HttpRequest options, Consumer<HttpResponse> onResponse,
+                                              Consumer<ByteBuffer> onData) {
+            streamRequest.set(options);
+            ServerSentEventsTransportTest.this.onResponse = onResponse;
+            ServerSentEventsTransportTest.this.onData = onData;
+            return stream;
+        }
+    };
+
+    @Test
+    public void parserHandlesEventsSplitAcrossChunks() {
+        ServerSentEventsTransport.EventParser parser = new ServerSentEventsTransport.EventParser(events::add);
+        byte[] stream = "data: {\"type\":6}\u001e\r\n\r\n: comment\r\nda".getBytes(StandardCharsets.UTF_8);
+        parser.parse(ByteBuffer.wrap(stream));
+        parser.parse(ByteBuffer.wrap("ta: first line\r".getBytes(StandardCharsets.UTF_8)));
+        parser.parse(ByteBuffer.wrap("\ndata:second line\n\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList("{\"type\":6}\u001e", "first line\nsecond line"), events);
+    }
+
+    @Test
+    public void parserDecodesCharactersSplitAcrossChunks() {
+        ServerSentEventsTransport.EventParser parser = new ServerSentEventsTransport.EventParser(events::add);
+        byte[] stream = "data: caf\u00e9\n\n".getBytes(StandardCharsets.UTF_8);
+        int split = 10;
+        assertEquals((byte) 0xC3, stream[split - 1]);
+        parser.parse(ByteBuffer.wrap(stream, 0, split));
+        parser.parse(ByteBuffer.wrap(stream, split, stream.length - split));
+
+        assertEquals(Collections.singletonList("caf\u00e9"), events);
+    }
+
+    @Test
+    public void eventsAreDeliveredAsTheyArrive() throws Exception {
+        ServerSentEventsTransport transport = startTransport();
+        assertEquals("text/event-stream", streamRequest.get().getHeaders().get("Accept"));
+
+        onData.accept(ByteBuffer.wrap("data: {}\u001e\r\n".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(events.isEmpty());
+        onData.accept(ByteBuffer.wrap("\r\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Collections.singletonList("{}\u001e"), events);
+
+        transport.stop().get(1000, TimeUnit.MILLISECONDS);
+        assertTrue(stream.isCancelled());
+        assertNull(closeMessage.get());
+    }
+
+    @Test
+    public void endOfTheStreamClosesTheTransport() throws Exception {
+        startTransport();
+        stream.complete(null);
+
+        assertNull(closeMessage.get());
+    }
+
+    @Test
+    public void failedStreamClosesTheTransportWithAnError() throws Exception {
+        startTransport();
+        stream.completeExceptionally(new RuntimeException("Connection reset."));
+
+        assertEquals("The event stream failed: Connection reset.", closeMessage.get());
+    }
+
+    @Test
+    public void unexpectedStatusCodeFailsStart() {
+        ServerSentEventsTransport transport = createTransport();
+        CompletableFuture<Void> started = transport.start("http://example.com?id=1");
+        onResponse.accept(new HttpResponse(404, "Not Found"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> started.get(1000, TimeUnit.MILLISECONDS));
+        assertEquals("Unexpected status code returned from the event stream: 404 Not Found.", exception.getCause().getMessage());
+    }
+
+    private ServerSentEventsTransport createTransport() {
+        ServerSentEventsTransport transport = new ServerSentEventsTransport(new HashMap<>(), client, new NullLogger());
+        transport.setOnClose(closeMessage::set);
+        transport.setOnReceive(new OnReceiveCallBack() {
+            @Override
+            public void invoke(String message) {
+                events.add(message);
+            }
+
+            @Override
+            public void invoke(ByteBuffer message) {
+            }
+        });
+        return transport;
+    }
+
+    private ServerSentEventsTransport startTransport() throws Exception {
+        ServerSentEventsTransport transport = createTransport();
+        CompletableFuture<Void> started = transport.start("http://example.com?id=1");
+        onResponse.accept(new HttpResponse(200, "OK"));
+        started.get(1000, TimeUnit.MILLISECONDS);
+        return transport;
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class StreamInvocationRequestTest {
+    private final List<Integer> items = Collections.synchronizedList(new ArrayList<>());
+    private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger cancels = new AtomicInteger();
+    private volatile Subscription subscription;
+
+    @Test
+    public void receivingThreadWaitsWhileTheBufferIsFull() throws Exception {
+        StreamInvocationRequest<Integer> request = createRequest(2);
+        Thread receiver = new Thread(() -> {
+            for (int i = 1; i <= 3; i++) {
+                request.addItem(i);
+            }
+        });
+        receiver.start();
+
+        // Two items fit in the buffer, the third has to wait for demand.
+        receiver.join(200);
+        assertTrue(receiver.isAlive());
+        assertTrue(items.isEmpty());
+
+        subscription.request(1);
+        receiver.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(receiver.isAlive());
+        assertEquals(Arrays.asList(1), items);
+
+        subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(1, 2, 3), items);
+    }
+
+    @Test
+    public void failingTheRequestReleasesTheWaitingThread() throws Exception {
+        StreamInvocationRequest<Integer> request = createRequest(1);
+        request.addItem(1);
+        Thread receiver = new Thread(() -> request.addItem(2));
+        receiver.start();
+
+        request.fail(new RuntimeException("Connection lost."));
+        receiver.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(receiver.isAlive());
+        assertEquals(1, errors.size());
+        assertEquals("Connection lost.", errors.get(0).getMessage());
+        assertTrue(items.isEmpty());
+    }
+
+    @Test
+    public void nonPositiveRequestCancelsAndFails() {
+        StreamInvocationRequest<Integer> request = createRequest(4);
+        request.addItem(1);
+        subscription.request(0);
+
+        assertEquals(1, cancels.get());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void nullItemFailsTheStream() {
+        StreamInvocationRequest<Integer> request = createRequest(4);
+        subscription.request(1);
+        request.addItem(null);
+
+        assertEquals(1, cancels.get());
+        assertEquals("The server sent a null stream item.", errors.get(0).getMessage());
+    }
+
+    @Test
+    public void cancelAfterCompletionDoesNotCancelTheInvocation() {
+        StreamInvocationRequest<Integer> request = createRequest(4);
+        request.complete(new CompletionMessage("1", null, null));
+        subscription.cancel();
+
+        assertEquals(0, cancels.get());
+    }
+
+    private StreamInvocationRequest<Integer> createRequest(int capacity) {
+        StreamInvocationRequest<Integer> request = new StreamInvocationRequest<>(Integer.class, 1, capacity, new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                errors.add(error);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        }, cancels::incrementAndGet);
+        request.start();
+        return request;
+    }
+}
@@ -0,0 +1,51 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+class TransportRuntimeTest {
+    @Test
+    public void clientsShareThreadsAndConnectionsButNotCookies() {
+        try (TransportRuntime runtime = new TransportRuntime()) {
+            CookieJar first = new TestCookieJar();
+            CookieJar second = new TestCookieJar();
+            OkHttpClient firstClient = runtime.newClient(first);
+            OkHttpClient secondClient = runtime.newClient(second);
+
+            assertSame(firstClient.dispatcher(), secondClient.dispatcher());
+            assertSame(firstClient.connectionPool(), secondClient.connectionPool());
+            assertSame(first, firstClient.cookieJar());
+            assertSame(second, secondClient.cookieJar());
+        }
+    }
+
+    @Test
+    public void zeroKeepAliveThrows() {
+        Throwable exception = assertThrows(IllegalArgumentException.class, () -> new TransportRuntime(5, Duration.ZERO));
+        assertEquals("A positive keep-alive duration is required.", exception.getMessage());
+    }
+
+    private static class TestCookieJar implements CookieJar {
+        @Override
+        public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        }
+
+        @Override
+        public List<Cookie> loadForRequest(HttpUrl url) {
+            return Collections.emptyList();
+        }
+    }
+}
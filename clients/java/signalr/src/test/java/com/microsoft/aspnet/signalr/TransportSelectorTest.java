@@ -0,0 +1,54 @@
+// Copyright (c) .NET Foundation. All rights reserved.
+// Licensed under the Apache License, Version 2.0. See License.txt in the project root for license information.
+
+package com.microsoft.aspnet.signalr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+class TransportSelectorTest {
+    private static final String ALL_TRANSPORTS = "{\"connectionId\":\"bVOiRPG8-6YiJ6d7ZcTOVQ\",\"availableTransports\":[" +
+            "{\"transport\":\"LongPolling\",\"transferFormats\":[\"Text\",\"Binary\"]}," +
+            "{\"transport\":\"ServerSentEvents\",\"transferFormats\":[\"Text\"]}," +
+            "{\"transport\":\"WebSockets\",\"transferFormats\":[\"Text\",\"Binary\"]}]}";
+
+    @Test
+    public void transportsAreOrderedByPreference() throws IOException {
+        TransportSelector selector = new TransportSelector(10);
+
+        assertEquals(Arrays.asList("WebSockets", "ServerSentEvents", "LongPolling"),
+                selector.select("http://example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.TEXT));
+        assertEquals(Arrays.asList("WebSockets", "LongPolling"),
+                selector.select("http://example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.BINARY));
+    }
+
+    @Test
+    public void transportThatLastConnectedIsTriedFirst() throws IOException {
+        TransportSelector selector = new TransportSelector(10);
+        selector.connected("http://example.com", "LongPolling");
+
+        assertEquals(Arrays.asList("LongPolling", "WebSockets", "ServerSentEvents"),
+                selector.select("http://example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.TEXT));
+        assertEquals(Arrays.asList("WebSockets", "ServerSentEvents", "LongPolling"),
+                selector.select("http://other.example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.TEXT));
+
+        NegotiateResponse webSocketsOnly = new NegotiateResponse("{\"availableTransports\":[" +
+                "{\"transport\":\"WebSockets\",\"transferFormats\":[\"Text\",\"Binary\"]}]}");
+        assertEquals(Collections.singletonList("WebSockets"), selector.select("http://example.com", webSocketsOnly, TransferFormat.TEXT));
+    }
+
+    @Test
+    public void leastRecentlyUsedUrlsAreForgotten() throws IOException {
+        TransportSelector selector = new TransportSelector(1);
+        selector.connected("http://first.example.com", "LongPolling");
+        selector.connected("http://second.example.com", "LongPolling");
+
+        assertEquals("WebSockets", selector.select("http://first.example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.TEXT).get(0));
+        assertEquals("LongPolling", selector.select("http://second.example.com", new NegotiateResponse(ALL_TRANSPORTS), TransferFormat.TEXT).get(0));
+    }
+}